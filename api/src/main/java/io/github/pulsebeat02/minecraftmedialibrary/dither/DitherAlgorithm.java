@@ -1,11 +1,44 @@
 package io.github.pulsebeat02.minecraftmedialibrary.dither;
 
 import java.nio.ByteBuffer;
+import org.jetbrains.annotations.NotNull;
 
 @FunctionalInterface
 public interface DitherAlgorithm {
 
   ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width);
 
+  /**
+   * Dithers the buffer into the caller owned data buffer using absolute puts, so the position of
+   * the data buffer is left untouched. The context is used for any scratch arrays and must not be
+   * shared between threads.
+   *
+   * @param buffer the rgb buffer
+   * @param width the width of the frame
+   * @param data the output buffer, with a capacity of at least the length of the rgb buffer
+   * @param context the scratch context
+   */
+  default void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
+    final ByteBuffer result = ditherIntoMinecraft(buffer, width);
+    for (int i = 0; i < buffer.length; i++) {
+      data.put(i, result.get(i));
+    }
+  }
+
   default void dither(final int[] buffer, final int width) {}
+
+  /**
+   * Gets a description of the algorithm and every setting which changes its output, such as the
+   * lookup table it was built with, which is used to key cached dithered frames.
+   *
+   * @return the description
+   */
+  @NotNull
+  default String getCacheKey() {
+    return getClass().getName();
+  }
 }
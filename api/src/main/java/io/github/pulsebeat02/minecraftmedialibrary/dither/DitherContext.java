@@ -0,0 +1,158 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither;
+
+import java.util.Arrays;
+
+/**
+ * Holds the scratch arrays used while dithering a frame, so a caller dithering frames of the same
+ * size does not allocate new arrays per frame. A context is not thread safe; use one per thread.
+ *
+ * <p>A context can also keep the output of the last frame, so error diffusion algorithms can keep
+ * the palette color of a pixel which barely changed instead of reshuffling the noise every frame.
+ * This is off by default, see {@link #setTemporalTolerance(int)}. Keep one context per stream when
+ * it is turned on, as the history of one stream is meaningless for another.
+ */
+public final class DitherContext {
+
+  private int[][] errorBuffer;
+  private byte[] rowBuffer;
+  private byte[] previousColors;
+  private int[] previousPixels;
+  private int[] previousErrors;
+  private int temporalTolerance;
+  private boolean errorSeeding;
+
+  public DitherContext() {
+    this.errorBuffer = new int[2][0];
+    this.rowBuffer = new byte[0];
+    this.previousColors = new byte[0];
+    this.previousPixels = new int[0];
+    this.previousErrors = new int[0];
+    this.temporalTolerance = -1;
+  }
+
+  /**
+   * Gets the two error rows used by error diffusion algorithms, cleared and at least four times the
+   * width of the frame in length.
+   *
+   * @param width the width of the frame
+   * @return the cleared error rows
+   */
+  public int[][] getErrorBuffer(final int width) {
+    final int length = width << 2;
+    if (this.errorBuffer[0].length < length) {
+      this.errorBuffer = new int[2][length];
+    } else {
+      Arrays.fill(this.errorBuffer[0], 0, length, 0);
+      Arrays.fill(this.errorBuffer[1], 0, length, 0);
+    }
+    return this.errorBuffer;
+  }
+
+  /**
+   * Gets a row of colors for algorithms which dither a row at a time before copying it into the
+   * output buffer. The row is not cleared and at least the width of the frame in length.
+   *
+   * @param width the width of the frame
+   * @return the row
+   */
+  public byte[] getRowBuffer(final int width) {
+    if (this.rowBuffer.length < width) {
+      this.rowBuffer = new byte[width];
+    }
+    return this.rowBuffer;
+  }
+
+  /**
+   * Sets how much further, in the largest channel difference, the palette color a pixel had in the
+   * last frame may be from the pixel than its best match for that color to be kept. A tolerance of
+   * 0 only keeps colors which are as close as the best match, a negative tolerance turns temporal
+   * dithering off and drops the history.
+   *
+   * @param tolerance the tolerance, in 0-255, or negative to turn it off
+   */
+  public void setTemporalTolerance(final int tolerance) {
+    this.temporalTolerance = Math.min(tolerance, 255);
+    if (tolerance < 0) {
+      resetHistory();
+    }
+  }
+
+  public int getTemporalTolerance() {
+    return this.temporalTolerance;
+  }
+
+  /**
+   * Sets whether pixels which are identical to the last frame start with the error they received
+   * in the last frame, instead of the error diffused into them by this frame. This stops a change
+   * in one part of the frame from rippling through the noise of the still parts below it. Only used
+   * while temporal dithering is on.
+   *
+   * @param errorSeeding whether to seed the error of unchanged pixels
+   */
+  public void setErrorSeeding(final boolean errorSeeding) {
+    this.errorSeeding = errorSeeding;
+  }
+
+  public boolean isErrorSeeding() {
+    return this.errorSeeding;
+  }
+
+  /**
+   * Gets whether algorithms should keep colors from the last frame.
+   *
+   * @return whether temporal dithering is on
+   */
+  public boolean isTemporal() {
+    return this.temporalTolerance >= 0;
+  }
+
+  /**
+   * Gets the palette colors written in the last frame. A color of 0 means there is no history for
+   * the pixel, which is also what the array holds after the frame size changed. Algorithms write
+   * the colors of the new frame back into the array.
+   *
+   * @param length the amount of pixels in the frame
+   * @return the colors of the last frame
+   */
+  public byte[] getPreviousColors(final int length) {
+    if (this.previousColors.length != length) {
+      this.previousColors = new byte[length];
+    }
+    return this.previousColors;
+  }
+
+  /**
+   * Gets the rgb pixels of the last frame, used to tell which pixels did not change.
+   *
+   * @param length the amount of pixels in the frame
+   * @return the pixels of the last frame
+   */
+  public int[] getPreviousPixels(final int length) {
+    if (this.previousPixels.length != length) {
+      this.previousPixels = new int[length];
+    }
+    return this.previousPixels;
+  }
+
+  /**
+   * Gets the red, green and blue error every pixel received in the last frame, three values per
+   * pixel.
+   *
+   * @param length the amount of pixels in the frame
+   * @return the errors of the last frame
+   */
+  public int[] getPreviousErrors(final int length) {
+    final int size = length * 3;
+    if (this.previousErrors.length != size) {
+      this.previousErrors = new int[size];
+    }
+    return this.previousErrors;
+  }
+
+  /** Drops the history of the last frame, so the next frame is dithered from scratch. */
+  public void resetHistory() {
+    this.previousColors = new byte[0];
+    this.previousPixels = new int[0];
+    this.previousErrors = new int[0];
+  }
+}
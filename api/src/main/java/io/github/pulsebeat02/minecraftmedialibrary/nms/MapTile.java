@@ -0,0 +1,75 @@
+package io.github.pulsebeat02.minecraftmedialibrary.nms;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The visible part of one map of a wall of maps. Tiles at the edge of a letterboxed video only
+ * cover part of their map, so a tile holds the rectangle it covers and the palette colors of that
+ * rectangle row by row.
+ */
+public final class MapTile {
+
+  private final int column;
+  private final int row;
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+  private final byte[] data;
+
+  /**
+   * Creates a tile. The data is not copied, the tile owns the array from now on.
+   *
+   * @param column the column of the map in the wall
+   * @param row the row of the map in the wall
+   * @param x the left of the covered rectangle within the map
+   * @param y the top of the covered rectangle within the map
+   * @param width the width of the covered rectangle
+   * @param height the height of the covered rectangle
+   * @param data the palette colors of the rectangle, at least width times height in length
+   */
+  public MapTile(
+      final int column,
+      final int row,
+      final int x,
+      final int y,
+      final int width,
+      final int height,
+      final byte @NotNull [] data) {
+    this.column = column;
+    this.row = row;
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.data = data;
+  }
+
+  public int getColumn() {
+    return this.column;
+  }
+
+  public int getRow() {
+    return this.row;
+  }
+
+  public int getX() {
+    return this.x;
+  }
+
+  public int getY() {
+    return this.y;
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  public byte @NotNull [] getData() {
+    return this.data;
+  }
+}
@@ -33,6 +33,22 @@ public interface PacketHandler {
   void displayDebugMarker(
       final UUID[] viewers, final int x, final int y, final int z, final int color, final int time);
 
+  /**
+   * Displays many debug markers at once. The markers are written to every viewer together, with a
+   * single flush per viewer. Viewers who were sent markers too recently are skipped.
+   *
+   * @param viewers the viewers, or null for every player
+   * @param positions the x, y and z coordinates of every marker, one after the other
+   * @param colors the color of every marker
+   * @param time how long the markers are shown for in milliseconds
+   * @return whether every viewer was sent the markers, false if any viewer was skipped
+   */
+  boolean displayDebugMarkers(
+      final UUID[] viewers,
+      final int @NotNull [] positions,
+      final int @NotNull [] colors,
+      final int time);
+
   void displayMaps(
       final UUID[] viewers,
       final int map,
@@ -51,9 +67,80 @@ public interface PacketHandler {
       final ByteBuffer rgb,
       final int videoWidth);
 
+  /**
+   * Displays tiles which were already cut to the maps they cover, such as the tiles of a {@code
+   * MapTileRenderer}. Tiles are sent as they are, without copying their data.
+   *
+   * @param viewers the viewers, or null for every player
+   * @param map the id of the top left map
+   * @param mapWidth the width of the wall in maps
+   * @param tiles the tiles
+   */
+  void displayMapTiles(
+      final UUID[] viewers, final int map, final int mapWidth, final MapTile @NotNull [] tiles);
+
+  /**
+   * Sets whether map tiles are delta encoded. When enabled, the last palette bytes sent for every
+   * map are kept per group of viewers. Unchanged tiles are then skipped, and changed tiles only
+   * send the bounding rectangle of the pixels which changed.
+   *
+   * @param delta whether to delta encode maps
+   */
+  void setMapDeltaEncoding(final boolean delta);
+
+  boolean isMapDeltaEncoding();
+
+  /**
+   * Sets how many bytes of map frames per second each viewer may receive, unless the viewer has a
+   * budget of their own. Frames over budget are skipped for that viewer only, like frames for
+   * viewers whose connection is still busy sending previous frames.
+   *
+   * @param bytesPerSecond the budget, or 0 for no limit
+   */
+  void setBandwidthBudget(final long bytesPerSecond);
+
+  void setBandwidthBudget(@NotNull final UUID viewer, final long bytesPerSecond);
+
+  long getBandwidthBudget(@NotNull final UUID viewer);
+
+  /**
+   * Displays a frame as the custom names of hologram entities, one row of pixels per entity from
+   * the top. Rows which did not change since they were last sent to an entity are skipped, and
+   * the rows which did are written to every viewer at once.
+   *
+   * @param viewers the viewers, or null for every player
+   * @param entities the entities, from the top row down
+   * @param data the pixels of the frame
+   * @param width the width of the frame
+   */
   void displayEntities(
       final UUID[] viewers, final Entity[] entities, final int[] data, final int width);
 
+  /**
+   * Sends rows of a frame as chat messages. Rows are JSON text components, which are parsed once
+   * while they keep coming back and written to every viewer at once.
+   *
+   * @param viewers the viewers, or null for every player
+   * @param rows the rows as JSON text components, from the top
+   */
+  void displayChat(final UUID[] viewers, final String @NotNull [] rows);
+
+  /**
+   * Displays rows of a frame in the sidebar, one row per line, up to 15 rows. The sidebar is
+   * created once for every viewer, after that only the lines of rows which changed since the
+   * previous frame are sent again.
+   *
+   * @param viewers the viewers, or null for every player
+   * @param id the id of the scoreboard
+   * @param title the title of the sidebar
+   * @param rows the rows as JSON text components, from the top
+   */
+  void displayScoreboard(
+      final UUID[] viewers,
+      final int id,
+      @NotNull final String title,
+      final String @NotNull [] rows);
+
   void registerPlayer(@NotNull final Player player);
 
   void unregisterPlayer(@NotNull final Player player);
@@ -0,0 +1,27 @@
+plugins {
+    id("me.champeau.jmh") version "0.6.5"
+}
+
+description = "JMH benchmarks for MinecraftMediaLibrary"
+
+repositories {
+    mavenLocal()
+}
+
+dependencies {
+    jmh(project(":main"))
+    jmh("org.spigotmc:spigot:1.16.5-R0.1-SNAPSHOT")
+}
+
+// results are written as JSON so runs of different versions can be compared, for example with
+// ./gradlew :minecraftmedialibrary-benchmarks:jmh -Pjmh.includes=DitherBenchmark
+jmh {
+    jmhVersion.set("1.32")
+    resultFormat.set("JSON")
+    resultsFile.set(project.file("$buildDir/results/jmh/results-${rootProject.version}.json"))
+    jvmArgs.set(listOf("-Xmx2G"))
+    if (JavaVersion.current() >= JavaVersion.VERSION_16) {
+        jvmArgs.addAll("--add-modules", "jdk.incubator.vector")
+    }
+    (findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
@@ -0,0 +1,84 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.BlueNoiseDither;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.FilterLiteDither;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.FloydDither;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.OrderedDither;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dithers a single frame into map colors. The sizes are map walls of 1x1, 5x3 and 10x6 maps, the
+ * frames range from a smooth gradient to noise, which defeats any locality in the lookup tables.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DitherBenchmark {
+
+  @Param({"FLOYD", "FILTER_LITE", "ORDERED", "BLUE_NOISE"})
+  private String algorithm;
+
+  @Param({"128x128", "640x384", "1280x768"})
+  private String size;
+
+  @Param({"gradient", "plasma", "noise"})
+  private String frame;
+
+  private DitherAlgorithm dither;
+  private DitherContext context;
+  private int[] source;
+  private int[] buffer;
+  private int width;
+  private ByteBuffer data;
+
+  @Setup
+  public void setup() {
+    switch (this.algorithm) {
+      case "FLOYD":
+        this.dither = new FloydDither();
+        break;
+      case "FILTER_LITE":
+        this.dither = new FilterLiteDither();
+        break;
+      case "ORDERED":
+        this.dither = new OrderedDither(OrderedDither.DitherType.EIGHT);
+        break;
+      case "BLUE_NOISE":
+        this.dither = new BlueNoiseDither();
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unknown algorithm %s!", this.algorithm));
+    }
+    final int[] dimensions = SampleFrames.parseSize(this.size);
+    this.width = dimensions[0];
+    this.source = SampleFrames.getFrame(this.frame, dimensions[0], dimensions[1]);
+    this.buffer = new int[this.source.length];
+    this.data = ByteBuffer.allocate(this.source.length);
+    this.context = new DitherContext();
+  }
+
+  @Benchmark
+  public ByteBuffer ditherIntoMinecraft() {
+    // the algorithms may write into the passed pixels, so every invocation starts from the source
+    System.arraycopy(this.source, 0, this.buffer, 0, this.source.length);
+    this.dither.ditherIntoMinecraft(this.buffer, this.width, this.data, this.context);
+    return this.data;
+  }
+}
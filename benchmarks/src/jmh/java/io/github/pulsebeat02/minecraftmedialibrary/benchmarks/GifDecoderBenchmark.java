@@ -0,0 +1,72 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import io.github.pulsebeat02.minecraftmedialibrary.decoder.GifDecoder;
+import io.github.pulsebeat02.minecraftmedialibrary.decoder.GifDecoder.GifImage;
+import io.github.pulsebeat02.minecraftmedialibrary.decoder.StreamingGifDecoder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes the checked in animation, a 256x128 gif of 24 frames. Decoded frames are kept by the
+ * {@link GifImage}, so drawing the frames is measured together with reading a fresh image. The
+ * streaming decoder reads the animation from a temporary file, as it reads from a channel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GifDecoderBenchmark {
+
+  private byte[] gif;
+  private Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    this.gif = SampleFrames.getBytes("/frames/animation.gif");
+    this.file = Files.createTempFile("animation", ".gif");
+    Files.write(this.file, this.gif);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.file);
+  }
+
+  @Benchmark
+  public GifImage read() throws IOException {
+    return GifDecoder.read(this.gif);
+  }
+
+  @Benchmark
+  public void readFrames(final Blackhole blackhole) throws IOException {
+    final GifImage decoded = GifDecoder.read(this.gif);
+    for (int i = 0; i < decoded.getFrameCount(); i++) {
+      blackhole.consume(decoded.getFrame(i));
+    }
+  }
+
+  @Benchmark
+  public void streamFrames(final Blackhole blackhole) throws IOException {
+    try (final StreamingGifDecoder decoder = StreamingGifDecoder.open(this.file, 0)) {
+      while (decoder.next()) {
+        blackhole.consume(decoder.getImage());
+      }
+    }
+  }
+}
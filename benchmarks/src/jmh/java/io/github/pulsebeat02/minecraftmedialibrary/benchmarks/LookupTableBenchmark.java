@@ -0,0 +1,92 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupCache;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.distance.ColorDistance;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds the lookup table of each distance strategy, either from scratch or from the disk cache.
+ * Building a table takes up to seconds, so each measurement is a single build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LookupTableBenchmark {
+
+  @Param({"redmean", "cie76", "oklab", "ciede2000"})
+  private String distance;
+
+  @Param({"false", "true"})
+  private boolean cached;
+
+  private ColorDistance strategy;
+  private Path directory;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    switch (this.distance) {
+      case "redmean":
+        this.strategy = ColorDistance.REDMEAN;
+        break;
+      case "cie76":
+        this.strategy = ColorDistance.CIE76;
+        break;
+      case "oklab":
+        this.strategy = ColorDistance.OKLAB;
+        break;
+      case "ciede2000":
+        this.strategy = ColorDistance.CIEDE2000;
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unknown distance %s!", this.distance));
+    }
+
+    // the default table is built while the class initializes, before the cache is configured
+    DitherLookupUtil.init();
+    if (this.cached) {
+      this.directory = Files.createTempDirectory("mml-lookup");
+      DitherLookupCache.setDirectory(this.directory);
+      DitherLookupUtil.createLookupTable(this.strategy);
+    } else {
+      DitherLookupCache.setDirectory(null);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    DitherLookupCache.setDirectory(null);
+    if (this.directory != null) {
+      try (final Stream<Path> files = Files.walk(this.directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  @Benchmark
+  public DitherLookupTable createLookupTable() {
+    return DitherLookupUtil.createLookupTable(this.strategy);
+  }
+}
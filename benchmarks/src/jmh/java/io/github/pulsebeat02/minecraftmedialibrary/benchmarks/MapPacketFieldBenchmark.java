@@ -0,0 +1,94 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.server.v1_16_R3.MapIcon;
+import net.minecraft.server.v1_16_R3.PacketPlayOutMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fills a map packet through reflected fields and through the static final method handles the
+ * intercepter uses, which the JIT can inline like plain field stores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapPacketFieldBenchmark {
+
+  private static final MapIcon[] EMPTY_ICONS = new MapIcon[0];
+
+  private static final Field ID_FIELD = getField("a");
+  private static final Field ICONS_FIELD = getField("e");
+  private static final Field X_FIELD = getField("f");
+  private static final Field Y_FIELD = getField("g");
+  private static final Field WIDTH_FIELD = getField("h");
+  private static final Field HEIGHT_FIELD = getField("i");
+  private static final Field DATA_FIELD = getField("j");
+
+  private static final MethodHandle ID = getSetter(ID_FIELD);
+  private static final MethodHandle ICONS = getSetter(ICONS_FIELD);
+  private static final MethodHandle X = getSetter(X_FIELD);
+  private static final MethodHandle Y = getSetter(Y_FIELD);
+  private static final MethodHandle WIDTH = getSetter(WIDTH_FIELD);
+  private static final MethodHandle HEIGHT = getSetter(HEIGHT_FIELD);
+  private static final MethodHandle DATA = getSetter(DATA_FIELD);
+
+  private final byte[] data = new byte[128 * 128];
+
+  private static Field getField(final String name) {
+    try {
+      final Field field = PacketPlayOutMap.class.getDeclaredField(name);
+      field.setAccessible(true);
+      return field;
+    } catch (final NoSuchFieldException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle getSetter(final Field field) {
+    try {
+      return MethodHandles.lookup().unreflectSetter(field);
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Benchmark
+  public PacketPlayOutMap fieldSet() throws IllegalAccessException {
+    final PacketPlayOutMap packet = new PacketPlayOutMap();
+    ID_FIELD.set(packet, 1);
+    ICONS_FIELD.set(packet, EMPTY_ICONS);
+    X_FIELD.set(packet, 0);
+    Y_FIELD.set(packet, 0);
+    WIDTH_FIELD.set(packet, 128);
+    HEIGHT_FIELD.set(packet, 128);
+    DATA_FIELD.set(packet, this.data);
+    return packet;
+  }
+
+  @Benchmark
+  public PacketPlayOutMap methodHandle() throws Throwable {
+    final PacketPlayOutMap packet = new PacketPlayOutMap();
+    ID.invokeExact(packet, 1);
+    ICONS.invokeExact(packet, EMPTY_ICONS);
+    X.invokeExact(packet, 0);
+    Y.invokeExact(packet, 0);
+    WIDTH.invokeExact(packet, 128);
+    HEIGHT.invokeExact(packet, 128);
+    DATA.invokeExact(packet, this.data);
+    return packet;
+  }
+}
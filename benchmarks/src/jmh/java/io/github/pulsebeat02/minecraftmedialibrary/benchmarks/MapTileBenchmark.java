@@ -0,0 +1,71 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.FloydDither;
+import io.github.pulsebeat02.minecraftmedialibrary.nms.impl.v1_16_R3.NMSMapPacketIntercepter;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Slices dithered frames into map tiles and builds their packets. There are no viewers, so nothing
+ * is written to the network. Two frames alternate so delta encoding always finds changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapTileBenchmark {
+
+  private static final UUID[] NO_VIEWERS = new UUID[0];
+
+  @Param({"640x384", "1280x768", "1000x600"})
+  private String size;
+
+  @Param({"false", "true"})
+  private boolean delta;
+
+  private NMSMapPacketIntercepter intercepter;
+  private ByteBuffer[] frames;
+  private int videoWidth;
+  private int width;
+  private int height;
+  private int index;
+
+  @Setup
+  public void setup() {
+    final int[] dimensions = SampleFrames.parseSize(this.size);
+    this.videoWidth = dimensions[0];
+    this.width = (dimensions[0] + 127) >> 7;
+    this.height = (dimensions[1] + 127) >> 7;
+    final FloydDither dither = new FloydDither();
+    this.frames =
+        new ByteBuffer[] {
+          dither.ditherIntoMinecraft(
+              SampleFrames.getFrame("plasma", dimensions[0], dimensions[1]), dimensions[0]),
+          dither.ditherIntoMinecraft(
+              SampleFrames.getFrame("gradient", dimensions[0], dimensions[1]), dimensions[0])
+        };
+    this.intercepter = new NMSMapPacketIntercepter();
+    this.intercepter.setMapDeltaEncoding(this.delta);
+  }
+
+  @Benchmark
+  public void displayMaps() {
+    this.index ^= 1;
+    this.intercepter.displayMaps(
+        NO_VIEWERS, 0, this.width, this.height, this.frames[this.index], this.videoWidth);
+  }
+}
@@ -0,0 +1,89 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.MapTileRenderer;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.FilterLiteDither;
+import io.github.pulsebeat02.minecraftmedialibrary.nms.MapTile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders a frame onto a 5x3 wall of maps, 640x384 pixels. The fused renderer reads source frames
+ * of the video size or larger, the separate path dithers a frame of the video size and then cuts
+ * it into tiles the way the packet handler does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapTileRendererBenchmark {
+
+  private static final int MAP_WIDTH = 5;
+  private static final int MAP_HEIGHT = 3;
+  private static final int VIDEO_WIDTH = 640;
+  private static final int VIDEO_HEIGHT = 384;
+
+  @Param({"640x384", "1280x768", "1920x1152"})
+  private String source;
+
+  @Param({"gradient", "plasma"})
+  private String frame;
+
+  private MapTileRenderer renderer;
+  private FilterLiteDither dither;
+  private DitherContext context;
+  private int[] pixels;
+  private int[] video;
+  private int sourceWidth;
+  private ByteBuffer data;
+
+  @Setup
+  public void setup() {
+    final int[] dimensions = SampleFrames.parseSize(this.source);
+    this.sourceWidth = dimensions[0];
+    this.pixels = SampleFrames.getFrame(this.frame, dimensions[0], dimensions[1]);
+    this.video = SampleFrames.getFrame(this.frame, VIDEO_WIDTH, VIDEO_HEIGHT);
+    this.renderer = new MapTileRenderer(MAP_WIDTH, MAP_HEIGHT);
+    this.dither = new FilterLiteDither();
+    this.context = new DitherContext();
+    this.data = ByteBuffer.allocate(this.video.length);
+  }
+
+  @Benchmark
+  public MapTile[] fused() {
+    return this.renderer.render(
+        this.pixels, this.sourceWidth, VIDEO_WIDTH, VIDEO_HEIGHT, this.context);
+  }
+
+  @Benchmark
+  public byte[][] ditherAndCut() {
+    this.dither.ditherIntoMinecraft(this.video, VIDEO_WIDTH, this.data, this.context);
+    final byte[][] tiles = new byte[MAP_WIDTH * MAP_HEIGHT][];
+    for (int y = 0; y < MAP_HEIGHT; y++) {
+      for (int x = 0; x < MAP_WIDTH; x++) {
+        final byte[] tile = new byte[128 * 128];
+        for (int iy = 0; iy < 128; iy++) {
+          final int index = ((y << 7) + iy) * VIDEO_WIDTH + (x << 7);
+          for (int ix = 0; ix < 128; ix++) {
+            tile[iy << 7 | ix] = this.data.get(index + ix);
+          }
+        }
+        tiles[y * MAP_WIDTH + x] = tile;
+      }
+    }
+    return tiles;
+  }
+}
@@ -0,0 +1,100 @@
+package io.github.pulsebeat02.minecraftmedialibrary.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+import javax.imageio.ImageIO;
+
+/**
+ * Frames the benchmarks run on. Checked in frames are read from the {@code frames} resources,
+ * while the noise frame is generated with a fixed seed so every run dithers the same pixels.
+ */
+final class SampleFrames {
+
+  private static final long NOISE_SEED = 0x5EEDL;
+
+  private SampleFrames() {}
+
+  /**
+   * Gets a frame scaled to the passed size.
+   *
+   * @param name the name of the frame, either "noise" or the name of a checked in png frame
+   * @param width the width
+   * @param height the height
+   * @return the rgb pixels of the frame
+   */
+  static int[] getFrame(final String name, final int width, final int height) {
+    if (name.equals("noise")) {
+      return createNoise(width, height);
+    }
+    final BufferedImage image = readImage(String.format("/frames/%s.png", name));
+    final BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D graphics = scaled.createGraphics();
+    graphics.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    graphics.drawImage(image, 0, 0, width, height, null);
+    graphics.dispose();
+    return scaled.getRGB(0, 0, width, height, null, 0, width);
+  }
+
+  /**
+   * Gets the raw bytes of a checked in resource.
+   *
+   * @param path the path of the resource
+   * @return the bytes
+   */
+  static byte[] getBytes(final String path) {
+    try (final InputStream stream = SampleFrames.class.getResourceAsStream(path)) {
+      if (stream == null) {
+        throw new IllegalArgumentException(String.format("Missing resource %s!", path));
+      }
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = stream.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+      return output.toByteArray();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Parses a size such as "640x384".
+   *
+   * @param size the size
+   * @return the width and height
+   */
+  static int[] parseSize(final String size) {
+    final int separator = size.indexOf('x');
+    return new int[] {
+      Integer.parseInt(size.substring(0, separator)), Integer.parseInt(size.substring(separator + 1))
+    };
+  }
+
+  private static BufferedImage readImage(final String path) {
+    try (final InputStream stream = SampleFrames.class.getResourceAsStream(path)) {
+      if (stream == null) {
+        throw new IllegalArgumentException(String.format("Missing frame %s!", path));
+      }
+      return ImageIO.read(stream);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int[] createNoise(final int width, final int height) {
+    final SplittableRandom random = new SplittableRandom(NOISE_SEED);
+    final int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+    }
+    return pixels;
+  }
+}
@@ -28,4 +28,70 @@ dependencies {
     api(project(":api"))
     api(project(":v1_16_R3"))
 
-}
\ No newline at end of file
+}
+
+// kernels using the incubating vector api, loaded at runtime only if the module is available.
+// they are compiled by the jdk running gradle when it is 16 or newer, and left out of the jar
+// otherwise, which then dithers with the ScalarOrderedDitherKernel. pass -PskipVector to leave
+// them out on purpose
+val java16: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(java16.compileJavaTaskName) {
+    onlyIf { !project.hasProperty("skipVector") }
+    onlyIf {
+        val supported = JavaVersion.current() >= JavaVersion.VERSION_16
+        if (!supported) {
+            logger.warn("Gradle is not running on Java 16+, building without the vector kernels")
+        }
+        supported
+    }
+    // --release 16 cannot see the incubator module on newer jdks, so only the bytecode is pinned
+    sourceCompatibility = "16"
+    targetCompatibility = "16"
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.jar {
+    from(java16.output)
+}
+
+// the native dither library is built on linux-x86_64 hosts which have gcc and the jdk headers,
+// and packaged into the jar. jars built anywhere else ship without it and dither with the java
+// FilterLiteDither instead. pass -PskipNatives to leave it out on purpose
+val nativeOutput = layout.buildDirectory.dir("natives")
+
+val compileNatives by tasks.registering(Exec::class) {
+    val library = nativeOutput.get().file("natives/linux-x86_64/libfilterlite-dither.so").asFile
+    val javaHome = File(System.getProperty("java.home")).let { if (it.name == "jre") it.parentFile else it }
+    val gcc = System.getenv("PATH").orEmpty().split(File.pathSeparator)
+        .map { File(it, "gcc") }
+        .firstOrNull { it.canExecute() }
+    onlyIf {
+        !project.hasProperty("skipNatives") &&
+                System.getProperty("os.name").toLowerCase().contains("linux") &&
+                System.getProperty("os.arch") in listOf("amd64", "x86_64")
+    }
+    onlyIf {
+        val found = gcc != null && File(javaHome, "include/jni.h").isFile
+        if (!found) {
+            logger.warn("gcc or jni.h not found, building without the native dither library")
+        }
+        found
+    }
+    inputs.dir("src/main/c")
+    outputs.file(library)
+    doFirst { library.parentFile.mkdirs() }
+    commandLine(
+        gcc?.absolutePath ?: "gcc", "-O3", "-shared", "-fPIC",
+        "-I${javaHome}/include", "-I${javaHome}/include/linux",
+        "-o", library.absolutePath,
+        "src/main/c/filterlite_dither.c"
+    )
+}
+
+tasks.processResources {
+    from(nativeOutput)
+    dependsOn(compileNatives)
+}
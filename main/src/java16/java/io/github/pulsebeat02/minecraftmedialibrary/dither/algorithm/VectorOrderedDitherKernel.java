@@ -0,0 +1,78 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Computes the lookup table indices of a whole vector of pixels at once, only the lookups are done
+ * one pixel at a time. Loaded by the {@link OrderedDither} when the jdk.incubator.vector module is
+ * available.
+ */
+final class VectorOrderedDitherKernel implements OrderedDitherKernel {
+
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  // the kernel is shared by every dither and rows are dithered in parallel, so each thread keeps
+  // its own lanes to spill the indices into
+  private final ThreadLocal<int[]> indices =
+      ThreadLocal.withInitial(() -> new int[SPECIES.length()]);
+
+  VectorOrderedDitherKernel() {
+    if (PATTERN_LENGTH % SPECIES.length() != 0) {
+      throw new UnsupportedOperationException("Unsupported vector length!");
+    }
+  }
+
+  @Override
+  public void ditherRow(
+      final int[] buffer,
+      final int offset,
+      final int width,
+      final int[] floors,
+      final int[] ceils,
+      final byte[] colorMap,
+      final byte[] out,
+      final int outOffset) {
+    final int lanes = SPECIES.length();
+    final int[] indices = this.indices.get();
+    final int bound = SPECIES.loopBound(width);
+    int x = 0;
+    for (; x < bound; x += lanes) {
+      final int p = x & PATTERN_MASK;
+      final IntVector pixels = IntVector.fromArray(SPECIES, buffer, offset + x);
+      final IntVector floor = IntVector.fromArray(SPECIES, floors, p);
+      final IntVector ceil = IntVector.fromArray(SPECIES, ceils, p);
+
+      // the threshold is rounded towards zero, then sums past the int range are clamped
+      final VectorMask<Integer> positive = pixels.compare(VectorOperators.GE, floor.neg());
+      final IntVector threshold = ceil.blend(floor, positive);
+      final IntVector sum = pixels.add(threshold);
+      final VectorMask<Integer> overflow =
+          pixels.lanewise(VectorOperators.XOR, sum)
+              .and(threshold.lanewise(VectorOperators.XOR, sum))
+              .compare(VectorOperators.LT, 0);
+      final IntVector bounds =
+          IntVector.broadcast(SPECIES, Integer.MAX_VALUE)
+              .blend(Integer.MIN_VALUE, pixels.compare(VectorOperators.LT, 0));
+      final IntVector rgb = sum.blend(bounds, overflow);
+
+      rgb.lanewise(VectorOperators.LSHR, 17)
+          .and(0x7F)
+          .lanewise(VectorOperators.LSHL, 14)
+          .or(rgb.lanewise(VectorOperators.LSHR, 9).and(0x7F).lanewise(VectorOperators.LSHL, 7))
+          .or(rgb.lanewise(VectorOperators.LSHR, 1).and(0x7F))
+          .intoArray(indices, 0);
+      final int to = outOffset + x;
+      for (int i = 0; i < lanes; i++) {
+        out[to + i] = colorMap[indices[i]];
+      }
+    }
+    for (; x < width; x++) {
+      final int p = x & PATTERN_MASK;
+      out[outOffset + x] =
+          ScalarOrderedDitherKernel.getColor(colorMap, buffer[offset + x], floors[p], ceils[p]);
+    }
+  }
+}
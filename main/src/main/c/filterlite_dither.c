@@ -0,0 +1,276 @@
+/*
+ * Native backend of io.github.pulsebeat02.minecraftmedialibrary.natives.NativeDitherBuffer.
+ *
+ * Ports FilterLiteDither (Simple Sierra 2-4A error diffusion) to C. The output matches the Java
+ * implementation byte for byte, so the two can be swapped freely.
+ */
+
+#include <jni.h>
+#include <stdint.h>
+#include <stdlib.h>
+
+#define TABLE_SIZE (128 * 128 * 128)
+
+typedef struct {
+    jbyte color_map[TABLE_SIZE];
+    jint full_color_map[TABLE_SIZE];
+} dither_tables;
+
+static inline int clamp(const int value) {
+    return value > 255 ? 255 : value < 0 ? 0 : value;
+}
+
+static inline int table_index(const int red, const int green, const int blue) {
+    return red >> 1 << 14 | green >> 1 << 7 | blue >> 1;
+}
+
+static inline jbyte color_of(const dither_tables *tables, const jint rgb) {
+    return tables->color_map[table_index(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF)];
+}
+
+/*
+ * Dithers the frame, writing either palette indices into out or palette colors back into buffer
+ * when out is NULL. errors must hold two zeroed rows of at least three ints per pixel.
+ */
+static void dither(const dither_tables *tables, jint *buffer, const int width, const int height,
+                   jbyte *out, jint *errors, const int row_length) {
+    const int width_minus = width - 1;
+    const int height_minus = height - 1;
+    jint *rows[2] = {errors, errors + row_length};
+    for (int y = 0; y < height; ++y) {
+        const int has_next_y = y < height_minus;
+        const int y_index = y * width;
+        if ((y & 0x1) == 0) {
+            int i = 0;
+            jint *buf1 = rows[0];
+            jint *buf2 = rows[1];
+            for (int x = 0; x < width; ++x) {
+                const int index = y_index + x;
+                const jint rgb = buffer[index];
+                const int red = clamp((rgb >> 16 & 0xFF) + buf1[i++]);
+                const int green = clamp((rgb >> 8 & 0xFF) + buf1[i++]);
+                const int blue = clamp((rgb & 0xFF) + buf1[i++]);
+                const jint closest = tables->full_color_map[table_index(red, green, blue)];
+                const int delta_r = red - (closest >> 16 & 0xFF);
+                const int delta_g = green - (closest >> 8 & 0xFF);
+                const int delta_b = blue - (closest & 0xFF);
+                if (x < width_minus) {
+                    buf1[i] = delta_r >> 1;
+                    buf1[i + 1] = delta_g >> 1;
+                    buf1[i + 2] = delta_b >> 1;
+                }
+                if (has_next_y) {
+                    if (x > 0) {
+                        buf2[i - 6] = delta_r >> 2;
+                        buf2[i - 5] = delta_g >> 2;
+                        buf2[i - 4] = delta_b >> 2;
+                    }
+                    buf2[i - 3] = delta_r >> 2;
+                    buf2[i - 2] = delta_g >> 2;
+                    buf2[i - 1] = delta_b >> 2;
+                }
+                if (out != NULL) {
+                    out[index] = color_of(tables, closest);
+                } else {
+                    buffer[index] = closest;
+                }
+            }
+        } else {
+            int i = width + (width << 1) - 1;
+            jint *buf1 = rows[1];
+            jint *buf2 = rows[0];
+            for (int x = width - 1; x >= 0; --x) {
+                const int index = y_index + x;
+                const jint rgb = buffer[index];
+                const int blue = clamp((rgb & 0xFF) + buf1[i--]);
+                const int green = clamp((rgb >> 8 & 0xFF) + buf1[i--]);
+                const int red = clamp((rgb >> 16 & 0xFF) + buf1[i--]);
+                const jint closest = tables->full_color_map[table_index(red, green, blue)];
+                const int delta_r = red - (closest >> 16 & 0xFF);
+                const int delta_g = green - (closest >> 8 & 0xFF);
+                const int delta_b = blue - (closest & 0xFF);
+                if (x > 0) {
+                    buf1[i] = delta_b >> 1;
+                    buf1[i - 1] = delta_g >> 1;
+                    buf1[i - 2] = delta_r >> 1;
+                }
+                if (has_next_y) {
+                    if (x < width_minus) {
+                        buf2[i + 6] = delta_b >> 2;
+                        buf2[i + 5] = delta_g >> 2;
+                        buf2[i + 4] = delta_r >> 2;
+                    }
+                    buf2[i + 3] = delta_b >> 2;
+                    buf2[i + 2] = delta_g >> 2;
+                    buf2[i + 1] = delta_r >> 2;
+                }
+                if (out != NULL) {
+                    out[index] = color_of(tables, closest);
+                } else {
+                    buffer[index] = closest;
+                }
+            }
+        }
+    }
+}
+
+static void throw_new(JNIEnv *env, const char *name, const char *message) {
+    jclass clazz = (*env)->FindClass(env, name);
+    if (clazz != NULL) {
+        (*env)->ThrowNew(env, clazz, message);
+    }
+}
+
+/*
+ * Gets the tables behind the handle, or throws if the buffer was already released.
+ */
+static const dither_tables *get_tables(JNIEnv *env, const jlong handle) {
+    if (handle == 0) {
+        throw_new(env, "java/lang/IllegalStateException", "Native dither buffer was released!");
+        return NULL;
+    }
+    return (const dither_tables *) (intptr_t) handle;
+}
+
+/*
+ * Checks that the pixels form whole rows of a positive width, or throws.
+ */
+static int check_frame(JNIEnv *env, const jint length, const jint width) {
+    if (width <= 0 || length % width != 0) {
+        throw_new(env, "java/lang/IllegalArgumentException", "Invalid frame width!");
+        return 0;
+    }
+    return 1;
+}
+
+static jint *allocate_errors(JNIEnv *env, const int width, int *row_length) {
+    // same length as the rows of a DitherContext, zeroed like a new frame
+    *row_length = width << 2;
+    jint *errors = calloc((size_t) *row_length * 2, sizeof(jint));
+    if (errors == NULL) {
+        throw_new(env, "java/lang/OutOfMemoryError", "Could not allocate the error rows!");
+    }
+    return errors;
+}
+
+JNIEXPORT jlong JNICALL
+Java_io_github_pulsebeat02_minecraftmedialibrary_natives_NativeDitherBuffer_setup(
+        JNIEnv *env, jclass clazz, jbyteArray color_map, jintArray full_color_map) {
+    dither_tables *tables = malloc(sizeof(dither_tables));
+    if (tables == NULL) {
+        throw_new(env, "java/lang/OutOfMemoryError", "Could not allocate the lookup tables!");
+        return 0;
+    }
+    (*env)->GetByteArrayRegion(env, color_map, 0, TABLE_SIZE, tables->color_map);
+    (*env)->GetIntArrayRegion(env, full_color_map, 0, TABLE_SIZE, tables->full_color_map);
+    return (jlong) (intptr_t) tables;
+}
+
+JNIEXPORT void JNICALL
+Java_io_github_pulsebeat02_minecraftmedialibrary_natives_NativeDitherBuffer_free(
+        JNIEnv *env, jclass clazz, jlong handle) {
+    // free ignores NULL, so freeing a released handle is harmless
+    free((void *) (intptr_t) handle);
+}
+
+JNIEXPORT void JNICALL
+Java_io_github_pulsebeat02_minecraftmedialibrary_natives_NativeDitherBuffer_ditherNative(
+        JNIEnv *env, jclass clazz, jlong handle, jintArray buffer, jint width, jobject data) {
+    const dither_tables *tables = get_tables(env, handle);
+    if (tables == NULL) {
+        return;
+    }
+    const int length = (*env)->GetArrayLength(env, buffer);
+    if (!check_frame(env, length, width)) {
+        return;
+    }
+    jbyte *out = (*env)->GetDirectBufferAddress(env, data);
+    if (out == NULL) {
+        // not a direct buffer, or the JVM does not support direct buffer access from JNI
+        throw_new(env, "java/lang/IllegalArgumentException", "Buffer has no native address!");
+        return;
+    }
+    if ((*env)->GetDirectBufferCapacity(env, data) < length) {
+        throw_new(env, "java/lang/IllegalArgumentException", "Buffer is too small!");
+        return;
+    }
+    int row_length;
+    jint *errors = allocate_errors(env, width, &row_length);
+    if (errors == NULL) {
+        return;
+    }
+    jint *pixels = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (pixels == NULL) {
+        free(errors);
+        return;
+    }
+    dither(tables, pixels, width, length / width, out, errors, row_length);
+    // the pixels are only read, so there is nothing to copy back
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, pixels, JNI_ABORT);
+    free(errors);
+}
+
+JNIEXPORT void JNICALL
+Java_io_github_pulsebeat02_minecraftmedialibrary_natives_NativeDitherBuffer_ditherArray(
+        JNIEnv *env, jclass clazz, jlong handle, jintArray buffer, jint width, jbyteArray data,
+        jint offset) {
+    const dither_tables *tables = get_tables(env, handle);
+    if (tables == NULL) {
+        return;
+    }
+    const int length = (*env)->GetArrayLength(env, buffer);
+    if (!check_frame(env, length, width)) {
+        return;
+    }
+    if (offset < 0 || (*env)->GetArrayLength(env, data) - offset < length) {
+        throw_new(env, "java/lang/IllegalArgumentException", "Buffer is too small!");
+        return;
+    }
+    int row_length;
+    jint *errors = allocate_errors(env, width, &row_length);
+    if (errors == NULL) {
+        return;
+    }
+    // a NULL critical pointer means an OutOfMemoryError is pending
+    jint *pixels = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (pixels == NULL) {
+        free(errors);
+        return;
+    }
+    jbyte *out = (*env)->GetPrimitiveArrayCritical(env, data, NULL);
+    if (out == NULL) {
+        (*env)->ReleasePrimitiveArrayCritical(env, buffer, pixels, JNI_ABORT);
+        free(errors);
+        return;
+    }
+    dither(tables, pixels, width, length / width, out + offset, errors, row_length);
+    (*env)->ReleasePrimitiveArrayCritical(env, data, out, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, pixels, JNI_ABORT);
+    free(errors);
+}
+
+JNIEXPORT void JNICALL
+Java_io_github_pulsebeat02_minecraftmedialibrary_natives_NativeDitherBuffer_ditherRgb(
+        JNIEnv *env, jclass clazz, jlong handle, jintArray buffer, jint width) {
+    const dither_tables *tables = get_tables(env, handle);
+    if (tables == NULL) {
+        return;
+    }
+    const int length = (*env)->GetArrayLength(env, buffer);
+    if (!check_frame(env, length, width)) {
+        return;
+    }
+    int row_length;
+    jint *errors = allocate_errors(env, width, &row_length);
+    if (errors == NULL) {
+        return;
+    }
+    jint *pixels = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (pixels == NULL) {
+        free(errors);
+        return;
+    }
+    dither(tables, pixels, width, length / width, NULL, errors, row_length);
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, pixels, 0);
+    free(errors);
+}
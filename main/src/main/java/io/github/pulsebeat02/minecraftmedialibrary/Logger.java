@@ -53,11 +53,16 @@ public final class Logger {
   }
 
   /**
-   * Directly prints the following line.
+   * Directly prints the following line. Lines are printed to the standard output until the logger
+   * is initialized, such as when the library is used outside of a plugin.
    *
    * @param line to print
    */
   private static synchronized void directPrint(@NotNull final String line) {
+    if (LOGGER == null) {
+      System.out.print(line);
+      return;
+    }
     LOGGER.write(line);
     LOGGER.flush();
   }
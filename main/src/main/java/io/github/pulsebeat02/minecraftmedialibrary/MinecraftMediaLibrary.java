@@ -2,6 +2,8 @@ package io.github.pulsebeat02.minecraftmedialibrary;
 
 import io.github.pulsebeat02.minecraftmedialibrary.analysis.Diagnostic;
 import io.github.pulsebeat02.minecraftmedialibrary.analysis.SystemDiagnostics;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupCache;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
 import io.github.pulsebeat02.minecraftmedialibrary.listener.RegistrationListener;
 import io.github.pulsebeat02.minecraftmedialibrary.nms.PacketHandler;
 import io.github.pulsebeat02.minecraftmedialibrary.reflect.NMSReflectionHandler;
@@ -78,6 +80,9 @@ public final class MinecraftMediaLibrary implements MediaLibraryCore {
 
     Logger.init(this);
 
+    DitherLookupCache.setDirectory(this.libraryPath.resolve("dither"));
+    DitherLookupUtil.init();
+
     this.registrationListener = new RegistrationListener(this);
     this.diagnostics = new SystemDiagnostics(this);
 
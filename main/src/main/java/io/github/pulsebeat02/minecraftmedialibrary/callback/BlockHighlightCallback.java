@@ -2,6 +2,7 @@ package io.github.pulsebeat02.minecraftmedialibrary.callback;
 
 import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
 import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
+import java.util.Arrays;
 import java.util.UUID;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
@@ -9,7 +10,12 @@ import org.jetbrains.annotations.NotNull;
 public class BlockHighlightCallback extends FrameCallback
     implements BlockHighlightCallbackDispatcher {
 
+  // markers outlive frames, unchanged pixels are only sent again before their marker disappears
+  private static final int MARKER_LIFETIME_MS = 2000;
+
   private final Location location;
+  private final int[] colors;
+  private final long[] sent;
 
   public BlockHighlightCallback(
       @NotNull final MediaLibraryCore core,
@@ -20,6 +26,8 @@ public class BlockHighlightCallback extends FrameCallback
       final int delay) {
     super(core, viewers, dimension, blockWidth, delay);
     this.location = location;
+    this.colors = new int[dimension.getWidth() * dimension.getHeight()];
+    this.sent = new long[this.colors.length];
   }
 
   @Override
@@ -31,16 +39,39 @@ public class BlockHighlightCallback extends FrameCallback
       final ImmutableDimension dimension = getDimensions();
       final int width = dimension.getWidth();
       final int height = dimension.getHeight();
+      final int lifetime = Math.max(MARKER_LIFETIME_MS, delay + 100);
+      final int left = (int) (this.location.getX() - (width / 2D));
+      final int top = (int) (this.location.getY() + (height / 2D));
+      final int z = (int) this.location.getZ();
+      final int[] positions = new int[this.colors.length * 3];
+      final int[] colors = new int[this.colors.length];
+      final int[] indices = new int[this.colors.length];
+      int count = 0;
       for (int y = 0; y < height; y++) {
         for (int x = 0; x < width; x++) {
-          getPacketHandler()
-              .displayDebugMarker(
-                  getViewers(),
-                  (int) (this.location.getX() - (width / 2D)) + x,
-                  (int) (this.location.getY() + (height / 2D)) - y,
-                  (int) this.location.getZ(),
-                  data[width * y + x],
-                  delay + 100);
+          final int index = width * y + x;
+          final int color = data[index];
+          if (color == this.colors[index] && time - this.sent[index] < lifetime / 2) {
+            continue;
+          }
+          indices[count] = index;
+          positions[count * 3] = left + x;
+          positions[count * 3 + 1] = top - y;
+          positions[count * 3 + 2] = z;
+          colors[count++] = color;
+        }
+      }
+      // a batch a viewer was skipped for is sent again with the next frame
+      if (getPacketHandler()
+          .displayDebugMarkers(
+              getViewers(),
+              Arrays.copyOf(positions, count * 3),
+              Arrays.copyOf(colors, count),
+              lifetime)) {
+        for (int i = 0; i < count; i++) {
+          final int index = indices[i];
+          this.colors[index] = colors[i];
+          this.sent[index] = time;
         }
       }
     }
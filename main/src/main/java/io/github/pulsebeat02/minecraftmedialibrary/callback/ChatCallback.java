@@ -2,21 +2,13 @@ package io.github.pulsebeat02.minecraftmedialibrary.callback;
 
 import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
 import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Set;
 import java.util.UUID;
-import java.util.WeakHashMap;
-import java.util.stream.Collectors;
-import net.md_5.bungee.api.ChatColor;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 public class ChatCallback extends FrameCallback implements ChatCallbackDispatcher {
 
-  private final Set<Player> players;
   private final String character;
+  private volatile ChatRowEncoder encoder;
 
   public ChatCallback(
       @NotNull final MediaLibraryCore core,
@@ -27,9 +19,7 @@ public class ChatCallback extends FrameCallback implements ChatCallbackDispatche
       final int delay) {
     super(core, viewers, dimension, blockWidth, delay);
     this.character = character;
-    this.players = Collections.newSetFromMap(new WeakHashMap<>());
-    this.players.addAll(
-        Arrays.stream(getViewers()).map(Bukkit::getPlayer).collect(Collectors.toList()));
+    this.encoder = new ChatRowEncoder(ChatRowEncoder.Format.JSON, character);
   }
 
   @Override
@@ -40,24 +30,25 @@ public class ChatCallback extends FrameCallback implements ChatCallbackDispatche
       final ImmutableDimension dimension = getDimensions();
       final int width = dimension.getWidth();
       final int height = dimension.getHeight();
+      final ChatRowEncoder encoder = this.encoder;
+      final String[] rows = new String[height];
       for (int y = 0; y < height; ++y) {
-        int before = -1;
-        final StringBuilder msg = new StringBuilder();
-        for (int x = 0; x < width; ++x) {
-          final int rgb = data[width * y + x];
-          if (before != rgb) {
-            msg.append(ChatColor.of("#" + String.format("%08x", rgb).substring(2)));
-          }
-          msg.append(this.character);
-          before = rgb;
-        }
-        for (final Player player : this.players) {
-          player.sendMessage(msg.toString());
-        }
+        rows[y] = encoder.encode(data, width * y, width);
       }
+      getPacketHandler().displayChat(getViewers(), rows);
     }
   }
 
+  /**
+   * Sets how many bits of every color channel are kept. Fewer bits merge more pixels into one
+   * colored run, so rows get shorter at the cost of color banding.
+   *
+   * @param colorDepth the bits per channel, from 1 to 8
+   */
+  public void setColorDepth(final int colorDepth) {
+    this.encoder = new ChatRowEncoder(ChatRowEncoder.Format.JSON, this.character, colorDepth);
+  }
+
   @Override
   public @NotNull String getChatCharacter() {
     return this.character;
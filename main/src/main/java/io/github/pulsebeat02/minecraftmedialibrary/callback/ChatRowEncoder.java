@@ -0,0 +1,209 @@
+package io.github.pulsebeat02.minecraftmedialibrary.callback;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Encodes rows of pixels into colored text, as JSON text components which are sent as they are,
+ * or as legacy strings for Bukkit methods. Runs of equal colors share one color code, which is
+ * copied from a precomputed table into a reusable char buffer, so no formatting or color objects
+ * are involved. Colors can be quantized to fewer bits per channel, which merges more runs and
+ * shortens the rows. Rows which come back in later frames return the same pooled string.
+ *
+ * <p>Encoders are not thread-safe, every callback has its own.
+ */
+public final class ChatRowEncoder {
+
+  public static final int MAX_COLOR_DEPTH = 8;
+
+  private static final int MAX_POOLED_ROWS = 256;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static final char[] JSON_START = "{\"text\":\"\",\"extra\":[".toCharArray();
+  private static final char[] JSON_END = "]}".toCharArray();
+  private static final char[] JSON_RUN_START = "{\"text\":\"".toCharArray();
+  private static final char[] JSON_RUN_COLOR = "\",\"color\":\"#".toCharArray();
+  private static final char[] JSON_RUN_END = "\"}".toCharArray();
+  private static final char[] LEGACY_HEX = {'§', 'x'};
+
+  private final Format format;
+  private final char[] character;
+  private final int[] quantized;
+  private final char[][] codes;
+  private final Map<Long, String> pool;
+
+  private char[] buffer;
+
+  /**
+   * Creates an encoder with full colors.
+   *
+   * @param format the format of the rows
+   * @param character the text of a pixel
+   */
+  public ChatRowEncoder(@NotNull final Format format, @NotNull final String character) {
+    this(format, character, MAX_COLOR_DEPTH);
+  }
+
+  /**
+   * Creates an encoder.
+   *
+   * @param format the format of the rows
+   * @param character the text of a pixel
+   * @param colorDepth the bits kept of every color channel, from 1 to 8
+   */
+  public ChatRowEncoder(
+      @NotNull final Format format, @NotNull final String character, final int colorDepth) {
+    Preconditions.checkArgument(!character.isEmpty(), "Character must not be empty!");
+    Preconditions.checkArgument(
+        colorDepth >= 1 && colorDepth <= MAX_COLOR_DEPTH, "Color depth must be from 1 to 8!");
+    this.format = format;
+    this.character = (format == Format.JSON ? escape(character) : character).toCharArray();
+    this.quantized = getQuantizedChannels(colorDepth);
+    this.codes = getChannelCodes(format);
+    this.pool =
+        new LinkedHashMap<Long, String>(64, 0.75f, true) {
+          private static final long serialVersionUID = -6044393658102817405L;
+
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<Long, String> eldest) {
+            return size() > MAX_POOLED_ROWS;
+          }
+        };
+    this.buffer = new char[256];
+  }
+
+  /**
+   * Encodes a row of pixels.
+   *
+   * @param data the pixels of the frame
+   * @param offset the index of the first pixel of the row
+   * @param width the width of the row
+   * @return the encoded row
+   */
+  @NotNull
+  public String encode(@NotNull final int[] data, final int offset, final int width) {
+    final int end = offset + width;
+    long hash = 0xCBF29CE484222325L ^ width;
+    for (int i = offset; i < end; i++) {
+      hash = (hash ^ quantize(data[i])) * 0x100000001B3L;
+    }
+    final String pooled = this.pool.get(hash);
+    if (pooled != null) {
+      return pooled;
+    }
+
+    int length = 0;
+    if (this.format == Format.JSON) {
+      length = append(length, JSON_START);
+    }
+    int start = offset;
+    while (start < end) {
+      final int color = quantize(data[start]);
+      int run = start + 1;
+      while (run < end && quantize(data[run]) == color) {
+        run++;
+      }
+      if (this.format == Format.JSON) {
+        if (start != offset) {
+          length = append(length, ',');
+        }
+        length = append(length, JSON_RUN_START);
+        length = appendPixels(length, run - start);
+        length = append(length, JSON_RUN_COLOR);
+        length = appendColor(length, color);
+        length = append(length, JSON_RUN_END);
+      } else {
+        length = append(length, LEGACY_HEX);
+        length = appendColor(length, color);
+        length = appendPixels(length, run - start);
+      }
+      start = run;
+    }
+    if (this.format == Format.JSON) {
+      length = append(length, JSON_END);
+    }
+    final String row = new String(this.buffer, 0, length);
+    this.pool.put(hash, row);
+    return row;
+  }
+
+  private int quantize(final int rgb) {
+    final int[] quantized = this.quantized;
+    return quantized[rgb >>> 16 & 0xFF] << 16
+        | quantized[rgb >>> 8 & 0xFF] << 8
+        | quantized[rgb & 0xFF];
+  }
+
+  private int appendColor(final int length, final int color) {
+    final int written = append(length, this.codes[color >>> 16]);
+    return append(append(written, this.codes[color >>> 8 & 0xFF]), this.codes[color & 0xFF]);
+  }
+
+  private int appendPixels(final int length, final int count) {
+    int written = length;
+    for (int i = 0; i < count; i++) {
+      written = append(written, this.character);
+    }
+    return written;
+  }
+
+  private int append(final int length, final char[] chars) {
+    ensureCapacity(length + chars.length);
+    System.arraycopy(chars, 0, this.buffer, length, chars.length);
+    return length + chars.length;
+  }
+
+  private int append(final int length, final char c) {
+    ensureCapacity(length + 1);
+    this.buffer[length] = c;
+    return length + 1;
+  }
+
+  private void ensureCapacity(final int capacity) {
+    if (capacity > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, Math.max(capacity, this.buffer.length << 1));
+    }
+  }
+
+  // channel values rounded down to the depth, with the kept bits repeated so white stays white
+  private static int[] getQuantizedChannels(final int depth) {
+    final int[] channels = new int[256];
+    for (int i = 0; i < 256; i++) {
+      final int kept = i >>> (8 - depth);
+      int value = 0;
+      for (int shift = 8 - depth; shift > -depth; shift -= depth) {
+        value |= shift >= 0 ? kept << shift : kept >>> -shift;
+      }
+      channels[i] = value;
+    }
+    return channels;
+  }
+
+  private static char[][] getChannelCodes(final Format format) {
+    final char[][] codes = new char[256][];
+    for (int i = 0; i < 256; i++) {
+      final char high = HEX[i >>> 4];
+      final char low = HEX[i & 0xF];
+      codes[i] = format == Format.JSON ? new char[] {high, low} : new char[] {'§', high, '§', low};
+    }
+    return codes;
+  }
+
+  private static String escape(final String text) {
+    return text.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  @NotNull
+  public Format getFormat() {
+    return this.format;
+  }
+
+  public enum Format {
+    /** A JSON text component, for packets. */
+    JSON,
+    /** A string with legacy hex color codes, for Bukkit methods. */
+    LEGACY
+  }
+}
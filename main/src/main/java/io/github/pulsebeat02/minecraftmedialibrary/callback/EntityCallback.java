@@ -108,7 +108,14 @@ public class EntityCallback extends FrameCallback implements EntityCallbackDispa
   }
 
   @Override
-  public void process(final int[] data) {}
+  public void process(final int[] data) {
+    final long time = System.currentTimeMillis();
+    if (time - getLastUpdated() >= getFrameDelay()) {
+      setLastUpdated(time);
+      getPacketHandler()
+          .displayEntities(getViewers(), this.entities, data, getDimensions().getWidth());
+    }
+  }
 
   @Override
   public @NotNull Entity[] getEntities() {
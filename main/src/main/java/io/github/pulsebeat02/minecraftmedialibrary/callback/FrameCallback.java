@@ -3,7 +3,10 @@ package io.github.pulsebeat02.minecraftmedialibrary.callback;
 import com.google.common.base.Preconditions;
 import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
 import io.github.pulsebeat02.minecraftmedialibrary.nms.PacketHandler;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.FrameStage;
 import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import org.jetbrains.annotations.NotNull;
 
@@ -37,6 +40,34 @@ public abstract class FrameCallback implements Callback {
     this.delay = delay;
   }
 
+  /**
+   * Gets the stages this callback is split into when frames run through a {@link
+   * io.github.pulsebeat02.minecraftmedialibrary.pipeline.FramePipeline}. By default the whole of
+   * {@link #process(int[])} is a single stage.
+   *
+   * @return the stages in order
+   */
+  @NotNull
+  public List<FrameStage> getStages() {
+    return Collections.singletonList(
+        frame -> {
+          process(frame.getPixels());
+          return true;
+        });
+  }
+
+  /**
+   * Gets whether the first stage reads frames straight from {@link
+   * io.github.pulsebeat02.minecraftmedialibrary.pipeline.VideoFrame#getSource()}. Players then run
+   * it on their native frame buffer without copying the frame, instead of copying every frame into
+   * the pipeline.
+   *
+   * @return whether the first stage reads the source buffer
+   */
+  public boolean isReadingSource() {
+    return false;
+  }
+
   @Override
   public int getBlockWidth() {
     return this.blockWidth;
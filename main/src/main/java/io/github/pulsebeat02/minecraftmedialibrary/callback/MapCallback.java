@@ -1,16 +1,33 @@
 package io.github.pulsebeat02.minecraftmedialibrary.callback;
 
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
 import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
 import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherBufferPool;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.FrameStage;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.VideoFrame;
 import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
+import io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class MapCallback extends FrameCallback implements MapCallbackDispatcher {
 
+  private static final int BUFFER_POOL_SIZE = 3;
+
   private final DitherAlgorithm algorithm;
+  private final DitherBufferPool buffers;
+  private final DitherContext context;
   private final int map;
 
+  private volatile DitheredVideoWriter recorder;
+
   public MapCallback(
       @NotNull final MediaLibraryCore core,
       final UUID[] viewers,
@@ -21,27 +38,76 @@ public class MapCallback extends FrameCallback implements MapCallbackDispatcher
       final int delay) {
     super(core, viewers, dimension, blockWidth, delay);
     this.algorithm = algorithm;
+    this.buffers = new DitherBufferPool(BUFFER_POOL_SIZE, true);
+    this.context = new DitherContext();
     this.map = map;
   }
 
   @Override
   public void process(final int[] data) {
     final long time = System.currentTimeMillis();
-    final ImmutableDimension dimension = getDimensions();
     if (time - getLastUpdated() >= getFrameDelay()) {
       setLastUpdated(time);
-      final int width = getBlockWidth();
-      getPacketHandler()
-          .displayMaps(
-              getViewers(),
-              this.map,
-              dimension.getWidth(),
-              getDimensions().getHeight(),
-              this.algorithm.ditherIntoMinecraft(data, width),
-              width);
+      final ByteBuffer buffer = this.buffers.next(data.length);
+      this.algorithm.ditherIntoMinecraft(data, getBlockWidth(), buffer, this.context);
+      record(buffer);
+      display(buffer);
     }
   }
 
+  @Override
+  public @NotNull List<FrameStage> getStages() {
+    return Arrays.asList(this::dither, this::send);
+  }
+
+  private boolean dither(@NotNull final VideoFrame frame) {
+    final long time = System.currentTimeMillis();
+    if (time - getLastUpdated() < getFrameDelay()) {
+      return false;
+    }
+    setLastUpdated(time);
+    final int[] pixels = frame.getPixels();
+    final ByteBuffer buffer = frame.getData(pixels.length);
+    this.algorithm.ditherIntoMinecraft(pixels, getBlockWidth(), buffer, this.context);
+    return true;
+  }
+
+  private boolean send(@NotNull final VideoFrame frame) {
+    final ByteBuffer data = frame.getData();
+    record(data);
+    display(data);
+    return true;
+  }
+
+  private void record(@NotNull final ByteBuffer data) {
+    final DitheredVideoWriter recorder = this.recorder;
+    if (recorder == null) {
+      return;
+    }
+    try {
+      recorder.write(data, System.nanoTime());
+    } catch (final IllegalStateException e) {
+      // closed by the caller while frames were still in flight
+      this.recorder = null;
+    } catch (final IOException e) {
+      Logger.warn(String.format("Failed to record dithered video: %s", e.getMessage()));
+      recorder.abort();
+      this.recorder = null;
+    }
+  }
+
+  private void display(@NotNull final ByteBuffer buffer) {
+    final ImmutableDimension dimension = getDimensions();
+    getPacketHandler()
+        .displayMaps(
+            getViewers(),
+            this.map,
+            dimension.getWidth(),
+            dimension.getHeight(),
+            buffer,
+            getBlockWidth());
+  }
+
   @Override
   public long getMapId() {
     return this.map;
@@ -51,4 +117,35 @@ public class MapCallback extends FrameCallback implements MapCallbackDispatcher
   public @NotNull DitherAlgorithm getAlgorithm() {
     return this.algorithm;
   }
+
+  /**
+   * Gets the context frames of this callback are dithered with, for example to turn on temporal
+   * dithering with {@link DitherContext#setTemporalTolerance(int)}.
+   *
+   * @return the dither context
+   */
+  public @NotNull DitherContext getContext() {
+    return this.context;
+  }
+
+  /**
+   * Sets a writer every frame sent to the maps is also written to, so the video can be played back
+   * from a {@link io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoCache} later
+   * without dithering it again. Frames are written at the time they were sent, so frames skipped
+   * by the frame delay or dropped under load are filled by repeating the frame viewers saw
+   * instead, and the recording keeps the timing of playback at the writer's frame rate. Pauses
+   * longer than {@link DitheredVideoWriter#MAXIMUM_GAP} are left out of the recording. The writer
+   * must be as wide as the block width, and is closed by the caller once playback ends.
+   * Recording stops if a frame cannot be written.
+   *
+   * @param recorder the writer, or null to stop recording
+   */
+  public void setRecorder(@Nullable final DitheredVideoWriter recorder) {
+    this.recorder = recorder;
+  }
+
+  @Nullable
+  public DitheredVideoWriter getRecorder() {
+    return this.recorder;
+  }
 }
@@ -0,0 +1,160 @@
+package io.github.pulsebeat02.minecraftmedialibrary.callback;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.MapTileRenderer;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm.FilterLiteDither;
+import io.github.pulsebeat02.minecraftmedialibrary.nms.MapTile;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.FrameStage;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.VideoFrame;
+import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A map callback which scales, dithers and cuts frames into map tiles in one pass with a {@link
+ * MapTileRenderer}. Frames can be larger than the video on the maps, so the player may hand over
+ * frames at the size of the source and leave the scaling to the callback. The video is the block
+ * width wide and keeps the aspect ratio of the frames, and is dithered with Filter Lite.
+ */
+public class MapTileCallback extends FrameCallback implements MapCallbackDispatcher {
+
+  private final DitherAlgorithm algorithm;
+  private final MapTileRenderer renderer;
+  private final DitherContext context;
+  private final int sourceWidth;
+  private final int map;
+
+  public MapTileCallback(
+      @NotNull final MediaLibraryCore core,
+      final UUID[] viewers,
+      final int map,
+      @NotNull final ImmutableDimension dimension,
+      final int blockWidth,
+      final int sourceWidth,
+      final int delay) {
+    this(
+        core,
+        viewers,
+        DitherLookupUtil.DEFAULT_TABLE,
+        map,
+        dimension,
+        blockWidth,
+        sourceWidth,
+        delay);
+  }
+
+  /**
+   * Creates a callback.
+   *
+   * @param core the core
+   * @param viewers the viewers, or null for every player
+   * @param table the lookup table
+   * @param map the id of the top left map
+   * @param dimension the width and height of the wall in maps
+   * @param blockWidth the width of the video on the maps in pixels
+   * @param sourceWidth the width of the frames passed to the callback
+   * @param delay the delay between frames
+   */
+  public MapTileCallback(
+      @NotNull final MediaLibraryCore core,
+      final UUID[] viewers,
+      @NotNull final DitherLookupTable table,
+      final int map,
+      @NotNull final ImmutableDimension dimension,
+      final int blockWidth,
+      final int sourceWidth,
+      final int delay) {
+    super(core, viewers, dimension, blockWidth, delay);
+    Preconditions.checkArgument(blockWidth > 0, "Block width must be greater than 0!");
+    Preconditions.checkArgument(sourceWidth > 0, "Source width must be greater than 0!");
+    this.algorithm = new FilterLiteDither(table);
+    this.renderer = new MapTileRenderer(table, dimension.getWidth(), dimension.getHeight());
+    this.context = new DitherContext();
+    this.sourceWidth = sourceWidth;
+    this.map = map;
+  }
+
+  @Override
+  public void process(final int[] data) {
+    final long time = System.currentTimeMillis();
+    if (time - getLastUpdated() >= getFrameDelay()) {
+      setLastUpdated(time);
+      display(render(data, this.sourceWidth));
+    }
+  }
+
+  @Override
+  public @NotNull List<FrameStage> getStages() {
+    return Arrays.asList(this::render, this::send);
+  }
+
+  @Override
+  public boolean isReadingSource() {
+    return true;
+  }
+
+  private boolean render(@NotNull final VideoFrame frame) {
+    final long time = System.currentTimeMillis();
+    if (time - getLastUpdated() < getFrameDelay()) {
+      return false;
+    }
+    setLastUpdated(time);
+    final IntBuffer source = frame.getSource();
+    if (source != null) {
+      // native frames are read a row at a time, without copying the whole frame first
+      final int width = frame.getWidth();
+      final int videoHeight = getVideoHeight(source.remaining() / width, width);
+      frame.setTiles(
+          this.renderer.render(source, width, getBlockWidth(), videoHeight, this.context));
+    } else {
+      frame.setTiles(render(frame.getPixels(), frame.getWidth()));
+    }
+    return true;
+  }
+
+  private boolean send(@NotNull final VideoFrame frame) {
+    display(frame.getTiles());
+    return true;
+  }
+
+  private MapTile @NotNull [] render(final int @NotNull [] data, final int width) {
+    final int videoHeight = getVideoHeight(data.length / width, width);
+    return this.renderer.render(data, width, getBlockWidth(), videoHeight, this.context);
+  }
+
+  private int getVideoHeight(final int height, final int width) {
+    return Math.max(1, (int) ((long) height * getBlockWidth() / width));
+  }
+
+  private void display(final MapTile @NotNull [] tiles) {
+    getPacketHandler().displayMapTiles(getViewers(), this.map, getDimensions().getWidth(), tiles);
+  }
+
+  @Override
+  public long getMapId() {
+    return this.map;
+  }
+
+  /**
+   * Gets a {@link FilterLiteDither} with the lookup table of this callback, which dithers frames
+   * of the video size into the same colors as the callback.
+   *
+   * @return the dither algorithm
+   */
+  @Override
+  public @NotNull DitherAlgorithm getAlgorithm() {
+    return this.algorithm;
+  }
+
+  public int getSourceWidth() {
+    return this.sourceWidth;
+  }
+}
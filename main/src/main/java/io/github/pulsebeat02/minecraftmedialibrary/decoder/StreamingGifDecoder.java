@@ -0,0 +1,617 @@
+package io.github.pulsebeat02.minecraftmedialibrary.decoder;
+
+import com.google.common.base.Preconditions;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decodes a gif one frame at a time while reading it, unlike the {@link GifDecoder} which reads the
+ * whole file and keeps every frame it drew. Blocks are parsed from the channel when the next frame
+ * is asked for, and frames are drawn onto a single canvas which is reused for every frame. Besides
+ * the canvas, only the part of the canvas a frame restores when it is disposed is kept, so memory
+ * depends on the size of the gif rather than its length. Frames can additionally be cached, to seek
+ * back without decoding the gif from the start again.
+ *
+ * <p>Decoders are not thread-safe.
+ */
+public final class StreamingGifDecoder implements Closeable {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_CODES = 4096;
+  private static final int DISPOSE_BACKGROUND = 2;
+  private static final int DISPOSE_PREVIOUS = 3;
+
+  private final SeekableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final int width;
+  private final int height;
+  private final int[] globalColors;
+  private final int backgroundIndex;
+  private final long firstBlock;
+  private final BufferedImage image;
+  private final int[] canvas;
+  private final int[] restore;
+  private final int[] localColors;
+  private final short[] prefix;
+  private final byte[] suffix;
+  private final short[] lengths;
+  private final Map<Integer, int[]> cache;
+
+  private byte[] indices;
+  private int frameCount;
+  private int repetitions;
+  private int frame;
+  private int delay;
+
+  // graphic control of the next image
+  private int nextDisposal;
+  private int nextDelay;
+  private int transparentIndex;
+
+  // how the current frame is disposed of before the next frame is drawn
+  private int disposal;
+  private int disposalX;
+  private int disposalY;
+  private int disposalWidth;
+  private int disposalHeight;
+
+  // data sub-block being read by the lzw decoder
+  private int blockRemaining;
+  private boolean dataEnded;
+
+  /**
+   * Creates a decoder, reading the header of the gif and counting its frames.
+   *
+   * @param channel the channel of the gif, positioned at its start
+   * @param cachedFrames how many of the most recently decoded frames are kept, 0 for none
+   * @throws IOException if the channel cannot be read or is not a gif
+   */
+  public StreamingGifDecoder(@NotNull final SeekableByteChannel channel, final int cachedFrames)
+      throws IOException {
+    Preconditions.checkArgument(
+        cachedFrames >= 0, "Cached frames must be greater than or equal to 0!");
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.buffer.flip();
+    final byte[] header = new byte[6];
+    readFully(header);
+    final String version = new String(header, StandardCharsets.US_ASCII);
+    if (!version.equals("GIF87a") && !version.equals("GIF89a")) {
+      throw new IOException("Invalid GIF header.");
+    }
+    this.width = readShort();
+    this.height = readShort();
+    final int packed = readByte();
+    this.backgroundIndex = readByte();
+    skip(1); // pixel aspect ratio
+    if ((packed & 0x80) != 0) {
+      this.globalColors = new int[256];
+      readColorTable(this.globalColors, 2 << (packed & 7));
+    } else {
+      this.globalColors = null;
+    }
+    this.firstBlock = getPosition();
+    this.image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
+    this.canvas = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+    this.restore = new int[this.canvas.length];
+    this.indices = new byte[this.canvas.length + MAX_CODES];
+    this.localColors = new int[256];
+    this.prefix = new short[MAX_CODES];
+    this.suffix = new byte[MAX_CODES];
+    this.lengths = new short[MAX_CODES];
+    this.cache = cachedFrames == 0 ? null : createCache(cachedFrames);
+    scan();
+    rewind();
+  }
+
+  /**
+   * Opens a gif file.
+   *
+   * @param file the file
+   * @param cachedFrames how many of the most recently decoded frames are kept, 0 for none
+   * @return the decoder
+   * @throws IOException if the file cannot be read or is not a gif
+   */
+  @NotNull
+  public static StreamingGifDecoder open(@NotNull final Path file, final int cachedFrames)
+      throws IOException {
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new StreamingGifDecoder(channel, cachedFrames);
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Decodes the next frame onto the canvas.
+   *
+   * @return false if the gif has no more frames
+   * @throws IOException if the gif cannot be read
+   */
+  public boolean next() throws IOException {
+    while (true) {
+      final int block = readByteOrEnd();
+      switch (block) {
+        case 0x21: // Extension introducer
+          readExtension();
+          break;
+        case 0x2C: // Image descriptor
+          dispose();
+          readImage();
+          this.frame++;
+          if (this.cache != null) {
+            this.cache.put(this.frame, this.canvas.clone());
+          }
+          return true;
+        case 0x3B: // Trailer
+        case -1: // Truncated, the frames so far are intact
+          return false;
+        default:
+          throw new IOException("Unknown block at: " + (getPosition() - 1));
+      }
+    }
+  }
+
+  /**
+   * Gets a frame, decoding the gif from the start again if the frame was already passed and is not
+   * cached. The returned pixels must not be modified, and are only valid until the next frame is
+   * decoded unless they came from the cache.
+   *
+   * @param index the index of the frame
+   * @return the ARGB pixels of the frame
+   * @throws IOException if the gif cannot be read
+   */
+  @NotNull
+  public int[] getFrame(final int index) throws IOException {
+    Preconditions.checkElementIndex(index, this.frameCount, "Frame");
+    if (index == this.frame) {
+      return this.canvas;
+    }
+    if (this.cache != null) {
+      final int[] cached = this.cache.get(index);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    if (index < this.frame) {
+      rewind();
+    }
+    while (this.frame < index) {
+      if (!next()) {
+        throw new IOException(String.format("Frame %d is missing!", index));
+      }
+    }
+    return this.canvas;
+  }
+
+  /**
+   * Goes back to the start of the gif, so the next frame is the first frame.
+   *
+   * @throws IOException if the channel cannot be positioned
+   */
+  public void rewind() throws IOException {
+    seek(this.firstBlock);
+    Arrays.fill(this.canvas, 0);
+    this.frame = -1;
+    this.delay = 0;
+    this.disposal = 0;
+    resetGraphicControl();
+  }
+
+  private void readExtension() throws IOException {
+    if (readByte() != 0xF9) {
+      skipSubBlocks();
+      return;
+    }
+    final int size = readByte();
+    final int packed = readByte();
+    this.nextDisposal = (packed & 0b00011100) >>> 2;
+    this.nextDelay = readShort();
+    final int transparent = readByte();
+    this.transparentIndex = (packed & 1) != 0 ? transparent : -1;
+    skip(size - 4);
+    skipSubBlocks();
+  }
+
+  private void readImage() throws IOException {
+    final int x = readShort();
+    final int y = readShort();
+    final int w = readShort();
+    final int h = readShort();
+    final int packed = readByte();
+    int[] colors = this.globalColors;
+    int colorCount = colors == null ? 0 : colors.length;
+    if ((packed & 0x80) != 0) {
+      colorCount = 2 << (packed & 7);
+      readColorTable(this.localColors, colorCount);
+      colors = this.localColors;
+    }
+    final boolean interlaced = (packed & 0x40) != 0;
+
+    // only the part of the frame inside the canvas is drawn and disposed of
+    final int left = Math.min(x, this.width);
+    final int top = Math.min(y, this.height);
+    final int right = Math.min(x + w, this.width);
+    final int bottom = Math.min(y + h, this.height);
+    this.disposal = this.nextDisposal;
+    this.disposalX = left;
+    this.disposalY = top;
+    this.disposalWidth = right - left;
+    this.disposalHeight = bottom - top;
+    if (this.disposal == DISPOSE_PREVIOUS) {
+      copyArea(this.canvas, this.width, this.restore, this.disposalWidth, true);
+    }
+
+    final int decoded = decode(w * h);
+    final int transparent = this.transparentIndex;
+    int pass = 0;
+    int step = interlaced ? 8 : 1;
+    int line = 0;
+    for (int row = 0; row < h && row * w < decoded; row++) {
+      while (line >= h) {
+        // interlaced rows are stored in four passes
+        pass++;
+        line = 8 >>> pass;
+        step = line << 1;
+      }
+      final int canvasY = y + line;
+      line += step;
+      if (canvasY >= bottom || colors == null) {
+        continue;
+      }
+      final int source = row * w;
+      final int end = Math.min(right - x, decoded - source);
+      final int target = canvasY * this.width + x;
+      for (int column = 0; column < end; column++) {
+        final int index = this.indices[source + column] & 0xFF;
+        if (index != transparent && index < colorCount) {
+          this.canvas[target + column] = colors[index];
+        }
+      }
+    }
+    this.delay = this.nextDelay;
+    resetGraphicControl();
+  }
+
+  // lzw decodes the color indices of an image into the index buffer, returns how many were decoded
+  private int decode(final int pixels) throws IOException {
+    // a string may run past the last pixel of a broken image, the buffer has room for the longest
+    if (this.indices.length < pixels + MAX_CODES) {
+      this.indices = new byte[pixels + MAX_CODES];
+    }
+    final byte[] indices = this.indices;
+    final short[] prefix = this.prefix;
+    final byte[] suffix = this.suffix;
+    final short[] lengths = this.lengths;
+    final int minCodeSize = readByte();
+    final int clear = 1 << minCodeSize;
+    final int end = clear + 1;
+    for (int code = 0; code < clear; code++) {
+      suffix[code] = (byte) code;
+      lengths[code] = 1;
+    }
+    this.blockRemaining = 0;
+    this.dataEnded = false;
+
+    int codeSize = minCodeSize + 1;
+    int codeMask = (1 << codeSize) - 1;
+    int available = clear + 2;
+    int old = -1;
+    int bits = 0;
+    int datum = 0;
+    int decoded = 0;
+    while (decoded < pixels) {
+      if (bits < codeSize) {
+        final int data = readDataByte();
+        if (data < 0) {
+          break;
+        }
+        datum |= data << bits;
+        bits += 8;
+        continue;
+      }
+      final int code = datum & codeMask;
+      datum >>>= codeSize;
+      bits -= codeSize;
+      if (code == clear) {
+        codeSize = minCodeSize + 1;
+        codeMask = (1 << codeSize) - 1;
+        available = clear + 2;
+        old = -1;
+        continue;
+      }
+      if (code > available || code == end || (old == -1 && code >= clear)) {
+        break;
+      }
+      if (old == -1) {
+        indices[decoded++] = suffix[code];
+        old = code;
+        continue;
+      }
+
+      // strings are written backwards from their last index, following the prefixes
+      final boolean known = code < available;
+      int string = known ? code : old;
+      final int length = lengths[string];
+      for (int i = decoded + length - 1; i >= decoded; i--) {
+        indices[i] = suffix[string];
+        string = prefix[string];
+      }
+      final byte first = indices[decoded];
+      if (!known) {
+        indices[decoded + length] = first;
+      }
+      if (available < MAX_CODES) {
+        prefix[available] = (short) old;
+        suffix[available] = first;
+        lengths[available] = (short) (lengths[old] + 1);
+        available++;
+        if ((available & codeMask) == 0 && available < MAX_CODES) {
+          codeSize++;
+          codeMask += available;
+        }
+      }
+      decoded += known ? length : length + 1;
+      old = code;
+    }
+    if (!this.dataEnded) {
+      skip(this.blockRemaining);
+      skipSubBlocks();
+    }
+    return Math.min(decoded, pixels);
+  }
+
+  private int readDataByte() throws IOException {
+    if (this.blockRemaining == 0) {
+      final int size = this.dataEnded ? -1 : readByteOrEnd();
+      if (size <= 0) {
+        this.dataEnded = true;
+        return -1;
+      }
+      this.blockRemaining = size;
+    }
+    this.blockRemaining--;
+    final int data = readByteOrEnd();
+    if (data < 0) {
+      this.dataEnded = true;
+    }
+    return data;
+  }
+
+  private void dispose() {
+    if (this.disposal == DISPOSE_BACKGROUND) {
+      // like most browsers, the area becomes transparent rather than the background color
+      for (int row = 0; row < this.disposalHeight; row++) {
+        final int start = (this.disposalY + row) * this.width + this.disposalX;
+        Arrays.fill(this.canvas, start, start + this.disposalWidth, 0);
+      }
+    } else if (this.disposal == DISPOSE_PREVIOUS) {
+      copyArea(this.canvas, this.width, this.restore, this.disposalWidth, false);
+    }
+    this.disposal = 0;
+  }
+
+  // copies the disposal area between the canvas and a compact array, in either direction
+  private void copyArea(
+      final int[] canvas,
+      final int canvasWidth,
+      final int[] area,
+      final int areaWidth,
+      final boolean save) {
+    for (int row = 0; row < this.disposalHeight; row++) {
+      final int start = (this.disposalY + row) * canvasWidth + this.disposalX;
+      if (save) {
+        System.arraycopy(canvas, start, area, row * areaWidth, areaWidth);
+      } else {
+        System.arraycopy(area, row * areaWidth, canvas, start, areaWidth);
+      }
+    }
+  }
+
+  private void resetGraphicControl() {
+    this.nextDisposal = 0;
+    this.nextDelay = 0;
+    this.transparentIndex = -1;
+  }
+
+  // counts the frames without decoding them, and reads the number of repetitions
+  private void scan() throws IOException {
+    int frames = 0;
+    while (true) {
+      final int block = readByteOrEnd();
+      if (block == 0x21) {
+        if (readByte() == 0xFF) {
+          readApplicationExtension();
+        } else {
+          skipSubBlocks();
+        }
+      } else if (block == 0x2C) {
+        skip(8);
+        final int packed = readByte();
+        if ((packed & 0x80) != 0) {
+          skip(3 * (2 << (packed & 7)));
+        }
+        skip(1); // lzw minimum code size
+        skipSubBlocks();
+        frames++;
+      } else {
+        break;
+      }
+    }
+    this.frameCount = frames;
+  }
+
+  private void readApplicationExtension() throws IOException {
+    final byte[] id = new byte[readByte()];
+    readFully(id);
+    final boolean netscape = new String(id, StandardCharsets.US_ASCII).equals("NETSCAPE2.0");
+    int size;
+    while ((size = readByteOrEnd()) > 0) {
+      if (netscape && size >= 3 && readByte() == 1) {
+        this.repetitions = readShort();
+        skip(size - 3);
+      } else {
+        skip(netscape && size >= 3 ? size - 1 : size);
+      }
+    }
+  }
+
+  private void readColorTable(final int[] colors, final int size) throws IOException {
+    for (int c = 0; c < size; c++) {
+      colors[c] = 0xFF000000 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+  }
+
+  private void skipSubBlocks() throws IOException {
+    int size;
+    while ((size = readByteOrEnd()) > 0) {
+      skip(size);
+    }
+  }
+
+  private int readShort() throws IOException {
+    return readByte() | readByte() << 8;
+  }
+
+  private int readByte() throws IOException {
+    final int value = readByteOrEnd();
+    if (value < 0) {
+      throw new EOFException("Unexpected end of file.");
+    }
+    return value;
+  }
+
+  private int readByteOrEnd() throws IOException {
+    if (!this.buffer.hasRemaining() && !fill()) {
+      return -1;
+    }
+    return this.buffer.get() & 0xFF;
+  }
+
+  private void readFully(final byte[] bytes) throws IOException {
+    int read = 0;
+    while (read < bytes.length) {
+      if (!this.buffer.hasRemaining() && !fill()) {
+        throw new EOFException("Unexpected end of file.");
+      }
+      final int length = Math.min(bytes.length - read, this.buffer.remaining());
+      this.buffer.get(bytes, read, length);
+      read += length;
+    }
+  }
+
+  private void skip(final int bytes) throws IOException {
+    if (bytes <= this.buffer.remaining()) {
+      this.buffer.position(this.buffer.position() + bytes);
+    } else {
+      seek(getPosition() + bytes);
+    }
+  }
+
+  private boolean fill() throws IOException {
+    this.buffer.clear();
+    int read;
+    do {
+      read = this.channel.read(this.buffer);
+    } while (read == 0);
+    this.buffer.flip();
+    return read > 0;
+  }
+
+  private long getPosition() throws IOException {
+    return this.channel.position() - this.buffer.remaining();
+  }
+
+  private void seek(final long position) throws IOException {
+    this.channel.position(position);
+    this.buffer.clear();
+    this.buffer.flip();
+  }
+
+  private static Map<Integer, int[]> createCache(final int size) {
+    return new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+      private static final long serialVersionUID = 2896305471327349614L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Integer, int[]> eldest) {
+        return size() > size;
+      }
+    };
+  }
+
+  /**
+   * Gets the canvas as an image. The image is drawn over by every frame decoded.
+   *
+   * @return the image of the current frame
+   */
+  @NotNull
+  public BufferedImage getImage() {
+    return this.image;
+  }
+
+  /**
+   * Gets the delay of the current frame.
+   *
+   * @return the delay in hundredths of a second
+   */
+  public int getDelay() {
+    return this.delay;
+  }
+
+  /**
+   * Gets the index of the frame last decoded.
+   *
+   * @return the index, or -1 before the first frame
+   */
+  public int getFrameIndex() {
+    return this.frame;
+  }
+
+  public int getFrameCount() {
+    return this.frameCount;
+  }
+
+  /**
+   * Gets how many times the gif repeats.
+   *
+   * @return the number of repetitions, 0 for forever
+   */
+  public int getRepetitions() {
+    return this.repetitions;
+  }
+
+  public int getBackgroundColor() {
+    if (this.globalColors != null && this.backgroundIndex < this.globalColors.length) {
+      return this.globalColors[this.backgroundIndex];
+    }
+    return 0;
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+}
@@ -0,0 +1,269 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A tileable blue noise threshold texture generated with Ulichney's void-and-cluster method. Every
+ * pixel holds its rank, so thresholding the texture at any level gives evenly spread points.
+ * Textures are generated once and cached next to the lookup tables of the {@link
+ * DitherLookupCache}.
+ *
+ * <p>File layout: magic, format version, texture size and then the rank of every pixel as shorts.
+ */
+public final class BlueNoiseTexture {
+
+  private static final int MAGIC = 0x4D4D4C42; // "MMLB"
+  private static final int FORMAT_VERSION = 2;
+  private static final int HEADER_LENGTH = 12;
+  private static final double SIGMA = 1.5;
+
+  // the gaussian is cut off at about three sigma, past which it is below a thousandth of its peak
+  private static final int RADIUS = 5;
+  private static final int KERNEL_WIDTH = 2 * RADIUS + 1;
+
+  private static final Map<Integer, BlueNoiseTexture> TEXTURES = new ConcurrentHashMap<>();
+
+  private final int size;
+  private final int[] ranks;
+
+  private BlueNoiseTexture(final int size, final int[] ranks) {
+    this.size = size;
+    this.ranks = ranks;
+  }
+
+  /**
+   * Gets the texture of the passed size, reading it from the disk cache or generating it the first
+   * time it is requested.
+   *
+   * @param size the width and height, a power of two between 16 and 128
+   * @return the texture
+   */
+  @NotNull
+  public static BlueNoiseTexture getTexture(final int size) {
+    Preconditions.checkArgument(
+        size >= 16 && size <= 128 && Integer.bitCount(size) == 1,
+        "Size must be a power of two between 16 and 128!");
+    return TEXTURES.computeIfAbsent(size, BlueNoiseTexture::loadTexture);
+  }
+
+  @NotNull
+  private static BlueNoiseTexture loadTexture(final int size) {
+    int[] ranks = load(size);
+    if (ranks == null) {
+      final long start = System.nanoTime();
+      ranks = generate(size);
+      Logger.info(
+          String.format(
+              "Blue noise texture of size %d generated in %s ms",
+              size, (System.nanoTime() - start) / 1_000_000.0));
+      save(size, ranks);
+    }
+    return new BlueNoiseTexture(size, ranks);
+  }
+
+  /**
+   * Runs void-and-cluster on a torus, so the texture tiles without seams. The seed is fixed, which
+   * keeps the texture identical between runs even when the cache is cleared.
+   *
+   * @param size the width and height
+   * @return the rank of every pixel
+   */
+  static int @NotNull [] generate(final int size) {
+    final int area = size * size;
+    final double[] kernel = new double[KERNEL_WIDTH * KERNEL_WIDTH];
+    for (int dy = -RADIUS; dy <= RADIUS; dy++) {
+      for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+        kernel[(dy + RADIUS) * KERNEL_WIDTH + dx + RADIUS] =
+            Math.exp(-(dx * dx + dy * dy) / (2 * SIGMA * SIGMA));
+      }
+    }
+
+    // initial pattern of random points, relaxed by moving the tightest cluster into the largest
+    // void until that moves a point back where it came from
+    final boolean[] pattern = new boolean[area];
+    final double[] energy = new double[area];
+    final Random random = new Random(size);
+    final int initial = area / 10;
+    for (int placed = 0; placed < initial; ) {
+      final int index = random.nextInt(area);
+      if (!pattern[index]) {
+        pattern[index] = true;
+        splat(energy, kernel, size, index, 1);
+        placed++;
+      }
+    }
+    for (int i = 0; i < area; i++) {
+      final int cluster = find(pattern, energy, true);
+      pattern[cluster] = false;
+      splat(energy, kernel, size, cluster, -1);
+      final int gap = find(pattern, energy, false);
+      pattern[gap] = true;
+      splat(energy, kernel, size, gap, 1);
+      if (gap == cluster) {
+        break;
+      }
+    }
+
+    // ranks of the initial points by removing clusters, then of the rest by filling voids
+    final int[] ranks = new int[area];
+    final boolean[] removing = pattern.clone();
+    final double[] removingEnergy = energy.clone();
+    for (int rank = initial - 1; rank >= 0; rank--) {
+      final int cluster = find(removing, removingEnergy, true);
+      removing[cluster] = false;
+      splat(removingEnergy, kernel, size, cluster, -1);
+      ranks[cluster] = rank;
+    }
+    for (int rank = initial; rank < area; rank++) {
+      final int gap = find(pattern, energy, false);
+      pattern[gap] = true;
+      splat(energy, kernel, size, gap, 1);
+      ranks[gap] = rank;
+    }
+    return ranks;
+  }
+
+  private static void splat(
+      final double[] energy,
+      final double[] kernel,
+      final int size,
+      final int index,
+      final int sign) {
+    // only the pixels within the radius of the point, wrapping around the torus
+    final int mask = size - 1;
+    final int px = index & mask;
+    final int py = index / size;
+    for (int dy = -RADIUS; dy <= RADIUS; dy++) {
+      final int row = ((py + dy) & mask) * size;
+      final int kernelRow = (dy + RADIUS) * KERNEL_WIDTH + RADIUS;
+      for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+        energy[row + ((px + dx) & mask)] += sign * kernel[kernelRow + dx];
+      }
+    }
+  }
+
+  /**
+   * Finds the tightest cluster, the point with the most energy, or the largest void, the empty
+   * pixel with the least energy.
+   */
+  private static int find(final boolean[] pattern, final double[] energy, final boolean cluster) {
+    int best = -1;
+    for (int i = 0; i < pattern.length; i++) {
+      if (pattern[i] == cluster
+          && (best == -1 || (cluster ? energy[i] > energy[best] : energy[i] < energy[best]))) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  private static int @Nullable [] load(final int size) {
+    final Path directory = DitherLookupCache.getDirectory();
+    if (directory == null) {
+      return null;
+    }
+    final Path file = getFile(directory, size);
+    if (Files.notExists(file)) {
+      return null;
+    }
+    final int area = size * size;
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() != HEADER_LENGTH + 2L * area) {
+        Logger.warn(String.format("Blue noise texture %s has an invalid size, regenerating", file));
+        return null;
+      }
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC
+          || buffer.getInt() != FORMAT_VERSION
+          || buffer.getInt() != size) {
+        Logger.warn(
+            String.format("Blue noise texture %s has an invalid header, regenerating", file));
+        return null;
+      }
+      final int[] ranks = new int[area];
+      for (int i = 0; i < area; i++) {
+        ranks[i] = Short.toUnsignedInt(buffer.getShort());
+      }
+      return ranks;
+    } catch (final IOException e) {
+      Logger.warn(
+          String.format(
+              "Failed to read blue noise texture %s, regenerating: %s", file, e.getMessage()));
+    }
+    return null;
+  }
+
+  private static void save(final int size, final int @NotNull [] ranks) {
+    final Path directory = DitherLookupCache.getDirectory();
+    if (directory == null) {
+      return;
+    }
+    final Path file = getFile(directory, size);
+    Path temp = null;
+    try {
+      Files.createDirectories(directory);
+      temp = Files.createTempFile(directory, "noise", ".tmp");
+      try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + (ranks.length << 1));
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size);
+        for (final int rank : ranks) {
+          buffer.putShort((short) rank);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+    } catch (final IOException e) {
+      Logger.warn(String.format("Failed to cache blue noise texture %s: %s", file, e.getMessage()));
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (final IOException ignored) {
+        }
+      }
+    }
+  }
+
+  @NotNull
+  private static Path getFile(@NotNull final Path directory, final int size) {
+    return directory.resolve(String.format("blue-noise-v%d-%d.bin", FORMAT_VERSION, size));
+  }
+
+  /**
+   * Gets the threshold of every pixel, row by row, evenly spread between 0 and 1 exclusive.
+   *
+   * @return the thresholds
+   */
+  public float @NotNull [] getThresholds() {
+    final float[] thresholds = new float[this.ranks.length];
+    for (int i = 0; i < thresholds.length; i++) {
+      thresholds[i] = (this.ranks[i] + 0.5f) / this.ranks.length;
+    }
+    return thresholds;
+  }
+
+  public int @NotNull [] getRanks() {
+    return this.ranks;
+  }
+
+  public int getSize() {
+    return this.size;
+  }
+}
@@ -0,0 +1,48 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither;
+
+import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A small ring of reusable output buffers for dithered frames. Buffers are only reallocated when
+ * the requested capacity changes, so frames of a fixed size are dithered without allocating.
+ */
+public final class DitherBufferPool {
+
+  private final ByteBuffer[] buffers;
+  private final boolean direct;
+  private int index;
+
+  public DitherBufferPool(final int size, final boolean direct) {
+    Preconditions.checkArgument(size > 0, "Pool size must be greater than 0!");
+    this.buffers = new ByteBuffer[size];
+    this.direct = direct;
+  }
+
+  /**
+   * Gets the next buffer in the ring, cleared and with the exact capacity requested.
+   *
+   * @param capacity the capacity
+   * @return the next buffer
+   */
+  @NotNull
+  public ByteBuffer next(final int capacity) {
+    ByteBuffer buffer = this.buffers[this.index];
+    if (buffer == null || buffer.capacity() != capacity) {
+      buffer = this.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      this.buffers[this.index] = buffer;
+    }
+    this.index = (this.index + 1) % this.buffers.length;
+    buffer.clear();
+    return buffer;
+  }
+
+  public int getSize() {
+    return this.buffers.length;
+  }
+
+  public boolean isDirect() {
+    return this.direct;
+  }
+}
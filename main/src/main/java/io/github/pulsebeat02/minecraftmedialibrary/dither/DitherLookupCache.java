@@ -0,0 +1,171 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither;
+
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import io.github.pulsebeat02.minecraftmedialibrary.utility.HashingUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persists computed color lookup tables to disk so they only have to be generated once. Each table
+ * is stored in its own file named after a hash of the palette, the distance metric and the format
+ * version. This is a read cache: a stored table is read back into the heap array the dithers index,
+ * so it saves the generation but not the memory of the table.
+ *
+ * <p>File layout: magic, format version, table length, the 20 byte key and then the table itself.
+ */
+public final class DitherLookupCache {
+
+  private static final int MAGIC = 0x4D4D4C54; // "MMLT"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_LENGTH = 12 + 20;
+
+  private static volatile Path DIRECTORY;
+
+  private DitherLookupCache() {}
+
+  /**
+   * Sets the directory the lookup tables are cached in. Must be called before the {@link
+   * DitherLookupUtil} class is initialized for the default table to be cached.
+   *
+   * @param directory the directory
+   */
+  public static void setDirectory(@Nullable final Path directory) {
+    DIRECTORY = directory;
+  }
+
+  @Nullable
+  public static Path getDirectory() {
+    return DIRECTORY;
+  }
+
+  /**
+   * Reads a cached table into the passed array if a valid one exists.
+   *
+   * @param palette the palette the table was computed from
+   * @param metric the name of the distance metric
+   * @param table the table to fill
+   * @return whether the table was read from the cache
+   */
+  public static boolean load(
+      final int @NotNull [] palette, @NotNull final String metric, final byte @NotNull [] table) {
+    final Path directory = DIRECTORY;
+    if (directory == null) {
+      return false;
+    }
+    final byte[] key = getKey(palette, metric);
+    final Path file = getFile(directory, key);
+    if (Files.notExists(file)) {
+      return false;
+    }
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() != HEADER_LENGTH + (long) table.length) {
+        Logger.warn(String.format("Lookup table %s has an invalid size, regenerating", file));
+        return false;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+      readFully(channel, buffer);
+      buffer.flip();
+      if (buffer.getInt() != MAGIC
+          || buffer.getInt() != FORMAT_VERSION
+          || buffer.getInt() != table.length) {
+        Logger.warn(String.format("Lookup table %s has an invalid header, regenerating", file));
+        return false;
+      }
+      final byte[] stored = new byte[key.length];
+      buffer.get(stored);
+      if (!MessageDigest.isEqual(key, stored)) {
+        Logger.warn(String.format("Lookup table %s has a mismatched key, regenerating", file));
+        return false;
+      }
+      readFully(channel, ByteBuffer.wrap(table));
+      return true;
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+    return false;
+  }
+
+  /**
+   * Writes the table to the cache, replacing any existing file atomically.
+   *
+   * @param palette the palette the table was computed from
+   * @param metric the name of the distance metric
+   * @param table the table to write
+   */
+  public static void save(
+      final int @NotNull [] palette, @NotNull final String metric, final byte @NotNull [] table) {
+    final Path directory = DIRECTORY;
+    if (directory == null) {
+      return;
+    }
+    final byte[] key = getKey(palette, metric);
+    final Path file = getFile(directory, key);
+    Path temp = null;
+    try {
+      Files.createDirectories(directory);
+      temp = Files.createTempFile(directory, "lookup", ".tmp");
+      try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(table.length).put(key).flip();
+        while (header.hasRemaining()) {
+          channel.write(header);
+        }
+        final ByteBuffer data = ByteBuffer.wrap(table);
+        while (data.hasRemaining()) {
+          channel.write(data);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+    } catch (final IOException e) {
+      Logger.warn(String.format("Failed to cache lookup table %s: %s", file, e.getMessage()));
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (final IOException ignored) {
+        }
+      }
+    }
+  }
+
+  private static void readFully(
+      @NotNull final FileChannel channel, @NotNull final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of file!");
+      }
+    }
+  }
+
+  @NotNull
+  private static Path getFile(@NotNull final Path directory, final byte @NotNull [] key) {
+    return directory.resolve(
+        String.format("lookup-v%d-%s.bin", FORMAT_VERSION, HashingUtils.toHexString(key)));
+  }
+
+  private static byte @NotNull [] getKey(
+      final int @NotNull [] palette, @NotNull final String metric) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final ByteBuffer colors = ByteBuffer.allocate(palette.length << 2);
+      colors.asIntBuffer().put(palette);
+      digest.update(colors);
+      digest.update(metric.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) FORMAT_VERSION);
+      return digest.digest();
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
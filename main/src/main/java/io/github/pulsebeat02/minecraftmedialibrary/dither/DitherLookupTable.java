@@ -0,0 +1,37 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.distance.ColorDistance;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A nearest palette color lookup table built with a specific {@link ColorDistance}. Both maps are
+ * indexed by the upper seven bits of each channel, {@code r >> 1 << 14 | g >> 1 << 7 | b >> 1}.
+ */
+public final class DitherLookupTable {
+
+  private final ColorDistance distance;
+  private final byte[] colorMap;
+  private final int[] fullColorMap;
+
+  DitherLookupTable(
+      @NotNull final ColorDistance distance,
+      final byte @NotNull [] colorMap,
+      final int @NotNull [] fullColorMap) {
+    this.distance = distance;
+    this.colorMap = colorMap;
+    this.fullColorMap = fullColorMap;
+  }
+
+  @NotNull
+  public ColorDistance getDistance() {
+    return this.distance;
+  }
+
+  public byte @NotNull [] getColorMap() {
+    return this.colorMap;
+  }
+
+  public int @NotNull [] getFullColorMap() {
+    return this.fullColorMap;
+  }
+}
@@ -2,10 +2,17 @@ package io.github.pulsebeat02.minecraftmedialibrary.dither;
 
 import io.github.pulsebeat02.minecraftmedialibrary.Logger;
 import io.github.pulsebeat02.minecraftmedialibrary.annotation.Author;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.distance.ColorDistance;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.distance.PaletteTree;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.RecursiveTask;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.jetbrains.annotations.NotNull;
 
 @Author(
     authors = {"PulseBeat_02", "BananaPuncher714", "jetp250"},
@@ -15,6 +22,10 @@ public class DitherLookupUtil {
   public static final int[] PALETTE;
   public static final byte[] COLOR_MAP = new byte[128 * 128 * 128];
   public static final int[] FULL_COLOR_MAP = new int[128 * 128 * 128];
+  public static final DitherLookupTable DEFAULT_TABLE;
+
+  private static final Map<String, CompletableFuture<DitherLookupTable>> TABLES =
+      new ConcurrentHashMap<>();
 
   static {
     final List<Integer> colors = new ArrayList<>();
@@ -36,21 +47,11 @@ public class DitherLookupUtil {
     }
     PALETTE[0] = 0;
 
-    final List<LoadRed> tasks = new ArrayList<>(128);
-    for (int r = 0; r < 256; r += 2) {
-      final LoadRed red = new LoadRed(PALETTE, r);
-      tasks.add(red);
-      red.fork();
-    }
+    loadColorMap(ColorDistance.REDMEAN, COLOR_MAP);
+    fillFullColorMap(COLOR_MAP, FULL_COLOR_MAP);
 
-    for (int i = 0; i < 128; i++) {
-      final byte[] sub = tasks.get(i).join();
-      final int ci = i << 14;
-      for (int si = 0; si < 16384; si++) {
-        COLOR_MAP[ci + si] = sub[si];
-        FULL_COLOR_MAP[ci + si] = PALETTE[Byte.toUnsignedInt(sub[si])];
-      }
-    }
+    DEFAULT_TABLE = new DitherLookupTable(ColorDistance.REDMEAN, COLOR_MAP, FULL_COLOR_MAP);
+    TABLES.put(ColorDistance.REDMEAN.getName(), CompletableFuture.completedFuture(DEFAULT_TABLE));
 
     Logger.info(
         String.format(
@@ -70,108 +71,123 @@ public class DitherLookupUtil {
     return FULL_COLOR_MAP;
   }
 
-  /** Init. */
-  public static void init() {}
-}
-
-final class LoadRed extends RecursiveTask<byte[]> {
-
-  private static final long serialVersionUID = -6408377810782246185L;
-  protected final int r;
-  protected final int[] palette;
-
-  LoadRed(final int[] palette, final int r) {
-    this.r = r;
-    this.palette = palette;
+  /**
+   * Gets the lookup table for the passed distance strategy, building it from a {@link PaletteTree}
+   * the first time it is requested and caching it both in memory and on disk.
+   *
+   * @param distance the distance strategy
+   * @return the lookup table
+   */
+  @NotNull
+  public static DitherLookupTable getLookupTable(@NotNull final ColorDistance distance) {
+    return getLookupTableAsync(distance).join();
   }
 
-  @Override
-  protected byte[] compute() {
-    final List<LoadGreen> greenSub = new ArrayList<>(128);
-    for (int g = 0; g < 256; g += 2) {
-      final LoadGreen green = new LoadGreen(this.palette, this.r, g);
-      greenSub.add(green);
-      green.fork();
-    }
-    final byte[] vals = new byte[16384];
-    for (int i = 0; i < 128; i++) {
-      final byte[] sub = greenSub.get(i).join();
-      final int index = i << 7;
-      System.arraycopy(sub, 0, vals, index, 128);
-    }
-    return vals;
+  /**
+   * Gets the lookup table for the passed distance strategy like {@link
+   * #getLookupTable(ColorDistance)}, but builds it on the common {@link ForkJoinPool} instead of
+   * the calling thread. Use this for expensive strategies such as {@link ColorDistance#CIEDE2000}
+   * so building the table the first time does not stall the caller. Requests for a table which is
+   * still being built share the same build.
+   *
+   * @param distance the distance strategy
+   * @return a future completed with the lookup table
+   */
+  @NotNull
+  public static CompletableFuture<DitherLookupTable> getLookupTableAsync(
+      @NotNull final ColorDistance distance) {
+    final String name = distance.getName();
+    final CompletableFuture<DitherLookupTable> future =
+        TABLES.computeIfAbsent(
+            name, key -> CompletableFuture.supplyAsync(() -> createLookupTable(distance)));
+    // failed builds are not cached, so the next request tries again
+    future.whenComplete(
+        (table, throwable) -> {
+          if (throwable != null) {
+            TABLES.remove(name, future);
+          }
+        });
+    return future;
   }
-}
 
-final class LoadGreen extends RecursiveTask<byte[]> {
-
-  private static final long serialVersionUID = -1221290051151782146L;
-  protected final int r;
-  protected final int g;
-  protected final int[] palette;
-
-  LoadGreen(final int[] palette, final int r, final int g) {
-    this.r = r;
-    this.g = g;
-    this.palette = palette;
+  /**
+   * Builds a new lookup table for the passed distance strategy, reading it from the disk cache if
+   * one exists. Unlike {@link #getLookupTable(ColorDistance)} the table is not cached in memory.
+   *
+   * @param distance the distance strategy
+   * @return the lookup table
+   */
+  @NotNull
+  public static DitherLookupTable createLookupTable(@NotNull final ColorDistance distance) {
+    final long start = System.nanoTime();
+    final byte[] colorMap = new byte[COLOR_MAP.length];
+    loadColorMap(distance, colorMap);
+    final int[] fullColorMap = new int[FULL_COLOR_MAP.length];
+    fillFullColorMap(colorMap, fullColorMap);
+    Logger.info(
+        String.format(
+            "Lookup table for %s initialized in %s ms",
+            distance.getName(), (System.nanoTime() - start) / 1_000_000.0));
+    return new DitherLookupTable(distance, colorMap, fullColorMap);
   }
 
-  @Override
-  protected byte[] compute() {
-    final List<LoadBlue> blueSub = new ArrayList<>(128);
-    for (int b = 0; b < 256; b += 2) {
-      final LoadBlue blue = new LoadBlue(this.palette, this.r, this.g, b);
-      blueSub.add(blue);
-      blue.fork();
+  private static void loadColorMap(
+      @NotNull final ColorDistance distance, final byte @NotNull [] colorMap) {
+    final String metric = distance.getName();
+    if (!DitherLookupCache.load(PALETTE, metric, colorMap)) {
+      final PaletteTree tree = new PaletteTree(distance, PALETTE, 4);
+      ForkJoinPool.commonPool()
+          .invoke(new LoadTreeBlocks(tree, colorMap, 0, 128));
+      DitherLookupCache.save(PALETTE, metric, colorMap);
     }
-    final byte[] matches = new byte[128];
-    for (int i = 0; i < 128; i++) {
-      matches[i] = blueSub.get(i).join();
+  }
+
+  private static void fillFullColorMap(final byte[] colorMap, final int[] fullColorMap) {
+    for (int i = 0; i < colorMap.length; i++) {
+      fullColorMap[i] = PALETTE[Byte.toUnsignedInt(colorMap[i])];
     }
-    return matches;
   }
+
+  /** Init. */
+  public static void init() {}
 }
 
-final class LoadBlue extends RecursiveTask<Byte> {
+final class LoadTreeBlocks extends RecursiveAction {
 
-  private static final long serialVersionUID = 5331764784578439634L;
-  protected final int r, g, b;
-  protected final int[] palette;
+  private static final long serialVersionUID = 2286304411867381540L;
+  private static final int BLOCK_SIZE = 8;
+  protected final transient PaletteTree tree;
+  protected final byte[] table;
+  protected final int from, to;
 
-  LoadBlue(final int[] palette, final int r, final int g, final int b) {
-    this.r = r;
-    this.g = g;
-    this.b = b;
-    this.palette = palette;
+  LoadTreeBlocks(final PaletteTree tree, final byte[] table, final int from, final int to) {
+    this.tree = tree;
+    this.table = table;
+    this.from = from;
+    this.to = to;
   }
 
   @Override
-  protected Byte compute() {
-    int val = 0;
-    float best_distance = Float.MAX_VALUE;
-    float distance;
-    int col;
-    for (int i = 4; i < this.palette.length; ++i) {
-      col = this.palette[i];
-      final int r2 = col >> 16 & 0xFF;
-      final int g2 = col >> 8 & 0xFF;
-      final int b2 = col & 0xFF;
-      final float red_avg = (this.r + r2) * .5f;
-      final int redVal = this.r - r2;
-      final int greenVal = this.g - g2;
-      final int blueVal = this.b - b2;
-      final float weight_red = 2.0f + red_avg * (1f / 256f);
-      final float weight_green = 4.0f;
-      final float weight_blue = 2.0f + (255.0f - red_avg) * (1f / 256f);
-      distance =
-          weight_red * redVal * redVal
-              + weight_green * greenVal * greenVal
-              + weight_blue * blueVal * blueVal;
-      if (distance < best_distance) {
-        best_distance = distance;
-        val = i;
+  protected void compute() {
+    if (this.to - this.from > BLOCK_SIZE) {
+      final int middle = (this.from + this.to) >>> 1;
+      invokeAll(
+          new LoadTreeBlocks(this.tree, this.table, this.from, middle),
+          new LoadTreeBlocks(this.tree, this.table, middle, this.to));
+      return;
+    }
+
+    // closest regions may be concave or split under the bundled distances, so every color is
+    // searched, seeding each search with the result of its neighbour
+    final PaletteTree.Search search = this.tree.newSearch();
+    int hint = -1;
+    for (int r = this.from; r < this.to; r++) {
+      for (int g = 0; g < 128; g++) {
+        for (int b = 0; b < 128; b++) {
+          hint = search.nearest(r << 1 << 16 | g << 1 << 8 | b << 1, hint);
+          this.table[r << 14 | g << 7 | b] = (byte) hint;
+        }
       }
     }
-    return (byte) val;
   }
 }
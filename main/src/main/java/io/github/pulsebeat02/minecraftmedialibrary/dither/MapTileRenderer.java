@@ -0,0 +1,454 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.nms.MapTile;
+import java.nio.IntBuffer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Scales, letterboxes and dithers frames straight into the {@link MapTile}s of a wall of maps,
+ * reading the source frame once. Every output pixel is the average of the source pixels under it,
+ * and rows are dithered with Filter Lite error diffusion as soon as they are scaled. A frame which
+ * already is the size of the video gives the same colors as the {@code FilterLiteDither}.
+ *
+ * <p>The video is centered on the wall like {@link
+ * io.github.pulsebeat02.minecraftmedialibrary.nms.PacketHandler#displayMaps} does, and parts
+ * outside of the wall are cropped before they are scaled. A renderer keeps the layout of the last
+ * frame size and is not thread safe.
+ */
+public final class MapTileRenderer {
+
+  private final byte[] colorMap;
+  private final int[] fullColorMap;
+  private final int mapWidth;
+  private final int mapHeight;
+
+  private int sourceWidth;
+  private int sourceHeight;
+  private int videoWidth;
+  private int videoHeight;
+
+  // visible part of the video
+  private int left;
+  private int top;
+  private int width;
+  private int height;
+
+  // source rectangle under every visible output column and row
+  private int[] columnStarts;
+  private int[] columnEnds;
+  private int[] rowStarts;
+  private int[] rowEnds;
+
+  // tile and position within the tile of every visible output row
+  private int[] rowTiles;
+  private int[] rowOffsets;
+
+  // covered rectangle of every column and row of tiles
+  private int firstColumn;
+  private int firstRow;
+  private int[] tileXs;
+  private int[] tileWidths;
+  private int[] tileYs;
+  private int[] tileHeights;
+
+  private boolean scaled;
+  private long[] reciprocals;
+  private int[] reds;
+  private int[] greens;
+  private int[] blues;
+  private int[] sourceRow;
+  private int[] row;
+  private byte[] colors;
+
+  public MapTileRenderer(final int mapWidth, final int mapHeight) {
+    this(DitherLookupUtil.DEFAULT_TABLE, mapWidth, mapHeight);
+  }
+
+  /**
+   * Creates a renderer for a wall of maps.
+   *
+   * @param table the lookup table
+   * @param mapWidth the width of the wall in maps
+   * @param mapHeight the height of the wall in maps
+   */
+  public MapTileRenderer(
+      @NotNull final DitherLookupTable table, final int mapWidth, final int mapHeight) {
+    Preconditions.checkArgument(mapWidth > 0 && mapHeight > 0, "Wall must hold at least one map!");
+    this.colorMap = table.getColorMap();
+    this.fullColorMap = table.getFullColorMap();
+    this.mapWidth = mapWidth;
+    this.mapHeight = mapHeight;
+  }
+
+  /**
+   * Renders a frame into tiles. The tiles are newly allocated every frame, so they can be handed to
+   * {@link io.github.pulsebeat02.minecraftmedialibrary.nms.PacketHandler#displayMapTiles} which
+   * keeps their data.
+   *
+   * @param source the rgb pixels of the source frame
+   * @param sourceWidth the width of the source frame
+   * @param videoWidth the width of the video on the wall in pixels
+   * @param videoHeight the height of the video on the wall in pixels
+   * @param context the context holding the error rows
+   * @return the tiles covered by the video, row by row
+   */
+  public MapTile @NotNull [] render(
+      final int @NotNull [] source,
+      final int sourceWidth,
+      final int videoWidth,
+      final int videoHeight,
+      @NotNull final DitherContext context) {
+    return render(source, null, source.length, sourceWidth, videoWidth, videoHeight, context);
+  }
+
+  /**
+   * Renders a frame read straight from a buffer, such as a native frame buffer of a decoder. Only
+   * the source rows under the video are read, a row at a time, and the position of the buffer is
+   * left untouched.
+   *
+   * @param source the rgb pixels of the source frame, from its position to its limit
+   * @param sourceWidth the width of the source frame
+   * @param videoWidth the width of the video on the wall in pixels
+   * @param videoHeight the height of the video on the wall in pixels
+   * @param context the context holding the error rows
+   * @return the tiles covered by the video, row by row
+   */
+  public MapTile @NotNull [] render(
+      @NotNull final IntBuffer source,
+      final int sourceWidth,
+      final int videoWidth,
+      final int videoHeight,
+      @NotNull final DitherContext context) {
+    return render(
+        null, source.slice(), source.remaining(), sourceWidth, videoWidth, videoHeight, context);
+  }
+
+  private MapTile @NotNull [] render(
+      final int[] array,
+      final IntBuffer buffer,
+      final int sourceLength,
+      final int sourceWidth,
+      final int videoWidth,
+      final int videoHeight,
+      @NotNull final DitherContext context) {
+    Preconditions.checkArgument(sourceWidth > 0, "Source width must be greater than 0!");
+    Preconditions.checkArgument(
+        videoWidth > 0 && videoHeight > 0, "Video dimensions must be greater than 0!");
+    final int sourceHeight = sourceLength / sourceWidth;
+    if (sourceWidth != this.sourceWidth
+        || sourceHeight != this.sourceHeight
+        || videoWidth != this.videoWidth
+        || videoHeight != this.videoHeight) {
+      layout(sourceWidth, sourceHeight, videoWidth, videoHeight);
+    }
+
+    final int columns = this.tileWidths.length;
+    final int rows = this.tileHeights.length;
+    final MapTile[] tiles = new MapTile[columns * rows];
+    final byte[][] data = new byte[tiles.length][];
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < columns; x++) {
+        final int index = y * columns + x;
+        data[index] = new byte[this.tileWidths[x] * this.tileHeights[y]];
+        tiles[index] =
+            new MapTile(
+                this.firstColumn + x,
+                this.firstRow + y,
+                this.tileXs[x],
+                this.tileYs[y],
+                this.tileWidths[x],
+                this.tileHeights[y],
+                data[index]);
+      }
+    }
+
+    final int[][] errors = context.getErrorBuffer(this.width);
+    final int heightMinus = this.height - 1;
+    for (int y = 0; y < this.height; y++) {
+      // frames of the video size are dithered straight from the source
+      final int[] pixels;
+      final int offset;
+      if (this.scaled) {
+        scaleRow(array, buffer, y);
+        pixels = this.row;
+        offset = 0;
+      } else if (array != null) {
+        pixels = array;
+        offset = (this.top + y) * sourceWidth + this.left;
+      } else {
+        pixels = readRow(buffer, this.top + y, this.left, this.left + this.width);
+        offset = this.left;
+      }
+      if ((y & 0x1) == 0) {
+        ditherForward(pixels, offset, errors[0], errors[1], y < heightMinus);
+      } else {
+        ditherBackward(pixels, offset, errors[1], errors[0], y < heightMinus);
+      }
+      final int tileRow = this.rowTiles[y] * columns;
+      final int rowOffset = this.rowOffsets[y];
+      for (int x = 0, start = 0; x < columns; start += this.tileWidths[x++]) {
+        final int length = this.tileWidths[x];
+        System.arraycopy(this.colors, start, data[tileRow + x], rowOffset * length, length);
+      }
+    }
+    return tiles;
+  }
+
+  private void layout(
+      final int sourceWidth, final int sourceHeight, final int videoWidth, final int videoHeight) {
+    final int xOff = ((this.mapWidth << 7) - videoWidth) >> 1;
+    final int yOff = ((this.mapHeight << 7) - videoHeight) >> 1;
+    this.left = Math.max(0, -xOff);
+    this.top = Math.max(0, -yOff);
+    this.width = Math.min(videoWidth, (this.mapWidth << 7) - xOff) - this.left;
+    this.height = Math.min(videoHeight, (this.mapHeight << 7) - yOff) - this.top;
+
+    this.columnStarts = new int[this.width];
+    this.columnEnds = new int[this.width];
+    getBoxes(sourceWidth, videoWidth, this.left, this.columnStarts, this.columnEnds);
+    this.rowStarts = new int[this.height];
+    this.rowEnds = new int[this.height];
+    getBoxes(sourceHeight, videoHeight, this.top, this.rowStarts, this.rowEnds);
+
+    this.firstColumn = (xOff + this.left) >> 7;
+    final int lastColumn = (xOff + this.left + this.width - 1) >> 7;
+    this.tileXs = new int[lastColumn - this.firstColumn + 1];
+    this.tileWidths = new int[this.tileXs.length];
+    getTiles(xOff + this.left, this.width, this.firstColumn, this.tileXs, this.tileWidths);
+
+    this.firstRow = (yOff + this.top) >> 7;
+    final int lastRow = (yOff + this.top + this.height - 1) >> 7;
+    this.tileYs = new int[lastRow - this.firstRow + 1];
+    this.tileHeights = new int[this.tileYs.length];
+    getTiles(yOff + this.top, this.height, this.firstRow, this.tileYs, this.tileHeights);
+    this.rowTiles = new int[this.height];
+    this.rowOffsets = new int[this.height];
+    for (int y = 0; y < this.height; y++) {
+      final int pixel = yOff + this.top + y;
+      final int tile = (pixel >> 7) - this.firstRow;
+      this.rowTiles[y] = tile;
+      this.rowOffsets[y] = pixel - (pixel >> 7 << 7) - this.tileYs[tile];
+    }
+
+    this.scaled = sourceWidth != videoWidth || sourceHeight != videoHeight;
+    final int maxCount = getMaxLength(this.columnStarts, this.columnEnds)
+        * getMaxLength(this.rowStarts, this.rowEnds);
+    this.reciprocals = new long[maxCount + 1];
+    for (int count = 1; count <= maxCount; count++) {
+      this.reciprocals[count] = ((1L << 40) + count - 1) / count;
+    }
+    this.reds = new int[sourceWidth];
+    this.greens = new int[sourceWidth];
+    this.blues = new int[sourceWidth];
+    this.sourceRow = new int[sourceWidth];
+    this.row = new int[this.width];
+    this.colors = new byte[this.width];
+    this.sourceWidth = sourceWidth;
+    this.sourceHeight = sourceHeight;
+    this.videoWidth = videoWidth;
+    this.videoHeight = videoHeight;
+  }
+
+  /**
+   * Gets the source pixels under every visible output pixel along one axis. Downscaled pixels
+   * cover the source pixels between their edges, upscaled pixels the source pixel they fall in.
+   */
+  private void getBoxes(
+      final int sourceLength,
+      final int videoLength,
+      final int first,
+      final int[] starts,
+      final int[] ends) {
+    for (int i = 0; i < starts.length; i++) {
+      final int position = first + i;
+      final int start = (int) ((long) position * sourceLength / videoLength);
+      final int end = (int) ((long) (position + 1) * sourceLength / videoLength);
+      starts[i] = start;
+      ends[i] = Math.max(start + 1, end);
+    }
+  }
+
+  private int getMaxLength(final int[] starts, final int[] ends) {
+    int max = 1;
+    for (int i = 0; i < starts.length; i++) {
+      max = Math.max(max, ends[i] - starts[i]);
+    }
+    return max;
+  }
+
+  /** Splits the visible pixels along one axis into the parts covering each map. */
+  private void getTiles(
+      final int start,
+      final int length,
+      final int first,
+      final int[] positions,
+      final int[] lengths) {
+    final int end = start + length;
+    for (int i = 0; i < positions.length; i++) {
+      final int mapStart = (first + i) << 7;
+      final int covered = Math.max(mapStart, start);
+      positions[i] = covered - mapStart;
+      lengths[i] = Math.min(mapStart + 128, end) - covered;
+    }
+  }
+
+  private void scaleRow(final int[] array, final IntBuffer buffer, final int y) {
+    final int[] reds = this.reds;
+    final int[] greens = this.greens;
+    final int[] blues = this.blues;
+    final int first = this.columnStarts[0];
+    final int last = this.columnEnds[this.width - 1];
+    final int rowStart = this.rowStarts[y];
+    final int rowEnd = this.rowEnds[y];
+
+    // sum the source rows under the output row per column first, so both passes run along rows
+    for (int sy = rowStart; sy < rowEnd; sy++) {
+      final int[] source = array != null ? array : readRow(buffer, sy, first, last);
+      final int yIndex = array != null ? sy * this.sourceWidth : 0;
+      if (sy == rowStart) {
+        for (int sx = first; sx < last; sx++) {
+          final int rgb = source[yIndex + sx];
+          reds[sx] = rgb >> 16 & 0xFF;
+          greens[sx] = rgb >> 8 & 0xFF;
+          blues[sx] = rgb & 0xFF;
+        }
+      } else {
+        for (int sx = first; sx < last; sx++) {
+          final int rgb = source[yIndex + sx];
+          reds[sx] += rgb >> 16 & 0xFF;
+          greens[sx] += rgb >> 8 & 0xFF;
+          blues[sx] += rgb & 0xFF;
+        }
+      }
+    }
+
+    final int[] row = this.row;
+    final int[] columnStarts = this.columnStarts;
+    final int[] columnEnds = this.columnEnds;
+    final long[] reciprocals = this.reciprocals;
+    final int rowHeight = rowEnd - rowStart;
+    for (int x = 0; x < this.width; x++) {
+      final int columnStart = columnStarts[x];
+      final int columnEnd = columnEnds[x];
+      int red = 0;
+      int green = 0;
+      int blue = 0;
+      for (int sx = columnStart; sx < columnEnd; sx++) {
+        red += reds[sx];
+        green += greens[sx];
+        blue += blues[sx];
+      }
+      // rounded division by the pixel count through its reciprocal, exact for the box sizes used
+      final int count = rowHeight * (columnEnd - columnStart);
+      final int half = count >> 1;
+      final long reciprocal = reciprocals[count];
+      row[x] =
+          (int) ((red + half) * reciprocal >>> 40) << 16
+              | (int) ((green + half) * reciprocal >>> 40) << 8
+              | (int) ((blue + half) * reciprocal >>> 40);
+    }
+  }
+
+  /** Copies the columns of a source row out of the buffer, into the same columns of a row. */
+  private int[] readRow(final IntBuffer buffer, final int y, final int first, final int last) {
+    buffer.position(y * this.sourceWidth + first);
+    buffer.get(this.sourceRow, first, last - first);
+    return this.sourceRow;
+  }
+
+  private void ditherForward(
+      final int[] pixels,
+      final int offset,
+      final int[] buf1,
+      final int[] buf2,
+      final boolean hasNextY) {
+    final int[] fullColorMap = this.fullColorMap;
+    final byte[] colors = this.colors;
+    final int widthMinus = this.width - 1;
+    int bufferIndex = 0;
+    for (int x = 0; x < this.width; x++) {
+      final int rgb = pixels[offset + x];
+      int red = rgb >> 16 & 0xFF;
+      int green = rgb >> 8 & 0xFF;
+      int blue = rgb & 0xFF;
+      red = (red += buf1[bufferIndex++]) > 255 ? 255 : red < 0 ? 0 : red;
+      green = (green += buf1[bufferIndex++]) > 255 ? 255 : green < 0 ? 0 : green;
+      blue = (blue += buf1[bufferIndex++]) > 255 ? 255 : blue < 0 ? 0 : blue;
+      final int closest = fullColorMap[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
+      final int delta_r = red - (closest >> 16 & 0xFF);
+      final int delta_g = green - (closest >> 8 & 0xFF);
+      final int delta_b = blue - (closest & 0xFF);
+      if (x < widthMinus) {
+        buf1[bufferIndex] = delta_r >> 1;
+        buf1[bufferIndex + 1] = delta_g >> 1;
+        buf1[bufferIndex + 2] = delta_b >> 1;
+      }
+      if (hasNextY) {
+        if (x > 0) {
+          buf2[bufferIndex - 6] = delta_r >> 2;
+          buf2[bufferIndex - 5] = delta_g >> 2;
+          buf2[bufferIndex - 4] = delta_b >> 2;
+        }
+        buf2[bufferIndex - 3] = delta_r >> 2;
+        buf2[bufferIndex - 2] = delta_g >> 2;
+        buf2[bufferIndex - 1] = delta_b >> 2;
+      }
+      colors[x] = getBestColor(closest);
+    }
+  }
+
+  private void ditherBackward(
+      final int[] pixels,
+      final int offset,
+      final int[] buf1,
+      final int[] buf2,
+      final boolean hasNextY) {
+    final int[] fullColorMap = this.fullColorMap;
+    final byte[] colors = this.colors;
+    final int widthMinus = this.width - 1;
+    int bufferIndex = this.width + (this.width << 1) - 1;
+    for (int x = widthMinus; x >= 0; x--) {
+      final int rgb = pixels[offset + x];
+      int red = rgb >> 16 & 0xFF;
+      int green = rgb >> 8 & 0xFF;
+      int blue = rgb & 0xFF;
+      blue = (blue += buf1[bufferIndex--]) > 255 ? 255 : blue < 0 ? 0 : blue;
+      green = (green += buf1[bufferIndex--]) > 255 ? 255 : green < 0 ? 0 : green;
+      red = (red += buf1[bufferIndex--]) > 255 ? 255 : red < 0 ? 0 : red;
+      final int closest = fullColorMap[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
+      final int delta_r = red - (closest >> 16 & 0xFF);
+      final int delta_g = green - (closest >> 8 & 0xFF);
+      final int delta_b = blue - (closest & 0xFF);
+      if (x > 0) {
+        buf1[bufferIndex] = delta_b >> 1;
+        buf1[bufferIndex - 1] = delta_g >> 1;
+        buf1[bufferIndex - 2] = delta_r >> 1;
+      }
+      if (hasNextY) {
+        if (x < widthMinus) {
+          buf2[bufferIndex + 6] = delta_b >> 2;
+          buf2[bufferIndex + 5] = delta_g >> 2;
+          buf2[bufferIndex + 4] = delta_r >> 2;
+        }
+        buf2[bufferIndex + 3] = delta_b >> 2;
+        buf2[bufferIndex + 2] = delta_g >> 2;
+        buf2[bufferIndex + 1] = delta_r >> 2;
+      }
+      colors[x] = getBestColor(closest);
+    }
+  }
+
+  private byte getBestColor(final int rgb) {
+    return this.colorMap[
+        (rgb >> 16 & 0xFF) >> 1 << 14 | (rgb >> 8 & 0xFF) >> 1 << 7 | (rgb & 0xFF) >> 1];
+  }
+
+  public int getMapWidth() {
+    return this.mapWidth;
+  }
+
+  public int getMapHeight() {
+    return this.mapHeight;
+  }
+}
@@ -0,0 +1,148 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.BlueNoiseTexture;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import java.nio.ByteBuffer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Threshold dithering with a tiled {@link BlueNoiseTexture} instead of a Bayer matrix, which has no
+ * visible crosshatch on large map walls. Like the {@link OrderedDither} every pixel only depends on
+ * its own color and position, so large frames are dithered on all cores and a still image stays
+ * identical from frame to frame.
+ */
+public class BlueNoiseDither implements DitherAlgorithm {
+
+  public static final int DEFAULT_SIZE = 64;
+  public static final int DEFAULT_STRENGTH = 32;
+
+  private static final int PARALLEL_THRESHOLD = 128 * 128 * 4;
+
+  private final byte[] colorMap;
+  private final int[] fullColorMap;
+  private final int[] offsets;
+  private final int size;
+  private final int mask;
+  private final int strength;
+  private final String cacheKey;
+
+  public BlueNoiseDither() {
+    this(DEFAULT_SIZE);
+  }
+
+  public BlueNoiseDither(final int size) {
+    this(size, DEFAULT_STRENGTH, DitherLookupUtil.DEFAULT_TABLE);
+  }
+
+  /**
+   * Creates a blue noise dither.
+   *
+   * @param size the size of the noise texture, a power of two between 16 and 128
+   * @param strength the difference between the lowest and highest offset added to each channel
+   * @param table the lookup table
+   */
+  public BlueNoiseDither(
+      final int size, final int strength, @NotNull final DitherLookupTable table) {
+    Preconditions.checkArgument(strength >= 0 && strength <= 255, "Strength must be in 0-255!");
+    this.colorMap = table.getColorMap();
+    this.fullColorMap = table.getFullColorMap();
+    this.size = size;
+    this.mask = size - 1;
+    this.strength = strength;
+    this.offsets = new int[size * size];
+    final float[] thresholds = BlueNoiseTexture.getTexture(size).getThresholds();
+    for (int i = 0; i < thresholds.length; i++) {
+      this.offsets[i] = Math.round(strength * (thresholds[i] - 0.5f));
+    }
+    this.cacheKey =
+        String.format(
+            "%s[size=%d,strength=%d,distance=%s]",
+            getClass().getName(), size, strength, table.getDistance().getName());
+  }
+
+  @Override
+  public void dither(final int[] buffer, final int width) {
+    final int height = buffer.length / width;
+    forEachRow(
+        height,
+        buffer.length,
+        y -> {
+          final int yIndex = y * width;
+          final int row = (y & this.mask) * this.size;
+          for (int x = 0; x < width; x++) {
+            final int index = yIndex + x;
+            buffer[index] =
+                this.fullColorMap[getIndex(buffer[index], this.offsets[row + (x & this.mask)])];
+          }
+        });
+  }
+
+  @Override
+  public ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width) {
+    final ByteBuffer data = ByteBuffer.allocate(buffer.length);
+    ditherIntoMinecraft(buffer, width, data, new DitherContext());
+    return data;
+  }
+
+  @Override
+  public void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
+    final int height = buffer.length / width;
+    forEachRow(
+        height,
+        buffer.length,
+        y -> {
+          final int yIndex = y * width;
+          final int row = (y & this.mask) * this.size;
+          for (int x = 0; x < width; x++) {
+            final int index = yIndex + x;
+            data.put(
+                index,
+                this.colorMap[getIndex(buffer[index], this.offsets[row + (x & this.mask)])]);
+          }
+        });
+  }
+
+  private void forEachRow(final int height, final int pixels, final IntConsumer consumer) {
+    // rows are independent, only split frames large enough to pay for the hand off
+    if (pixels >= PARALLEL_THRESHOLD) {
+      IntStream.range(0, height).parallel().forEach(consumer);
+    } else {
+      for (int y = 0; y < height; y++) {
+        consumer.accept(y);
+      }
+    }
+  }
+
+  private int getIndex(final int rgb, final int offset) {
+    int red = (rgb >> 16 & 0xFF) + offset;
+    int green = (rgb >> 8 & 0xFF) + offset;
+    int blue = (rgb & 0xFF) + offset;
+    red = red > 255 ? 255 : red < 0 ? 0 : red;
+    green = green > 255 ? 255 : green < 0 ? 0 : green;
+    blue = blue > 255 ? 255 : blue < 0 ? 0 : blue;
+    return red >> 1 << 14 | green >> 1 << 7 | blue >> 1;
+  }
+
+  public int getSize() {
+    return this.size;
+  }
+
+  public int getStrength() {
+    return this.strength;
+  }
+
+  @Override
+  public @NotNull String getCacheKey() {
+    return this.cacheKey;
+  }
+}
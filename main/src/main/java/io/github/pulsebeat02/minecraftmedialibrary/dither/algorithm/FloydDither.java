@@ -1,12 +1,13 @@
 package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
 
 import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
 import java.awt.image.BufferedImage;
 import java.nio.ByteBuffer;
 import org.jetbrains.annotations.NotNull;
 
-import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil.COLOR_MAP;
-import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil.FULL_COLOR_MAP;
 import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil.PALETTE;
 
 /**
@@ -16,6 +17,21 @@ import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUti
  */
 public class FloydDither implements DitherAlgorithm {
 
+  private final byte[] colorMap;
+  private final int[] fullColorMap;
+  private final String cacheKey;
+
+  public FloydDither() {
+    this(DitherLookupUtil.DEFAULT_TABLE);
+  }
+
+  public FloydDither(@NotNull final DitherLookupTable table) {
+    this.colorMap = table.getColorMap();
+    this.fullColorMap = table.getFullColorMap();
+    this.cacheKey =
+        String.format("%s[distance=%s]", getClass().getName(), table.getDistance().getName());
+  }
+
   private int getColorFromMinecraftPalette(final byte val) {
     return PALETTE[(val + 256) % 256];
   }
@@ -25,16 +41,16 @@ public class FloydDither implements DitherAlgorithm {
   }
 
   private byte getBestColor(final int rgb) {
-    return COLOR_MAP[
+    return this.colorMap[
         (rgb >> 16 & 0xFF) >> 1 << 14 | (rgb >> 8 & 0xFF) >> 1 << 7 | (rgb & 0xFF) >> 1];
   }
 
   private byte getBestColor(final int red, final int green, final int blue) {
-    return COLOR_MAP[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
+    return this.colorMap[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
   }
 
   private int getBestFullColor(final int red, final int green, final int blue) {
-    return FULL_COLOR_MAP[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
+    return this.fullColorMap[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
   }
 
   private byte[] simplify(final int[] buffer) {
@@ -147,11 +163,29 @@ public class FloydDither implements DitherAlgorithm {
 
   @Override
   public ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width) {
+    final ByteBuffer data = ByteBuffer.allocate(buffer.length);
+    ditherIntoMinecraft(buffer, width, data, new DitherContext());
+    return data;
+  }
+
+  @Override
+  public void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
     final int height = buffer.length / width;
     final int widthMinus = width - 1;
     final int heightMinus = height - 1;
-    final int[][] dither_buffer = new int[2][width + width << 1];
-    final ByteBuffer data = ByteBuffer.allocate(buffer.length);
+    final int[][] dither_buffer = context.getErrorBuffer(width);
+    // with temporal dithering the color of the last frame is kept for a pixel while it is close
+    // enough, see TemporalDither
+    final boolean temporal = context.isTemporal();
+    final int tolerance = context.getTemporalTolerance();
+    final boolean seeding = context.isErrorSeeding();
+    final byte[] colors = temporal ? context.getPreviousColors(buffer.length) : null;
+    final int[] pixels = temporal ? context.getPreviousPixels(buffer.length) : null;
+    final int[] errors = temporal ? context.getPreviousErrors(buffer.length) : null;
     for (int y = 0; y < height; y++) {
       final boolean hasNextY = y < heightMinus;
       final int yIndex = y * width;
@@ -164,13 +198,22 @@ public class FloydDither implements DitherAlgorithm {
           final boolean hasNextX = x < widthMinus;
           final int index = yIndex + x;
           final int rgb = buffer[index];
+          if (temporal) {
+            TemporalDither.seedError(buf1, bufferIndex, index, rgb, seeding, colors, pixels, errors);
+          }
           int red = rgb >> 16 & 0xFF;
           int green = rgb >> 8 & 0xFF;
           int blue = rgb & 0xFF;
           red = (red += buf1[bufferIndex++]) > 255 ? 255 : red < 0 ? 0 : red;
           green = (green += buf1[bufferIndex++]) > 255 ? 255 : green < 0 ? 0 : green;
           blue = (blue += buf1[bufferIndex++]) > 255 ? 255 : blue < 0 ? 0 : blue;
-          final int closest = getBestFullColor(red, green, blue);
+          final int best = getBestFullColor(red, green, blue);
+          final int kept =
+              temporal
+                  ? TemporalDither.getKeptColor(red, green, blue, best, colors[index], tolerance)
+                  : 0;
+          final int closest = kept == 0 ? best : PALETTE[kept];
+          final byte color = kept == 0 ? getBestColor(closest) : (byte) kept;
           final int delta_r = red - (closest >> 16 & 0xFF);
           final int delta_g = green - (closest >> 8 & 0xFF);
           final int delta_b = blue - (closest & 0xFF);
@@ -194,7 +237,10 @@ public class FloydDither implements DitherAlgorithm {
               buf2[bufferIndex + 2] = (int) (0.0625 * delta_b);
             }
           }
-          data.put(index, getBestColor(closest));
+          if (temporal) {
+            colors[index] = color;
+          }
+          data.put(index, color);
         }
       } else {
         int bufferIndex = width + (width << 1) - 1;
@@ -205,13 +251,23 @@ public class FloydDither implements DitherAlgorithm {
           final boolean hasNextX = x > 0;
           final int index = yIndex + x;
           final int rgb = buffer[index];
+          if (temporal) {
+            TemporalDither.seedError(
+                buf1, bufferIndex - 2, index, rgb, seeding, colors, pixels, errors);
+          }
           int red = rgb >> 16 & 0xFF;
           int green = rgb >> 8 & 0xFF;
           int blue = rgb & 0xFF;
           blue = (blue += buf1[bufferIndex--]) > 255 ? 255 : blue < 0 ? 0 : blue;
           green = (green += buf1[bufferIndex--]) > 255 ? 255 : green < 0 ? 0 : green;
           red = (red += buf1[bufferIndex--]) > 255 ? 255 : red < 0 ? 0 : red;
-          final int closest = getBestFullColor(red, green, blue);
+          final int best = getBestFullColor(red, green, blue);
+          final int kept =
+              temporal
+                  ? TemporalDither.getKeptColor(red, green, blue, best, colors[index], tolerance)
+                  : 0;
+          final int closest = kept == 0 ? best : PALETTE[kept];
+          final byte color = kept == 0 ? getBestColor(closest) : (byte) kept;
           final int delta_r = red - (closest >> 16 & 0xFF);
           final int delta_g = green - (closest >> 8 & 0xFF);
           final int delta_b = blue - (closest & 0xFF);
@@ -235,14 +291,21 @@ public class FloydDither implements DitherAlgorithm {
               buf2[bufferIndex - 2] = (int) (0.0625 * delta_r);
             }
           }
-          data.put(index, getBestColor(closest));
+          if (temporal) {
+            colors[index] = color;
+          }
+          data.put(index, color);
         }
       }
     }
-    return data;
   }
 
   private int[] getRGBArray(@NotNull final BufferedImage image) {
     return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
   }
+
+  @Override
+  public @NotNull String getCacheKey() {
+    return this.cacheKey;
+  }
 }
@@ -0,0 +1,84 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import io.github.pulsebeat02.minecraftmedialibrary.natives.NativeDitherBuffer;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Filter Lite dithering through the {@link NativeDitherBuffer}, producing the same colors as the
+ * {@link FilterLiteDither}. Falls back to the {@link FilterLiteDither} if the native library could
+ * not be loaded, or for contexts with temporal dithering turned on.
+ */
+public class NativeFilterLiteDither implements DitherAlgorithm {
+
+  // lookup tables are cached for the lifetime of the library, so are their native copies
+  private static final Map<DitherLookupTable, NativeDitherBuffer> BUFFERS =
+      new ConcurrentHashMap<>();
+
+  private final NativeDitherBuffer buffer;
+  private final FilterLiteDither fallback;
+  private final String cacheKey;
+
+  public NativeFilterLiteDither() {
+    this(DitherLookupUtil.DEFAULT_TABLE);
+  }
+
+  public NativeFilterLiteDither(@NotNull final DitherLookupTable table) {
+    this.buffer =
+        NativeDitherBuffer.isAvailable()
+            ? BUFFERS.computeIfAbsent(table, NativeDitherBuffer::new)
+            : null;
+    this.fallback = new FilterLiteDither(table);
+    this.cacheKey =
+        String.format("%s[distance=%s]", getClass().getName(), table.getDistance().getName());
+  }
+
+  @Override
+  public void dither(final int[] buffer, final int width) {
+    if (this.buffer != null) {
+      this.buffer.dither(buffer, width);
+    } else {
+      this.fallback.dither(buffer, width);
+    }
+  }
+
+  @Override
+  public ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width) {
+    final ByteBuffer data = ByteBuffer.allocate(buffer.length);
+    ditherIntoMinecraft(buffer, width, data, new DitherContext());
+    return data;
+  }
+
+  @Override
+  public void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
+    if (this.buffer != null && !context.isTemporal()) {
+      this.buffer.ditherIntoMinecraft(buffer, width, data);
+    } else {
+      this.fallback.ditherIntoMinecraft(buffer, width, data, context);
+    }
+  }
+
+  /**
+   * Gets whether frames are dithered in native code.
+   *
+   * @return whether the native library is used
+   */
+  public boolean isNative() {
+    return this.buffer != null;
+  }
+
+  @Override
+  public @NotNull String getCacheKey() {
+    return this.cacheKey;
+  }
+}
@@ -1,12 +1,13 @@
 package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
 
 import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
 import io.github.pulsebeat02.minecraftmedialibrary.dither.MapPalette;
 import java.nio.ByteBuffer;
 import org.jetbrains.annotations.NotNull;
 
-import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil.COLOR_MAP;
-
 public class OrderedDither implements DitherAlgorithm {
 
   private static final float[][] BAYER_MATRIX_TWO;
@@ -41,13 +42,24 @@ public class OrderedDither implements DitherAlgorithm {
         };
   }
 
+  private static final OrderedDitherKernel KERNEL = createKernel();
+
   private final float correction;
+  private final byte[] colorMap;
+  private final int[][] floors;
+  private final int[][] ceils;
+  private final String cacheKey;
 
   private float[][] matrix;
   private float multiplicative;
   private int size;
 
   public OrderedDither(@NotNull final DitherType type) {
+    this(type, DitherLookupUtil.DEFAULT_TABLE);
+  }
+
+  public OrderedDither(@NotNull final DitherType type, @NotNull final DitherLookupTable table) {
+    this.colorMap = table.getColorMap();
     switch (type) {
       case TWO:
         this.matrix = BAYER_MATRIX_TWO;
@@ -67,6 +79,28 @@ public class OrderedDither implements DitherAlgorithm {
     }
     this.correction = 255f / (this.size * this.size);
     convertToFloat();
+    this.floors = new int[this.size][OrderedDitherKernel.PATTERN_LENGTH];
+    this.ceils = new int[this.size][OrderedDitherKernel.PATTERN_LENGTH];
+    fillThresholds();
+    this.cacheKey =
+        String.format(
+            "%s[type=%s,distance=%s]",
+            getClass().getName(), type.name(), table.getDistance().getName());
+  }
+
+  private static OrderedDitherKernel createKernel() {
+    if (Boolean.parseBoolean(System.getProperty("minecraftmedialibrary.vector", "true"))) {
+      try {
+        // only present and loadable on Java 16+ with the jdk.incubator.vector module added
+        Class.forName("jdk.incubator.vector.IntVector");
+        final String name =
+            OrderedDither.class.getPackage().getName() + ".VectorOrderedDitherKernel";
+        return (OrderedDitherKernel) Class.forName(name).getDeclaredConstructor().newInstance();
+      } catch (final ReflectiveOperationException | LinkageError ignored) {
+        // fall back to the scalar kernel
+      }
+    }
+    return new ScalarOrderedDitherKernel();
   }
 
   public static float[][] getBayerMatrixTwo() {
@@ -81,20 +115,6 @@ public class OrderedDither implements DitherAlgorithm {
     return BAYER_MATRIX_EIGHT;
   }
 
-  private int getBestColorNormal(final int rgb) {
-    return MapPalette.getColor(getBestColor(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF))
-        .getRGB();
-  }
-
-  private byte getBestColor(final int rgb) {
-    return COLOR_MAP[
-        (rgb >> 16 & 0xFF) >> 1 << 14 | (rgb >> 8 & 0xFF) >> 1 << 7 | (rgb & 0xFF) >> 1];
-  }
-
-  private byte getBestColor(final int red, final int green, final int blue) {
-    return COLOR_MAP[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
-  }
-
   private void convertToFloat() {
     for (int i = 0; i < this.matrix.length; i++) {
       for (int j = 0; j < this.matrix[i].length; j++) {
@@ -103,37 +123,75 @@ public class OrderedDither implements DitherAlgorithm {
     }
   }
 
+  private void fillThresholds() {
+    // a pixel plus the threshold is truncated towards zero, which is the floor of the threshold
+    // added to a pixel whose sum is positive and its ceiling otherwise
+    for (int y = 0; y < this.size; y++) {
+      for (int x = 0; x < OrderedDitherKernel.PATTERN_LENGTH; x++) {
+        final double threshold = this.correction * (this.matrix[x % this.size][y] - 0.5);
+        this.floors[y][x] = (int) Math.floor(threshold);
+        this.ceils[y][x] = (int) Math.ceil(threshold);
+      }
+    }
+  }
+
   @Override
   public void dither(final int[] buffer, final int width) {
     final int height = buffer.length / width;
+    final byte[] row = new byte[width];
     for (int y = 0; y < height; y++) {
       final int yIndex = y * width;
+      final int phase = y % this.size;
+      KERNEL.ditherRow(
+          buffer, yIndex, width, this.floors[phase], this.ceils[phase], this.colorMap, row, 0);
       for (int x = 0; x < width; x++) {
-        final int index = yIndex + x;
-        buffer[index] =
-            getBestColorNormal(
-                (int)
-                    (buffer[index]
-                        + this.correction * ((this.matrix[x % this.size][y % this.size] - 0.5))));
+        buffer[yIndex + x] = MapPalette.getColor(row[x]).getRGB();
       }
     }
   }
 
   @Override
   public ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width) {
-    final int height = buffer.length / width;
     final ByteBuffer data = ByteBuffer.allocate(buffer.length);
+    ditherIntoMinecraft(buffer, width, data, new DitherContext());
+    return data;
+  }
+
+  @Override
+  public void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
+    final int height = buffer.length / width;
+    if (data.hasArray()) {
+      final byte[] array = data.array();
+      final int offset = data.arrayOffset();
+      for (int y = 0; y < height; y++) {
+        final int yIndex = y * width;
+        final int phase = y % this.size;
+        KERNEL.ditherRow(
+            buffer,
+            yIndex,
+            width,
+            this.floors[phase],
+            this.ceils[phase],
+            this.colorMap,
+            array,
+            offset + yIndex);
+      }
+      return;
+    }
+    final byte[] row = context.getRowBuffer(width);
+    final ByteBuffer view = data.duplicate();
     for (int y = 0; y < height; y++) {
       final int yIndex = y * width;
-      for (int x = 0; x < width; x++) {
-        data.put(
-            getBestColor(
-                (int)
-                    (buffer[yIndex + x]
-                        + this.correction * ((this.matrix[x % this.size][y % this.size] - 0.5)))));
-      }
+      final int phase = y % this.size;
+      KERNEL.ditherRow(
+          buffer, yIndex, width, this.floors[phase], this.ceils[phase], this.colorMap, row, 0);
+      view.position(yIndex);
+      view.put(row, 0, width);
     }
-    return data;
   }
 
   public float[][] getMatrix() {
@@ -152,6 +210,11 @@ public class OrderedDither implements DitherAlgorithm {
     return this.size;
   }
 
+  @Override
+  public @NotNull String getCacheKey() {
+    return this.cacheKey;
+  }
+
   public enum DitherType {
     TWO,
     FOUR,
@@ -0,0 +1,36 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+/**
+ * Dithers rows of pixels for the {@link OrderedDither}. The thresholds of a row are passed as the
+ * floor and ceiling of the threshold at every column, repeated every {@link #PATTERN_LENGTH}
+ * columns, so the threshold of a pixel is picked with a mask instead of a modulo.
+ */
+interface OrderedDitherKernel {
+
+  /** Length of the threshold patterns, a multiple of the matrix sizes and vector lengths. */
+  int PATTERN_LENGTH = 64;
+
+  int PATTERN_MASK = PATTERN_LENGTH - 1;
+
+  /**
+   * Writes the palette colors of one row.
+   *
+   * @param buffer the rgb pixels
+   * @param offset the index of the first pixel of the row
+   * @param width the width of the row
+   * @param floors the floors of the thresholds of the row
+   * @param ceils the ceilings of the thresholds of the row
+   * @param colorMap the lookup table
+   * @param out the array to write the colors into
+   * @param outOffset the index to write the first color at
+   */
+  void ditherRow(
+      final int[] buffer,
+      final int offset,
+      final int width,
+      final int[] floors,
+      final int[] ceils,
+      final byte[] colorMap,
+      final byte[] out,
+      final int outOffset);
+}
@@ -0,0 +1,392 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Error diffusion dithering which splits the frame into horizontal bands and dithers each band as
+ * its own task on the common {@link ForkJoinPool}. Every band first diffuses a few rows above its
+ * start without writing them. Those warm-up rows start from zero error, so the error carried
+ * across a seam only approximates what the serial algorithm would have produced, and rows near a
+ * seam can differ from its output.
+ *
+ * <p>With a parallelism of one the frame is a single band and the output is identical to {@link
+ * FloydDither} or {@link FilterLiteDither}. Contexts with temporal dithering turned on are dithered
+ * serially by those algorithms, since the bands cannot share the previous frame's colors.
+ *
+ * @author PulseBeat_02
+ */
+public class ParallelDither implements DitherAlgorithm {
+
+  private static final int WARMUP_ROWS = 8;
+  private static final int MINIMUM_BAND_HEIGHT = 16;
+
+  private final DiffusionType type;
+  private final DitherLookupTable table;
+  private final ThreadLocal<DitherContext> contexts;
+  private final DitherAlgorithm fallback;
+  private final int parallelism;
+
+  public ParallelDither(@NotNull final DiffusionType type) {
+    this(type, Runtime.getRuntime().availableProcessors());
+  }
+
+  public ParallelDither(@NotNull final DiffusionType type, final int parallelism) {
+    this(type, parallelism, DitherLookupUtil.DEFAULT_TABLE);
+  }
+
+  public ParallelDither(
+      @NotNull final DiffusionType type,
+      final int parallelism,
+      @NotNull final DitherLookupTable table) {
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be greater than 0!");
+    this.type = type;
+    this.table = table;
+    this.parallelism = parallelism;
+    this.contexts = ThreadLocal.withInitial(DitherContext::new);
+    this.fallback =
+        type == DiffusionType.FLOYD_STEINBERG
+            ? new FloydDither(table)
+            : new FilterLiteDither(table);
+  }
+
+  @Override
+  public void dither(final int[] buffer, final int width) {
+    final int height = buffer.length / width;
+    final List<DitherBand> bands = new ArrayList<>(this.parallelism);
+    final int bandHeight = getBandHeight(height);
+    for (int start = 0; start < height; start += bandHeight) {
+      final int end = Math.min(height, start + bandHeight);
+      final int warmup = Math.max(0, start - WARMUP_ROWS);
+
+      // the bands above overwrite their rows in place, so keep a copy of the warm-up rows
+      final int[] rows = new int[(start - warmup) * width];
+      System.arraycopy(buffer, warmup * width, rows, 0, rows.length);
+      bands.add(
+          new DitherBand(
+              this.type,
+              this.table,
+              this.contexts,
+              buffer,
+              rows,
+              0,
+              width,
+              height,
+              warmup,
+              start,
+              end,
+              buffer,
+              null));
+    }
+    ForkJoinPool.commonPool().invoke(new DitherFrame(bands));
+  }
+
+  @Override
+  public ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width) {
+    final ByteBuffer data = ByteBuffer.allocate(buffer.length);
+    ditherIntoMinecraft(buffer, width, data, new DitherContext());
+    return data;
+  }
+
+  @Override
+  public void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
+    if (context.isTemporal()) {
+      this.fallback.ditherIntoMinecraft(buffer, width, data, context);
+      return;
+    }
+    final int height = buffer.length / width;
+    final List<DitherBand> bands = new ArrayList<>(this.parallelism);
+    final int bandHeight = getBandHeight(height);
+    for (int start = 0; start < height; start += bandHeight) {
+      final int end = Math.min(height, start + bandHeight);
+      final int warmup = Math.max(0, start - WARMUP_ROWS);
+      bands.add(
+          new DitherBand(
+              this.type,
+              this.table,
+              this.contexts,
+              buffer,
+              buffer,
+              warmup * width,
+              width,
+              height,
+              warmup,
+              start,
+              end,
+              null,
+              data));
+    }
+    ForkJoinPool.commonPool().invoke(new DitherFrame(bands));
+  }
+
+  private int getBandHeight(final int height) {
+    return Math.max(MINIMUM_BAND_HEIGHT, (height + this.parallelism - 1) / this.parallelism);
+  }
+
+  public @NotNull DiffusionType getType() {
+    return this.type;
+  }
+
+  public @NotNull DitherLookupTable getTable() {
+    return this.table;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  // error diffusion restarts at every band, so the output also depends on the number of bands
+  @Override
+  public @NotNull String getCacheKey() {
+    return String.format(
+        "%s[type=%s,parallelism=%d,distance=%s]",
+        getClass().getName(),
+        this.type.name(),
+        this.parallelism,
+        this.table.getDistance().getName());
+  }
+
+  public enum DiffusionType {
+    FLOYD_STEINBERG,
+    FILTER_LITE
+  }
+}
+
+final class DitherFrame extends RecursiveAction {
+
+  private static final long serialVersionUID = 4017336785392214387L;
+  private final List<DitherBand> bands;
+
+  DitherFrame(final List<DitherBand> bands) {
+    this.bands = bands;
+  }
+
+  @Override
+  protected void compute() {
+    invokeAll(this.bands);
+  }
+}
+
+final class DitherBand extends RecursiveAction {
+
+  private static final long serialVersionUID = -2895127318873049436L;
+  private final ParallelDither.DiffusionType type;
+  private final byte[] colorMap;
+  private final int[] fullColorMap;
+  private final ThreadLocal<DitherContext> contexts;
+  private final int[] buffer;
+  private final int[] warmupRows;
+  private final int warmupOffset;
+  private final int width;
+  private final int height;
+  private final int warmup;
+  private final int start;
+  private final int end;
+  private final int[] target;
+  private final ByteBuffer data;
+
+  DitherBand(
+      final ParallelDither.DiffusionType type,
+      final DitherLookupTable table,
+      final ThreadLocal<DitherContext> contexts,
+      final int[] buffer,
+      final int[] warmupRows,
+      final int warmupOffset,
+      final int width,
+      final int height,
+      final int warmup,
+      final int start,
+      final int end,
+      final int[] target,
+      final ByteBuffer data) {
+    this.type = type;
+    this.colorMap = table.getColorMap();
+    this.fullColorMap = table.getFullColorMap();
+    this.contexts = contexts;
+    this.buffer = buffer;
+    this.warmupRows = warmupRows;
+    this.warmupOffset = warmupOffset;
+    this.width = width;
+    this.height = height;
+    this.warmup = warmup;
+    this.start = start;
+    this.end = end;
+    this.target = target;
+    this.data = data;
+  }
+
+  @Override
+  protected void compute() {
+    final int[][] dither_buffer = this.contexts.get().getErrorBuffer(this.width);
+    for (int y = this.warmup; y < this.start; y++) {
+      final int index = this.warmupOffset + (y - this.warmup) * this.width;
+      diffuseRow(this.warmupRows, index, y, dither_buffer, null, null);
+    }
+    for (int y = this.start; y < this.end; y++) {
+      diffuseRow(this.buffer, y * this.width, y, dither_buffer, this.target, this.data);
+    }
+  }
+
+  private void diffuseRow(
+      final int[] source,
+      final int sourceIndex,
+      final int y,
+      final int[][] dither_buffer,
+      final int[] target,
+      final ByteBuffer data) {
+    final int width = this.width;
+    final int widthMinus = width - 1;
+    final boolean hasNextY = y < this.height - 1;
+    final boolean floyd = this.type == ParallelDither.DiffusionType.FLOYD_STEINBERG;
+    final int yIndex = y * width;
+    if ((y & 0x1) == 0) {
+      int bufferIndex = 0;
+      final int[] buf1 = dither_buffer[0];
+      final int[] buf2 = dither_buffer[1];
+      for (int x = 0; x < width; ++x) {
+        final boolean hasPrevX = x > 0;
+        final boolean hasNextX = x < widthMinus;
+        final int rgb = source[sourceIndex + x];
+        int red = rgb >> 16 & 0xFF;
+        int green = rgb >> 8 & 0xFF;
+        int blue = rgb & 0xFF;
+        red = (red += buf1[bufferIndex++]) > 255 ? 255 : red < 0 ? 0 : red;
+        green = (green += buf1[bufferIndex++]) > 255 ? 255 : green < 0 ? 0 : green;
+        blue = (blue += buf1[bufferIndex++]) > 255 ? 255 : blue < 0 ? 0 : blue;
+        final int closest = getBestFullColor(red, green, blue);
+        final int delta_r = red - (closest >> 16 & 0xFF);
+        final int delta_g = green - (closest >> 8 & 0xFF);
+        final int delta_b = blue - (closest & 0xFF);
+        if (floyd) {
+          if (hasNextX) {
+            buf1[bufferIndex] = (int) (0.4375 * delta_r);
+            buf1[bufferIndex + 1] = (int) (0.4375 * delta_g);
+            buf1[bufferIndex + 2] = (int) (0.4375 * delta_b);
+          }
+          if (hasNextY) {
+            if (hasPrevX) {
+              buf2[bufferIndex - 6] = (int) (0.1875 * delta_r);
+              buf2[bufferIndex - 5] = (int) (0.1875 * delta_g);
+              buf2[bufferIndex - 4] = (int) (0.1875 * delta_b);
+            }
+            buf2[bufferIndex - 3] = (int) (0.3125 * delta_r);
+            buf2[bufferIndex - 2] = (int) (0.3125 * delta_g);
+            buf2[bufferIndex - 1] = (int) (0.3125 * delta_b);
+            if (hasNextX) {
+              buf2[bufferIndex] = (int) (0.0625 * delta_r);
+              buf2[bufferIndex + 1] = (int) (0.0625 * delta_g);
+              buf2[bufferIndex + 2] = (int) (0.0625 * delta_b);
+            }
+          }
+        } else {
+          if (hasNextX) {
+            buf1[bufferIndex] = delta_r >> 1;
+            buf1[bufferIndex + 1] = delta_g >> 1;
+            buf1[bufferIndex + 2] = delta_b >> 1;
+          }
+          if (hasNextY) {
+            if (hasPrevX) {
+              buf2[bufferIndex - 6] = delta_r >> 2;
+              buf2[bufferIndex - 5] = delta_g >> 2;
+              buf2[bufferIndex - 4] = delta_b >> 2;
+            }
+            buf2[bufferIndex - 3] = delta_r >> 2;
+            buf2[bufferIndex - 2] = delta_g >> 2;
+            buf2[bufferIndex - 1] = delta_b >> 2;
+          }
+        }
+        write(target, data, yIndex + x, closest);
+      }
+    } else {
+      int bufferIndex = width + (width << 1) - 1;
+      final int[] buf1 = dither_buffer[1];
+      final int[] buf2 = dither_buffer[0];
+      for (int x = width - 1; x >= 0; --x) {
+        final boolean hasPrevX = x < widthMinus;
+        final boolean hasNextX = x > 0;
+        final int rgb = source[sourceIndex + x];
+        int red = rgb >> 16 & 0xFF;
+        int green = rgb >> 8 & 0xFF;
+        int blue = rgb & 0xFF;
+        blue = (blue += buf1[bufferIndex--]) > 255 ? 255 : blue < 0 ? 0 : blue;
+        green = (green += buf1[bufferIndex--]) > 255 ? 255 : green < 0 ? 0 : green;
+        red = (red += buf1[bufferIndex--]) > 255 ? 255 : red < 0 ? 0 : red;
+        final int closest = getBestFullColor(red, green, blue);
+        final int delta_r = red - (closest >> 16 & 0xFF);
+        final int delta_g = green - (closest >> 8 & 0xFF);
+        final int delta_b = blue - (closest & 0xFF);
+        if (floyd) {
+          if (hasNextX) {
+            buf1[bufferIndex] = (int) (0.4375 * delta_b);
+            buf1[bufferIndex - 1] = (int) (0.4375 * delta_g);
+            buf1[bufferIndex - 2] = (int) (0.4375 * delta_r);
+          }
+          if (hasNextY) {
+            if (hasPrevX) {
+              buf2[bufferIndex + 6] = (int) (0.1875 * delta_b);
+              buf2[bufferIndex + 5] = (int) (0.1875 * delta_g);
+              buf2[bufferIndex + 4] = (int) (0.1875 * delta_r);
+            }
+            buf2[bufferIndex + 3] = (int) (0.3125 * delta_b);
+            buf2[bufferIndex + 2] = (int) (0.3125 * delta_g);
+            buf2[bufferIndex + 1] = (int) (0.3125 * delta_r);
+            if (hasNextX) {
+              buf2[bufferIndex] = (int) (0.0625 * delta_b);
+              buf2[bufferIndex - 1] = (int) (0.0625 * delta_g);
+              buf2[bufferIndex - 2] = (int) (0.0625 * delta_r);
+            }
+          }
+        } else {
+          if (hasNextX) {
+            buf1[bufferIndex] = delta_b >> 1;
+            buf1[bufferIndex - 1] = delta_g >> 1;
+            buf1[bufferIndex - 2] = delta_r >> 1;
+          }
+          if (hasNextY) {
+            if (hasPrevX) {
+              buf2[bufferIndex + 6] = delta_b >> 2;
+              buf2[bufferIndex + 5] = delta_g >> 2;
+              buf2[bufferIndex + 4] = delta_r >> 2;
+            }
+            buf2[bufferIndex + 3] = delta_b >> 2;
+            buf2[bufferIndex + 2] = delta_g >> 2;
+            buf2[bufferIndex + 1] = delta_r >> 2;
+          }
+        }
+        write(target, data, yIndex + x, closest);
+      }
+    }
+  }
+
+  private void write(
+      final int[] target, final ByteBuffer data, final int index, final int closest) {
+    if (target != null) {
+      target[index] = closest;
+    }
+    if (data != null) {
+      data.put(index, getBestColor(closest));
+    }
+  }
+
+  private int getBestFullColor(final int red, final int green, final int blue) {
+    return this.fullColorMap[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
+  }
+
+  private byte getBestColor(final int rgb) {
+    return this.colorMap[
+        (rgb >> 16 & 0xFF) >> 1 << 14 | (rgb >> 8 & 0xFF) >> 1 << 7 | (rgb & 0xFF) >> 1];
+  }
+}
@@ -0,0 +1,46 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+/** Dithers eight pixels per iteration, running on any Java version. */
+final class ScalarOrderedDitherKernel implements OrderedDitherKernel {
+
+  static byte getColor(final byte[] colorMap, final int pixel, final int floor, final int ceil) {
+    // the sum is clamped like the cast to int it replaces
+    final long sum = (long) pixel + (pixel >= -floor ? floor : ceil);
+    final int rgb =
+        sum > Integer.MAX_VALUE
+            ? Integer.MAX_VALUE
+            : sum < Integer.MIN_VALUE ? Integer.MIN_VALUE : (int) sum;
+    return colorMap[(rgb >>> 17 & 0x7F) << 14 | (rgb >>> 9 & 0x7F) << 7 | rgb >>> 1 & 0x7F];
+  }
+
+  @Override
+  public void ditherRow(
+      final int[] buffer,
+      final int offset,
+      final int width,
+      final int[] floors,
+      final int[] ceils,
+      final byte[] colorMap,
+      final byte[] out,
+      final int outOffset) {
+    final int bound = width & ~7;
+    int x = 0;
+    for (; x < bound; x += 8) {
+      final int in = offset + x;
+      final int to = outOffset + x;
+      final int p = x & PATTERN_MASK;
+      out[to] = getColor(colorMap, buffer[in], floors[p], ceils[p]);
+      out[to + 1] = getColor(colorMap, buffer[in + 1], floors[p + 1], ceils[p + 1]);
+      out[to + 2] = getColor(colorMap, buffer[in + 2], floors[p + 2], ceils[p + 2]);
+      out[to + 3] = getColor(colorMap, buffer[in + 3], floors[p + 3], ceils[p + 3]);
+      out[to + 4] = getColor(colorMap, buffer[in + 4], floors[p + 4], ceils[p + 4]);
+      out[to + 5] = getColor(colorMap, buffer[in + 5], floors[p + 5], ceils[p + 5]);
+      out[to + 6] = getColor(colorMap, buffer[in + 6], floors[p + 6], ceils[p + 6]);
+      out[to + 7] = getColor(colorMap, buffer[in + 7], floors[p + 7], ceils[p + 7]);
+    }
+    for (; x < width; x++) {
+      final int p = x & PATTERN_MASK;
+      out[outOffset + x] = getColor(colorMap, buffer[offset + x], floors[p], ceils[p]);
+    }
+  }
+}
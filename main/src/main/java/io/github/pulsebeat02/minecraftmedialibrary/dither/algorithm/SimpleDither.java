@@ -1,13 +1,28 @@
 package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
 
 import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
 import io.github.pulsebeat02.minecraftmedialibrary.dither.MapPalette;
 import java.nio.ByteBuffer;
-
-import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil.COLOR_MAP;
+import org.jetbrains.annotations.NotNull;
 
 public class SimpleDither implements DitherAlgorithm {
 
+  private final byte[] colorMap;
+  private final String cacheKey;
+
+  public SimpleDither() {
+    this(DitherLookupUtil.DEFAULT_TABLE);
+  }
+
+  public SimpleDither(@NotNull final DitherLookupTable table) {
+    this.colorMap = table.getColorMap();
+    this.cacheKey =
+        String.format("%s[distance=%s]", getClass().getName(), table.getDistance().getName());
+  }
+
   @Override
   public void dither(final int[] buffer, final int width) {
     final int height = buffer.length / width;
@@ -22,23 +37,28 @@ public class SimpleDither implements DitherAlgorithm {
 
   @Override
   public ByteBuffer ditherIntoMinecraft(final int[] buffer, final int width) {
-    final int height = buffer.length / width;
     final ByteBuffer data = ByteBuffer.allocate(buffer.length);
-    for (int y = 0; y < height; y++) {
-      final int yIndex = y * width;
-      for (int x = 0; x < width; x++) {
-        data.put(getBestColor(buffer[yIndex + x]));
-      }
-    }
+    ditherIntoMinecraft(buffer, width, data, new DitherContext());
     return data;
   }
 
+  @Override
+  public void ditherIntoMinecraft(
+      final int[] buffer,
+      final int width,
+      @NotNull final ByteBuffer data,
+      @NotNull final DitherContext context) {
+    for (int index = 0; index < buffer.length; index++) {
+      data.put(index, getBestColor(buffer[index]));
+    }
+  }
+
   private byte getBestColor(final int red, final int green, final int blue) {
-    return COLOR_MAP[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
+    return this.colorMap[red >> 1 << 14 | green >> 1 << 7 | blue >> 1];
   }
 
   private byte getBestColor(final int rgb) {
-    return COLOR_MAP[
+    return this.colorMap[
         (rgb >> 16 & 0xFF) >> 1 << 14 | (rgb >> 8 & 0xFF) >> 1 << 7 | (rgb & 0xFF) >> 1];
   }
 
@@ -46,4 +66,9 @@ public class SimpleDither implements DitherAlgorithm {
     return MapPalette.getColor(getBestColor(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF))
         .getRGB();
   }
+
+  @Override
+  public @NotNull String getCacheKey() {
+    return this.cacheKey;
+  }
 }
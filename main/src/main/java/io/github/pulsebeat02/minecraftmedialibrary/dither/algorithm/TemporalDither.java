@@ -0,0 +1,85 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+
+import static io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil.PALETTE;
+
+/**
+ * The per pixel steps of temporal error diffusion, shared by the serpentine loops of {@link
+ * FloydDither} and {@link FilterLiteDither}. The color of the last frame is kept for a pixel as
+ * long as it is at most the tolerance of the context further from the pixel than the best match.
+ * The error of a kept color is diffused like any other, so the average color of an area stays
+ * right while its noise pattern stays put.
+ */
+final class TemporalDither {
+
+  private TemporalDither() {}
+
+  /**
+   * Gives an unchanged pixel the error diffused into it last frame if errors are seeded, otherwise
+   * stores the error diffused into it this frame for the next one.
+   *
+   * @param row the error buffer of the row
+   * @param offset the offset of the red error of the pixel in the row
+   * @param index the index of the pixel
+   * @param rgb the color of the pixel
+   * @param seeding whether errors are seeded
+   * @param colors the palette colors of the last frame
+   * @param pixels the pixels of the last frame
+   * @param errors the errors of the last frame
+   */
+  static void seedError(
+      final int @NotNull [] row,
+      final int offset,
+      final int index,
+      final int rgb,
+      final boolean seeding,
+      final byte @NotNull [] colors,
+      final int @NotNull [] pixels,
+      final int @NotNull [] errors) {
+    final int errorIndex = index * 3;
+    if (seeding && colors[index] != 0 && pixels[index] == rgb) {
+      row[offset] = errors[errorIndex];
+      row[offset + 1] = errors[errorIndex + 1];
+      row[offset + 2] = errors[errorIndex + 2];
+    } else {
+      errors[errorIndex] = row[offset];
+      errors[errorIndex + 1] = row[offset + 1];
+      errors[errorIndex + 2] = row[offset + 2];
+    }
+    pixels[index] = rgb;
+  }
+
+  /**
+   * Gets the palette color of the last frame if it is close enough to keep.
+   *
+   * @param red the red of the pixel, error included
+   * @param green the green of the pixel, error included
+   * @param blue the blue of the pixel, error included
+   * @param best the closest palette color
+   * @param previous the palette color of the last frame
+   * @param tolerance the temporal tolerance
+   * @return the palette color to keep, or 0 to use the closest color
+   */
+  static int getKeptColor(
+      final int red,
+      final int green,
+      final int blue,
+      final int best,
+      final byte previous,
+      final int tolerance) {
+    final int color = previous & 0xFF;
+    if (color != 0
+        && getDistance(red, green, blue, PALETTE[color])
+            <= getDistance(red, green, blue, best) + tolerance) {
+      return color;
+    }
+    return 0;
+  }
+
+  private static int getDistance(final int red, final int green, final int blue, final int rgb) {
+    return Math.max(
+        Math.abs(red - (rgb >> 16 & 0xFF)),
+        Math.max(Math.abs(green - (rgb >> 8 & 0xFF)), Math.abs(blue - (rgb & 0xFF))));
+  }
+}
@@ -0,0 +1,33 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import org.jetbrains.annotations.NotNull;
+
+/** The euclidean distance in CIELAB (D65), also known as delta E 1976. */
+public final class CIE76Distance implements ColorDistance {
+
+  CIE76Distance() {}
+
+  @Override
+  public @NotNull String getName() {
+    return "cie76";
+  }
+
+  @Override
+  public void toCoordinates(final int rgb, final float @NotNull [] coordinates) {
+    ColorSpaces.toLab(rgb, coordinates);
+  }
+
+  @Override
+  public float getDistance(final float @NotNull [] first, final float @NotNull [] second) {
+    final float l = first[0] - second[0];
+    final float a = first[1] - second[1];
+    final float b = first[2] - second[2];
+    return l * l + a * a + b * b;
+  }
+
+  @Override
+  public float getAxisBound(
+      final float @NotNull [] query, final int axis, final float delta) {
+    return delta * delta;
+  }
+}
@@ -0,0 +1,211 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delta E 2000 in CIELAB (D65), the most accurate and most expensive of the strategies. Returns
+ * the squared difference. Only lightness bounds the distance along an axis, so a {@link
+ * PaletteTree} still visits many colors, but most of them are rejected through lower bounds of
+ * the distance which skip the trigonometry.
+ */
+public final class CIEDE2000Distance implements ColorDistance {
+
+  private static final double POW_25_7 = Math.pow(25, 7);
+
+  // the formula is written in degrees, everything here is kept in radians
+  private static final double TWO_PI = Math.PI * 2.0;
+  private static final double SIXTY_DEGREES = Math.toRadians(60.0);
+  private static final double BLUE_HUE = Math.toRadians(275.0);
+  private static final double BLUE_HUE_WIDTH = Math.toRadians(25.0);
+  private static final double COS_30 = Math.cos(Math.toRadians(30.0));
+  private static final double SIN_30 = Math.sin(Math.toRadians(30.0));
+  private static final double COS_6 = Math.cos(Math.toRadians(6.0));
+  private static final double SIN_6 = Math.sin(Math.toRadians(6.0));
+  private static final double COS_63 = Math.cos(Math.toRadians(63.0));
+  private static final double SIN_63 = Math.sin(Math.toRadians(63.0));
+
+  // bounds of the terms which depend on the hue, used to reject colors before computing it. T lies
+  // within [0.362, 1.573], and R_T never exceeds R_C times sin(60)
+  private static final double MIN_T = 0.36;
+  private static final double MAX_T = 1.58;
+  private static final double SIN_60 = Math.sin(SIXTY_DEGREES);
+  private static final double MAX_SL_SQUARED =
+      Math.pow(1.0 + 0.015 * 2500.0 / Math.sqrt(2520.0), 2.0);
+
+  // bounds are shrunk a little so rounding never makes them exceed the distance they bound
+  private static final double BOUND_SCALE = 1.0 - 1e-6;
+
+  CIEDE2000Distance() {}
+
+  @Override
+  public @NotNull String getName() {
+    return "ciede2000";
+  }
+
+  @Override
+  public void toCoordinates(final int rgb, final float @NotNull [] coordinates) {
+    ColorSpaces.toLab(rgb, coordinates);
+  }
+
+  @Override
+  public float getDistance(final float @NotNull [] first, final float @NotNull [] second) {
+    final double l1 = first[0], a1 = first[1], b1 = first[2];
+    final double l2 = second[0], a2 = second[1], b2 = second[2];
+
+    final double cBar = (Math.sqrt(a1 * a1 + b1 * b1) + Math.sqrt(a2 * a2 + b2 * b2)) * 0.5;
+    final double g = 0.5 * (1.0 - chromaWeight(cBar));
+    final double a1p = (1.0 + g) * a1;
+    final double a2p = (1.0 + g) * a2;
+    final double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+    final double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+    final double h1p = hueAngle(b1, a1p);
+    final double h2p = hueAngle(b2, a2p);
+
+    final double deltaL = l2 - l1;
+    final double deltaC = c2p - c1p;
+    final double chromaProduct = c1p * c2p;
+    double deltaH = 0.0;
+    if (chromaProduct != 0.0) {
+      deltaH = h2p - h1p;
+      if (deltaH > Math.PI) {
+        deltaH -= TWO_PI;
+      } else if (deltaH < -Math.PI) {
+        deltaH += TWO_PI;
+      }
+    }
+    final double deltaHue = 2.0 * Math.sqrt(chromaProduct) * Math.sin(deltaH * 0.5);
+
+    final double lBarP = (l1 + l2) * 0.5;
+    final double cBarP = (c1p + c2p) * 0.5;
+    double hBarP = h1p + h2p;
+    if (chromaProduct != 0.0) {
+      if (Math.abs(h1p - h2p) > Math.PI) {
+        hBarP = hBarP < TWO_PI ? (hBarP + TWO_PI) * 0.5 : (hBarP - TWO_PI) * 0.5;
+      } else {
+        hBarP *= 0.5;
+      }
+    }
+
+    final double t = getT(Math.cos(hBarP), Math.sin(hBarP));
+    final double hueOffset = (hBarP - BLUE_HUE) / BLUE_HUE_WIDTH;
+    final double deltaTheta = SIXTY_DEGREES * Math.exp(-hueOffset * hueOffset);
+    final double rc = 2.0 * chromaWeight(cBarP);
+    final double lightness = (lBarP - 50.0) * (lBarP - 50.0);
+    final double sl = 1.0 + 0.015 * lightness / Math.sqrt(20.0 + lightness);
+    final double sc = 1.0 + 0.045 * cBarP;
+    final double sh = 1.0 + 0.015 * cBarP * t;
+    final double rt = -Math.sin(deltaTheta) * rc;
+
+    final double l = deltaL / sl;
+    final double c = deltaC / sc;
+    final double h = deltaHue / sh;
+    return (float) (l * l + c * c + h * h + rt * c * h);
+  }
+
+  @Override
+  public float getDistance(
+      final float @NotNull [] first, final float @NotNull [] second, final float limit) {
+    // S_L is at most its value at lightness 0 or 100
+    final double deltaL = second[0] - first[0];
+    if (deltaL * deltaL / MAX_SL_SQUARED * BOUND_SCALE > limit) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    // with S_H <= S_C the chroma and hue terms are at least (delta C'^2 + delta H'^2) / S_C^2,
+    // which is the squared distance in a'b' over S_C^2, and the rotation term removes at most
+    // R_T / 2 of that. G is exact, C' is at most (1 + G) C, which bounds S_C and R_T from above
+    final double a1 = first[1], b1 = first[2];
+    final double a2 = second[1], b2 = second[2];
+    final double cBar = (Math.sqrt(a1 * a1 + b1 * b1) + Math.sqrt(a2 * a2 + b2 * b2)) * 0.5;
+    final double g = 0.5 * (1.0 - chromaWeight(cBar));
+    final double lBarP = (first[0] + second[0]) * 0.5;
+    final double lightness = (lBarP - 50.0) * (lBarP - 50.0);
+    final double sl = 1.0 + 0.015 * lightness / Math.sqrt(20.0 + lightness);
+    final double l = deltaL / sl;
+    final double maxCBarP = (1.0 + g) * cBar;
+    final double deltaA = (1.0 + g) * (a2 - a1);
+    final double deltaB = b2 - b1;
+    final double distance = deltaA * deltaA + deltaB * deltaB;
+    final double maxSc = 1.0 + 0.045 * maxCBarP;
+    final double maxRt = 2.0 * chromaWeight(maxCBarP) * SIN_60;
+    final double bound = l * l + (1.0 - maxRt * 0.5) * distance / (maxSc * maxSc);
+    if (bound * BOUND_SCALE > limit) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    // the chroma term exactly, and the hue term between the extremes of T. the smallest
+    // c^2 + h^2 - R_T c h over those is at h = R_T c / 2, clamped to the range of h
+    final double a1p = (1.0 + g) * a1;
+    final double a2p = (1.0 + g) * a2;
+    final double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+    final double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+    final double deltaC = c2p - c1p;
+    final double deltaHue = Math.sqrt(Math.max(0.0, distance - deltaC * deltaC));
+    final double cBarP = (c1p + c2p) * 0.5;
+    final double rt = 2.0 * chromaWeight(cBarP) * SIN_60;
+    final double c = Math.abs(deltaC) / (1.0 + 0.045 * cBarP);
+    final double minH = deltaHue / (1.0 + 0.015 * cBarP * MAX_T);
+    final double maxH = deltaHue / (1.0 + 0.015 * cBarP * MIN_T);
+    final double h = Math.min(Math.max(rt * c * 0.5, minH), maxH);
+    if ((l * l + c * c + h * h - rt * c * h) * BOUND_SCALE > limit) {
+      return Float.POSITIVE_INFINITY;
+    }
+
+    // the mean hue points along the sum of both hue directions, which gives T and S_H exactly
+    // without any angles. only the rotation term is still bounded
+    final double x = (c1p == 0.0 ? 0.0 : a1p / c1p) + (c2p == 0.0 ? 0.0 : a2p / c2p);
+    final double y = (c1p == 0.0 ? 0.0 : b1 / c1p) + (c2p == 0.0 ? 0.0 : b2 / c2p);
+    final double length = Math.sqrt(x * x + y * y);
+    if (length > 1e-6) {
+      final double cos1 = x / length, sin1 = y / length;
+      final double sh = 1.0 + 0.015 * cBarP * getT(cos1, sin1);
+      final double exactH = deltaHue / sh;
+      if ((l * l + c * c + exactH * exactH - rt * c * exactH) * BOUND_SCALE > limit) {
+        return Float.POSITIVE_INFINITY;
+      }
+    }
+    return getDistance(first, second);
+  }
+
+  @Override
+  public float getAxisBound(
+      final float @NotNull [] query, final int axis, final float delta) {
+    // lightness is the only term which is not mixed with the others, the chroma and hue terms
+    // together are never negative. delta / S_L only grows with delta, so the closest lightness on
+    // the far side gives the bound
+    if (axis != 0) {
+      return 0.0f;
+    }
+    final double lBarP = query[0] - delta * 0.5;
+    final double lightness = (lBarP - 50.0) * (lBarP - 50.0);
+    final double sl = 1.0 + 0.015 * lightness / Math.sqrt(20.0 + lightness);
+    final double l = delta / sl;
+    return (float) (l * l);
+  }
+
+  private double getT(final double cos1, final double sin1) {
+    // the four hue harmonics from one sine and cosine instead of four cosines
+    final double cos2 = cos1 * cos1 - sin1 * sin1, sin2 = 2.0 * sin1 * cos1;
+    final double cos3 = cos2 * cos1 - sin2 * sin1, sin3 = sin2 * cos1 + cos2 * sin1;
+    final double cos4 = cos2 * cos2 - sin2 * sin2, sin4 = 2.0 * sin2 * cos2;
+    return 1.0
+        - 0.17 * (cos1 * COS_30 + sin1 * SIN_30)
+        + 0.24 * cos2
+        + 0.32 * (cos3 * COS_6 - sin3 * SIN_6)
+        - 0.20 * (cos4 * COS_63 + sin4 * SIN_63);
+  }
+
+  private double chromaWeight(final double chroma) {
+    final double squared = chroma * chroma;
+    final double power = squared * squared * squared * chroma;
+    return Math.sqrt(power / (power + POW_25_7));
+  }
+
+  private double hueAngle(final double b, final double a) {
+    if (a == 0.0 && b == 0.0) {
+      return 0.0;
+    }
+    final double angle = Math.atan2(b, a);
+    return angle < 0.0 ? angle + TWO_PI : angle;
+  }
+}
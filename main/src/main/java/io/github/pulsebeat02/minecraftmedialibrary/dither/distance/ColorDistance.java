@@ -0,0 +1,79 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A strategy for measuring how far apart two colors are, used to find the closest palette color
+ * when building lookup tables. Colors are first converted into three coordinates, which is also
+ * the space the {@link PaletteTree} is built in.
+ */
+public interface ColorDistance {
+
+  ColorDistance REDMEAN = new RedmeanDistance();
+  ColorDistance CIE76 = new CIE76Distance();
+
+  /**
+   * Delta E 2000. Even though colors which cannot be the closest are mostly rejected through
+   * cheap bounds, building a lookup table which is not cached on disk yet still takes several
+   * seconds of cpu time, so get its table through {@link
+   * io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil#getLookupTableAsync}.
+   * Tables are built once per palette and read from the disk cache afterwards.
+   */
+  ColorDistance CIEDE2000 = new CIEDE2000Distance();
+
+  ColorDistance OKLAB = new OKLabDistance();
+
+  /**
+   * Gets the name of the strategy, which is used to key cached lookup tables.
+   *
+   * @return the name
+   */
+  @NotNull
+  String getName();
+
+  /**
+   * Converts the rgb color into the three coordinates of this strategy.
+   *
+   * @param rgb the rgb color
+   * @param coordinates the array to write the coordinates into
+   */
+  void toCoordinates(final int rgb, final float @NotNull [] coordinates);
+
+  /**
+   * Gets the distance between two converted colors. Only the ordering of distances matters, so
+   * strategies may return squared distances.
+   *
+   * @param first the first coordinates
+   * @param second the second coordinates
+   * @return the distance
+   */
+  float getDistance(final float @NotNull [] first, final float @NotNull [] second);
+
+  /**
+   * Gets the distance between two converted colors like {@link #getDistance(float[], float[])},
+   * but may instead return any value greater than the limit once the distance is known to exceed
+   * it. Expensive strategies override this to reject colors which cannot be the closest without
+   * computing their full distance. Defaults to the full distance.
+   *
+   * @param first the first coordinates
+   * @param second the second coordinates
+   * @param limit the distance above which the exact value is not needed
+   * @return the distance, or a value greater than the limit
+   */
+  default float getDistance(
+      final float @NotNull [] first, final float @NotNull [] second, final float limit) {
+    return getDistance(first, second);
+  }
+
+  /**
+   * Gets a lower bound of the distance between the query and any color whose coordinate on the
+   * passed axis lies at least delta away, on the far side of {@code query[axis] - delta}. Returning
+   * zero is always valid but disables pruning along that axis.
+   *
+   * @param query the coordinates searched for
+   * @param axis the axis
+   * @param delta the query coordinate minus the splitting coordinate
+   * @return the lower bound
+   */
+  float getAxisBound(final float @NotNull [] query, final int axis, final float delta);
+}
@@ -0,0 +1,49 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import org.jetbrains.annotations.NotNull;
+
+final class ColorSpaces {
+
+  private static final float[] LINEAR;
+
+  static {
+    LINEAR = new float[256];
+    for (int i = 0; i < 256; i++) {
+      final double c = i / 255.0;
+      LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+    }
+  }
+
+  private ColorSpaces() {}
+
+  static void toLab(final int rgb, final float @NotNull [] lab) {
+    final float r = LINEAR[rgb >> 16 & 0xFF];
+    final float g = LINEAR[rgb >> 8 & 0xFF];
+    final float b = LINEAR[rgb & 0xFF];
+    final double x = (0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / 0.95047;
+    final double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+    final double z = (0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / 1.08883;
+    final double fx = labCurve(x);
+    final double fy = labCurve(y);
+    final double fz = labCurve(z);
+    lab[0] = (float) (116.0 * fy - 16.0);
+    lab[1] = (float) (500.0 * (fx - fy));
+    lab[2] = (float) (200.0 * (fy - fz));
+  }
+
+  static void toOKLab(final int rgb, final float @NotNull [] lab) {
+    final float r = LINEAR[rgb >> 16 & 0xFF];
+    final float g = LINEAR[rgb >> 8 & 0xFF];
+    final float b = LINEAR[rgb & 0xFF];
+    final double l = Math.cbrt(0.4122214708 * r + 0.5363325363 * g + 0.0514459929 * b);
+    final double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+    final double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+    lab[0] = (float) (0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s);
+    lab[1] = (float) (1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s);
+    lab[2] = (float) (0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s);
+  }
+
+  private static double labCurve(final double t) {
+    return t > 216.0 / 24389.0 ? Math.cbrt(t) : (24389.0 / 27.0 * t + 16.0) / 116.0;
+  }
+}
@@ -0,0 +1,33 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import org.jetbrains.annotations.NotNull;
+
+/** The euclidean distance in Björn Ottosson's OKLab, which is close to perceptually uniform. */
+public final class OKLabDistance implements ColorDistance {
+
+  OKLabDistance() {}
+
+  @Override
+  public @NotNull String getName() {
+    return "oklab";
+  }
+
+  @Override
+  public void toCoordinates(final int rgb, final float @NotNull [] coordinates) {
+    ColorSpaces.toOKLab(rgb, coordinates);
+  }
+
+  @Override
+  public float getDistance(final float @NotNull [] first, final float @NotNull [] second) {
+    final float l = first[0] - second[0];
+    final float a = first[1] - second[1];
+    final float b = first[2] - second[2];
+    return l * l + a * a + b * b;
+  }
+
+  @Override
+  public float getAxisBound(
+      final float @NotNull [] query, final int axis, final float delta) {
+    return delta * delta;
+  }
+}
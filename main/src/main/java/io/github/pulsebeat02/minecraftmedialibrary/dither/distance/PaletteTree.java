@@ -0,0 +1,153 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A k-d tree over the palette colors in the coordinate space of a {@link ColorDistance}. Searches
+ * are exact for strategies which search with themselves: a branch is only skipped when the axis
+ * bound proves it cannot hold a closer color, and ties resolve to the lowest palette index like a
+ * linear scan would.
+ *
+ * <p>The tree itself is immutable and can be shared, but each thread needs its own {@link Search}.
+ */
+public final class PaletteTree {
+
+  private final ColorDistance distance;
+  private final float[][] points;
+  private final int[] nodes;
+  private final int[] axes;
+
+  /**
+   * Builds a tree of the palette, skipping the first colors which are transparent.
+   *
+   * @param distance the distance strategy
+   * @param palette the palette in rgb
+   * @param offset the first palette index to include
+   */
+  public PaletteTree(
+      @NotNull final ColorDistance distance, final int @NotNull [] palette, final int offset) {
+    this.distance = distance;
+    this.points = new float[palette.length][3];
+    final Integer[] indices = new Integer[palette.length - offset];
+    for (int i = offset; i < palette.length; i++) {
+      distance.toCoordinates(palette[i], this.points[i]);
+      indices[i - offset] = i;
+    }
+    this.nodes = new int[indices.length];
+    this.axes = new int[indices.length];
+    build(indices, 0, indices.length);
+  }
+
+  private void build(final Integer[] indices, final int from, final int to) {
+    if (from >= to) {
+      return;
+    }
+    final int axis = getWidestAxis(indices, from, to);
+    Arrays.sort(indices, from, to, Comparator.comparingDouble(i -> this.points[i][axis]));
+    final int middle = (from + to) >>> 1;
+    this.nodes[middle] = indices[middle];
+    this.axes[middle] = axis;
+    build(indices, from, middle);
+    build(indices, middle + 1, to);
+  }
+
+  private int getWidestAxis(final Integer[] indices, final int from, final int to) {
+    final float[] mins = new float[3];
+    final float[] spreads = new float[3];
+    for (int axis = 0; axis < 3; axis++) {
+      float min = Float.MAX_VALUE;
+      float max = -Float.MAX_VALUE;
+      for (int i = from; i < to; i++) {
+        final float value = this.points[indices[i]][axis];
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      mins[axis] = min;
+      spreads[axis] = max - min;
+    }
+    // measured through the axis bound, so axes which cannot prune are never split on
+    int widest = 0;
+    float spread = -1.0f;
+    for (int axis = 0; axis < 3; axis++) {
+      final float bound = this.distance.getAxisBound(mins, axis, -spreads[axis]);
+      if (bound > spread) {
+        spread = bound;
+        widest = axis;
+      }
+    }
+    return widest;
+  }
+
+  @NotNull
+  public Search newSearch() {
+    return new Search();
+  }
+
+  @NotNull
+  public ColorDistance getDistance() {
+    return this.distance;
+  }
+
+  /** Per thread search state, reused between queries. */
+  public final class Search {
+
+    private final float[] query = new float[3];
+    private float best;
+    private int bestIndex;
+    private int hint;
+
+    private Search() {}
+
+    /**
+     * Finds the closest palette color to the rgb color.
+     *
+     * @param rgb the rgb color
+     * @param hint a palette index likely to be close, such as the result for a neighbouring color,
+     *     or -1 if there is none
+     * @return the palette index
+     */
+    public int nearest(final int rgb, final int hint) {
+      PaletteTree.this.distance.toCoordinates(rgb, this.query);
+      this.best = Float.MAX_VALUE;
+      this.bestIndex = Integer.MAX_VALUE;
+      this.hint = hint;
+      if (hint >= 0) {
+        offer(hint);
+      }
+      search(0, PaletteTree.this.nodes.length);
+      return this.bestIndex;
+    }
+
+    private void offer(final int index) {
+      final float dist =
+          PaletteTree.this.distance.getDistance(
+              this.query, PaletteTree.this.points[index], this.best);
+      if (dist < this.best || (dist == this.best && index < this.bestIndex)) {
+        this.best = dist;
+        this.bestIndex = index;
+      }
+    }
+
+    private void search(final int from, final int to) {
+      if (from >= to) {
+        return;
+      }
+      final int middle = (from + to) >>> 1;
+      final int index = PaletteTree.this.nodes[middle];
+      final float[] point = PaletteTree.this.points[index];
+      // the hint was offered first already
+      if (index != this.hint) {
+        offer(index);
+      }
+      final int axis = PaletteTree.this.axes[middle];
+      final float delta = this.query[axis] - point[axis];
+      final boolean lower = delta < 0;
+      search(lower ? from : middle + 1, lower ? middle : to);
+      if (PaletteTree.this.distance.getAxisBound(this.query, axis, delta) <= this.best) {
+        search(lower ? middle + 1 : from, lower ? to : middle);
+      }
+    }
+  }
+}
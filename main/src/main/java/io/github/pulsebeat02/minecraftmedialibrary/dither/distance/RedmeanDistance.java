@@ -0,0 +1,42 @@
+package io.github.pulsebeat02.minecraftmedialibrary.dither.distance;
+
+import org.jetbrains.annotations.NotNull;
+
+/** The weighted rgb "redmean" approximation, which is the cheapest and the library default. */
+public final class RedmeanDistance implements ColorDistance {
+
+  RedmeanDistance() {}
+
+  @Override
+  public @NotNull String getName() {
+    return "redmean";
+  }
+
+  @Override
+  public void toCoordinates(final int rgb, final float @NotNull [] coordinates) {
+    coordinates[0] = rgb >> 16 & 0xFF;
+    coordinates[1] = rgb >> 8 & 0xFF;
+    coordinates[2] = rgb & 0xFF;
+  }
+
+  @Override
+  public float getDistance(final float @NotNull [] first, final float @NotNull [] second) {
+    final float red_avg = (first[0] + second[0]) * .5f;
+    final float redVal = first[0] - second[0];
+    final float greenVal = first[1] - second[1];
+    final float blueVal = first[2] - second[2];
+    final float weight_red = 2.0f + red_avg * (1f / 256f);
+    final float weight_green = 4.0f;
+    final float weight_blue = 2.0f + (255.0f - red_avg) * (1f / 256f);
+    return weight_red * redVal * redVal
+        + weight_green * greenVal * greenVal
+        + weight_blue * blueVal * blueVal;
+  }
+
+  @Override
+  public float getAxisBound(
+      final float @NotNull [] query, final int axis, final float delta) {
+    // the red and blue weights never drop below 2, the green weight is always 4
+    return (axis == 1 ? 4.0f : 2.0f) * delta * delta;
+  }
+}
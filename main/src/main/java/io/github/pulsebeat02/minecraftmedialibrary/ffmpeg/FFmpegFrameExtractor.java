@@ -0,0 +1,274 @@
+package io.github.pulsebeat02.minecraftmedialibrary.ffmpeg;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Decodes media with FFmpeg into raw frames read from a pipe, as fast as FFmpeg decodes them.
+ * Frames are scaled to fit the requested size keeping their aspect ratio, letterboxed in black, and
+ * passed to the consumer as packed RGB pixels, the format frame callbacks take. Players which pace
+ * frames themselves {@link #start(Consumer)} FFmpeg and read frames with {@link
+ * #readFrame(ReadableByteChannel, ByteBuffer)} instead, and FFmpeg waits while they do not read.
+ */
+public class FFmpegFrameExtractor extends FFmpegCommandExecutor {
+
+  private static final int PIPE_BUFFER_SIZE = 1 << 20;
+
+  private final String input;
+  private final int width;
+  private final int height;
+  private final float frameRate;
+  private final long startTime;
+  private final Consumer<int[]> consumer;
+  private long frames;
+  private boolean completed;
+
+  /**
+   * Creates an extractor.
+   *
+   * @param core the core
+   * @param input the file or url of the media
+   * @param width the width of the frames
+   * @param height the height of the frames
+   * @param frameRate the frame rate frames are extracted at
+   * @param consumer the consumer of the frames, which is passed the same array for every frame
+   */
+  public FFmpegFrameExtractor(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final String input,
+      final int width,
+      final int height,
+      final float frameRate,
+      @NotNull final Consumer<int[]> consumer) {
+    this(core, input, width, height, frameRate, 0L, consumer);
+  }
+
+  /**
+   * Creates an extractor which starts at a time in the media.
+   *
+   * @param core the core
+   * @param input the file or url of the media
+   * @param width the width of the frames
+   * @param height the height of the frames
+   * @param frameRate the frame rate frames are extracted at
+   * @param startTime the time in the media to start at, in milliseconds
+   * @param consumer the consumer of the frames, which is passed the same array for every frame
+   */
+  public FFmpegFrameExtractor(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final String input,
+      final int width,
+      final int height,
+      final float frameRate,
+      final long startTime,
+      @NotNull final Consumer<int[]> consumer) {
+    super(core);
+    Preconditions.checkArgument(width > 0, "Width must be greater than 0!");
+    Preconditions.checkArgument(height > 0, "Height must be greater than 0!");
+    Preconditions.checkArgument(frameRate > 0, "Frame rate must be greater than 0!");
+    Preconditions.checkArgument(startTime >= 0, "Start time must be greater than or equal to 0!");
+    this.input = input;
+    this.width = width;
+    this.height = height;
+    this.frameRate = frameRate;
+    this.startTime = startTime;
+    this.consumer = consumer;
+    clearArguments();
+    addMultipleArguments(generateArguments());
+  }
+
+  private List<String> generateArguments() {
+    final String size = String.format("%d:%d", this.width, this.height);
+    return new ArrayList<>(
+        ImmutableList.<String>builder()
+            .add(getCore().getFFmpegPath().toString())
+            .add("-loglevel", "error")
+            .add("-ss", String.format("%d.%03d", this.startTime / 1000, this.startTime % 1000))
+            .add("-i", this.input)
+            .add("-an")
+            .add(
+                "-vf",
+                String.format(
+                    "scale=%s:force_original_aspect_ratio=decrease,pad=%s:(ow-iw)/2:(oh-ih)/2",
+                    size, size))
+            .add("-r", String.valueOf(this.frameRate))
+            .add("-f", "rawvideo")
+            .add("-pix_fmt", "bgra")
+            .add("-")
+            .build());
+  }
+
+  @Override
+  public void executeWithLogging(@Nullable final Consumer<String> logger) {
+    try {
+      extract(logger);
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Runs FFmpeg and passes every frame to the consumer, returning once the media ends. FFmpeg is
+   * stopped if the consumer throws.
+   *
+   * @param logger the consumer of the output of FFmpeg, or null
+   * @return the number of frames extracted
+   * @throws IOException if FFmpeg cannot be started or fails
+   */
+  public long extract(@Nullable final Consumer<String> logger) throws IOException {
+    onBeforeExecution();
+    final Process process = start(logger);
+    final int length = this.width * this.height;
+    final ByteBuffer buffer = allocateFrame();
+    final IntBuffer pixels = buffer.asIntBuffer();
+    final int[] frame = new int[length];
+    this.frames = 0;
+    try (final ReadableByteChannel channel = getChannel(process)) {
+      while (readFrame(channel, buffer)) {
+        pixels.clear();
+        pixels.get(frame);
+        this.consumer.accept(frame);
+        this.frames++;
+      }
+    } catch (final IOException | RuntimeException e) {
+      process.destroy();
+      throw e;
+    }
+    try {
+      final int code = process.waitFor();
+      if (code != 0) {
+        throw new IOException(String.format("FFmpeg exited with code %d", code));
+      }
+    } catch (final InterruptedException e) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for FFmpeg", e);
+    }
+    this.completed = true;
+    onAfterExecution();
+    return this.frames;
+  }
+
+  /**
+   * Starts FFmpeg. Frames are read from {@link #getChannel(Process)}, and the process must be
+   * destroyed by the caller if it stops reading before the end of the media.
+   *
+   * @param logger the consumer of the output of FFmpeg, or null
+   * @return the process
+   * @throws IOException if FFmpeg cannot be started
+   */
+  @NotNull
+  public Process start(@Nullable final Consumer<String> logger) throws IOException {
+    final Process process = new ProcessBuilder(getArguments()).start();
+    final Thread errors = new Thread(() -> log(process, logger), "FFmpeg Frame Extractor Log");
+    errors.setDaemon(true);
+    errors.start();
+    return process;
+  }
+
+  /**
+   * Gets a channel reading the frames FFmpeg writes, buffered so a frame takes few reads from the
+   * pipe.
+   *
+   * @param process the process
+   * @return the channel
+   */
+  @NotNull
+  public ReadableByteChannel getChannel(@NotNull final Process process) {
+    return Channels.newChannel(
+        new BufferedInputStream(process.getInputStream(), PIPE_BUFFER_SIZE));
+  }
+
+  /**
+   * Allocates a direct buffer holding one frame. FFmpeg writes bgra bytes, which read as little
+   * endian ints are the packed pixels, so the buffer is little endian and {@link
+   * ByteBuffer#asIntBuffer()} views the pixels.
+   *
+   * @return the buffer
+   */
+  @NotNull
+  public ByteBuffer allocateFrame() {
+    return ByteBuffer.allocateDirect((this.width * this.height) << 2)
+        .order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Reads the next frame into the buffer, filling it from the start.
+   *
+   * @param channel the channel
+   * @param buffer the buffer, one frame in capacity
+   * @return whether a frame was read, false at the end of the media
+   * @throws IOException if the pipe fails
+   */
+  public boolean readFrame(
+      @NotNull final ReadableByteChannel channel, @NotNull final ByteBuffer buffer)
+      throws IOException {
+    buffer.clear();
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        // a partial frame at the end of the stream is dropped
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void log(@NotNull final Process process, @Nullable final Consumer<String> logger) {
+    try (final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (logger != null) {
+          logger.accept(line);
+        }
+      }
+    } catch (final IOException ignored) {
+      // the stream closes when FFmpeg is destroyed
+    }
+  }
+
+  @Override
+  public boolean isCompleted() {
+    return this.completed;
+  }
+
+  @NotNull
+  public String getInput() {
+    return this.input;
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  public float getFrameRate() {
+    return this.frameRate;
+  }
+
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  public long getFrameCount() {
+    return this.frames;
+  }
+}
@@ -1,22 +1,21 @@
 package io.github.pulsebeat02.minecraftmedialibrary.image;
 
 import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
-import io.github.pulsebeat02.minecraftmedialibrary.decoder.GifDecoder;
+import io.github.pulsebeat02.minecraftmedialibrary.decoder.StreamingGifDecoder;
 import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
-import java.io.FileInputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 
-import static io.github.pulsebeat02.minecraftmedialibrary.decoder.GifDecoder.GifImage;
-
 public class DynamicImage extends ImageProvider
     implements io.github.pulsebeat02.minecraftmedialibrary.image.GifImage {
 
-  private final GifImage image;
   private final int frameCount;
   private CompletableFuture<Void> future;
+  private volatile StreamingGifDecoder decoder;
+  private volatile boolean stopped;
   private int frame;
 
   public DynamicImage(
@@ -26,33 +25,64 @@ public class DynamicImage extends ImageProvider
       @NotNull final ImmutableDimension dimension)
       throws IOException {
     super(core, image, maps, dimension);
-    this.image = GifDecoder.read(new FileInputStream(image.toFile()));
-    this.frameCount = this.image.getFrameCount();
+    try (final StreamingGifDecoder decoder = StreamingGifDecoder.open(image, 0)) {
+      this.frameCount = decoder.getFrameCount();
+    }
   }
 
   @Override
   public void draw(final boolean resize) throws IOException {
     onStartDrawImage();
+    this.stopped = false;
     this.future =
         CompletableFuture.runAsync(
             () -> {
-              for (; this.frame < this.frameCount; this.frame++) {
-                getRenderer().drawMap(process(this.image.getFrame(this.frame), resize));
-                try {
-                  final int delay = this.image.getDelay(this.frame);
-                  Thread.sleep(delay * 10L);
-                } catch (final InterruptedException e) {
+              // frames are decoded while they are drawn, so long gifs do not have to fit in
+              // memory. The file is only open while drawing
+              try (final StreamingGifDecoder decoder =
+                  StreamingGifDecoder.open(getImagePath(), 0)) {
+                this.decoder = decoder;
+                for (; !this.stopped && this.frame < this.frameCount; this.frame++) {
+                  getRenderer().drawMap(process(drawFrame(decoder, this.frame), resize));
+                  try {
+                    final int delay = decoder.getDelay();
+                    Thread.sleep(delay * 10L);
+                  } catch (final InterruptedException e) {
+                    e.printStackTrace();
+                  }
+                }
+              } catch (final IOException e) {
+                // stopping closes the decoder under the loop
+                if (!this.stopped) {
                   e.printStackTrace();
                 }
+              } finally {
+                this.decoder = null;
               }
             });
     onFinishDrawImage();
   }
 
+  @NotNull
+  private BufferedImage drawFrame(@NotNull final StreamingGifDecoder decoder, final int index)
+      throws IOException {
+    decoder.getFrame(index);
+    return decoder.getImage();
+  }
+
   @Override
   public void stopDrawing() {
     onStopDrawing();
+    this.stopped = true;
     this.future.cancel(true);
+    final StreamingGifDecoder decoder = this.decoder;
+    if (decoder != null) {
+      try {
+        decoder.close();
+      } catch (final IOException e) {
+        e.printStackTrace();
+      }
+    }
   }
 
   @Override
@@ -1,14 +1,164 @@
 package io.github.pulsebeat02.minecraftmedialibrary.natives;
 
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupTable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jetbrains.annotations.NotNull;
 
+/**
+ * Filter Lite dithering in native code. The library is built for linux-x86_64 and shipped inside
+ * the jar, elsewhere it is only used if a {@code filterlite-dither} library is on the library path.
+ * Check {@link #isAvailable()} before creating a buffer.
+ */
 public final class NativeDitherBuffer {
 
+  private static final String LIBRARY = "filterlite-dither";
+  private static final boolean AVAILABLE;
+
   static {
-    System.loadLibrary("filterlite-dither");
+    AVAILABLE = loadLibrary();
+  }
+
+  // dithers hold the read lock while native code uses the handle and release takes the write
+  // lock, so the tables are never freed under a running dither
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long handle;
+
+  /**
+   * Copies the lookup tables into native memory. The memory is held until {@link #release()} is
+   * called.
+   *
+   * @param table the lookup table
+   */
+  public NativeDitherBuffer(@NotNull final DitherLookupTable table) {
+    Preconditions.checkState(AVAILABLE, "Native dither library is not available!");
+    this.handle = setup(table.getColorMap(), table.getFullColorMap());
+  }
+
+  private static boolean loadLibrary() {
+    final String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+    final String arch = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+    try {
+      if (os.contains("nux") && (arch.equals("amd64") || arch.equals("x86_64"))) {
+        final String resource = String.format("/natives/linux-x86_64/lib%s.so", LIBRARY);
+        try (final InputStream stream = NativeDitherBuffer.class.getResourceAsStream(resource)) {
+          if (stream != null) {
+            final Path file = Files.createTempFile(LIBRARY, ".so");
+            file.toFile().deleteOnExit();
+            Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+            System.load(file.toAbsolutePath().toString());
+            return true;
+          }
+        }
+      }
+      System.loadLibrary(LIBRARY);
+      return true;
+    } catch (final IOException | UnsatisfiedLinkError | SecurityException e) {
+      Logger.info("Native dither library could not be loaded, falling back to Java dithering");
+      return false;
+    }
   }
 
-  private native void setup(final int[] colorMap, final int[] fullColorMap);
+  /**
+   * Gets whether the native library is loaded.
+   *
+   * @return whether native dithering is available
+   */
+  public static boolean isAvailable() {
+    return AVAILABLE;
+  }
+
+  private static native long setup(final byte[] colorMap, final int[] fullColorMap);
+
+  private static native void free(final long handle);
+
+  private static native void ditherNative(
+      final long handle, final int[] buffer, final int width, final ByteBuffer data);
+
+  private static native void ditherArray(
+      final long handle, final int[] buffer, final int width, final byte[] data, final int offset);
 
-  private native void dither_native(final ByteBuffer buffer, final int[] data, final int width);
+  private static native void ditherRgb(final long handle, final int[] buffer, final int width);
+
+  /**
+   * Dithers the pixels in place into palette colors.
+   *
+   * @param buffer the rgb pixels
+   * @param width the width of the frame
+   */
+  public void dither(final int @NotNull [] buffer, final int width) {
+    checkFrame(buffer, width);
+    final Lock lock = this.lock.readLock();
+    lock.lock();
+    try {
+      ditherRgb(getHandle(), buffer, width);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Dithers the pixels into map colors. Direct buffers are written to by the native code without
+   * copying, heap buffers through their backing array.
+   *
+   * @param buffer the rgb pixels
+   * @param width the width of the frame
+   * @param data the buffer to write the colors into, at least the length of the pixels
+   */
+  public void ditherIntoMinecraft(
+      final int @NotNull [] buffer, final int width, @NotNull final ByteBuffer data) {
+    checkFrame(buffer, width);
+    Preconditions.checkArgument(data.capacity() >= buffer.length, "Buffer is too small!");
+    final Lock lock = this.lock.readLock();
+    lock.lock();
+    try {
+      final long handle = getHandle();
+      if (data.isDirect()) {
+        ditherNative(handle, buffer, width, data);
+      } else {
+        ditherArray(handle, buffer, width, data.array(), data.arrayOffset());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkFrame(final int[] buffer, final int width) {
+    Preconditions.checkArgument(
+        width > 0 && buffer.length % width == 0, "Width must divide the frame into rows!");
+  }
+
+  private long getHandle() {
+    final long handle = this.handle;
+    Preconditions.checkState(handle != 0, "Native dither buffer was released!");
+    return handle;
+  }
+
+  /**
+   * Frees the native copy of the lookup tables once running dithers are done. The buffer must not
+   * be used afterwards, releasing it again does nothing.
+   */
+  public void release() {
+    final Lock lock = this.lock.writeLock();
+    lock.lock();
+    try {
+      final long handle = this.handle;
+      if (handle != 0) {
+        this.handle = 0;
+        free(handle);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
 }
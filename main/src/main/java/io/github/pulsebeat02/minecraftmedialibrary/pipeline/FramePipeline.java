@@ -0,0 +1,221 @@
+package io.github.pulsebeat02.minecraftmedialibrary.pipeline;
+
+import com.google.common.base.Preconditions;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs frames through a chain of {@link FrameStage}s, each on its own thread. Stages are connected
+ * by {@link FrameRing}s which drop the oldest frame when a stage falls behind, and frames past
+ * their presentation deadline are discarded before reaching the next stage, so a slow stage never
+ * stalls the decoder which submits frames.
+ */
+public final class FramePipeline {
+
+  private final StageRunner first;
+  private final StageRunner[] runners;
+  private final Queue<VideoFrame> pool;
+  private final long latency;
+
+  /**
+   * Creates a pipeline and starts its stage threads.
+   *
+   * @param name the name used for the stage threads
+   * @param stages the stages in order
+   * @param capacity how many frames may wait in front of each stage
+   * @param latency how long after submission a frame may still be presented, in milliseconds
+   */
+  public FramePipeline(
+      @NotNull final String name,
+      @NotNull final List<FrameStage> stages,
+      final int capacity,
+      final long latency) {
+    Preconditions.checkArgument(!stages.isEmpty(), "Pipeline must have at least one stage!");
+    Preconditions.checkArgument(latency > 0, "Latency must be greater than 0!");
+    this.pool = new ConcurrentLinkedQueue<>();
+    this.latency = TimeUnit.MILLISECONDS.toNanos(latency);
+    this.runners = new StageRunner[stages.size()];
+    StageRunner next = null;
+    for (int i = stages.size() - 1; i >= 0; i--) {
+      next =
+          new StageRunner(
+              this, String.format("%s Stage %d", name, i), stages.get(i), capacity, next);
+      this.runners[i] = next;
+    }
+    this.first = next;
+  }
+
+  /**
+   * Copies the pixels into a pooled frame and hands it to the first stage. Never blocks, so it is
+   * safe to call from decoder threads.
+   *
+   * @param pixels the pixels
+   * @param width the width of the frame
+   */
+  public void submit(final int @NotNull [] pixels, final int width) {
+    VideoFrame frame = this.pool.poll();
+    if (frame == null) {
+      frame = new VideoFrame();
+    }
+    frame.set(pixels, width, System.nanoTime() + this.latency);
+    this.first.offer(frame);
+  }
+
+  /**
+   * Copies the pixels of a buffer into a pooled frame and hands it to the first stage, for buffers
+   * which are overwritten as soon as the caller returns. Never blocks.
+   *
+   * @param pixels the pixels, from the position to the limit of the buffer
+   * @param width the width of the frame
+   */
+  public void submit(@NotNull final IntBuffer pixels, final int width) {
+    VideoFrame frame = this.pool.poll();
+    if (frame == null) {
+      frame = new VideoFrame();
+    }
+    frame.set(pixels, width, System.nanoTime() + this.latency);
+    this.first.offer(frame);
+  }
+
+  /**
+   * Hands a buffer to the first stage without copying it. The buffer must not change until the
+   * release callback runs, which happens once the first stage is done with the frame or the frame
+   * was dropped before reaching it. Never blocks.
+   *
+   * @param pixels the pixels, from the position to the limit of the buffer
+   * @param width the width of the frame
+   * @param release the callback run when the buffer is no longer read
+   */
+  public void submit(
+      @NotNull final IntBuffer pixels, final int width, @NotNull final Runnable release) {
+    VideoFrame frame = this.pool.poll();
+    if (frame == null) {
+      frame = new VideoFrame();
+    }
+    frame.set(pixels, width, System.nanoTime() + this.latency, release);
+    this.first.offer(frame);
+  }
+
+  /**
+   * Runs the first stage on the calling thread with the buffer as the source of the frame, then
+   * hands the frame to the remaining stages. The buffer is not copied and only read until this
+   * returns, at the cost of the caller waiting for the first stage. A pipeline is fed either this
+   * way or through {@link #submit}, never both, as the first stage is not thread-safe.
+   *
+   * @param pixels the pixels, from the position to the limit of the buffer
+   * @param width the width of the frame
+   */
+  public void process(@NotNull final IntBuffer pixels, final int width) {
+    VideoFrame frame = this.pool.poll();
+    if (frame == null) {
+      frame = new VideoFrame();
+    }
+    frame.set(pixels, width, System.nanoTime() + this.latency, null);
+    this.first.process(frame);
+  }
+
+  void recycle(@NotNull final VideoFrame frame) {
+    frame.release();
+    this.pool.offer(frame);
+  }
+
+  /** Stops all stage threads, frames still waiting are discarded. */
+  public void shutdown() {
+    for (final StageRunner runner : this.runners) {
+      runner.shutdown();
+    }
+  }
+}
+
+final class StageRunner implements Runnable {
+
+  private final FramePipeline pipeline;
+  private final FrameStage stage;
+  private final FrameRing<VideoFrame> input;
+  private final StageRunner next;
+  private final ExecutorService executor;
+  private final AtomicBoolean scheduled;
+
+  StageRunner(
+      final FramePipeline pipeline,
+      final String name,
+      final FrameStage stage,
+      final int capacity,
+      final StageRunner next) {
+    this.pipeline = pipeline;
+    this.stage = stage;
+    this.input = new FrameRing<>(capacity);
+    this.next = next;
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, name);
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.scheduled = new AtomicBoolean();
+  }
+
+  // only ever called from the single thread of the previous stage, or the submitting thread
+  void offer(final VideoFrame frame) {
+    if (this.executor.isShutdown()) {
+      this.pipeline.recycle(frame);
+      return;
+    }
+    final VideoFrame dropped = this.input.offer(frame);
+    if (dropped != null) {
+      this.pipeline.recycle(dropped);
+    }
+    if (this.scheduled.compareAndSet(false, true)) {
+      this.executor.execute(this);
+    }
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      VideoFrame frame;
+      while ((frame = this.input.poll()) != null) {
+        process(frame);
+      }
+      this.scheduled.set(false);
+
+      // a frame offered after the last poll but before the flag was cleared must not be stranded
+      if (this.input.isEmpty() || !this.scheduled.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+
+  // also called by the thread feeding the pipeline, for frames which are processed inline
+  void process(final VideoFrame frame) {
+    if (System.nanoTime() > frame.getDeadline()) {
+      this.pipeline.recycle(frame);
+      return;
+    }
+    boolean passed = false;
+    try {
+      passed = this.stage.process(frame);
+    } catch (final Exception e) {
+      e.printStackTrace();
+    }
+    // only the first stage may read a submitted buffer, hand it back before passing the frame on
+    frame.release();
+    if (passed && this.next != null) {
+      this.next.offer(frame);
+    } else {
+      this.pipeline.recycle(frame);
+    }
+  }
+
+  void shutdown() {
+    this.executor.shutdownNow();
+  }
+}
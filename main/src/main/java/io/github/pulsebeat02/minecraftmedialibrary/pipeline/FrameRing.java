@@ -0,0 +1,77 @@
+package io.github.pulsebeat02.minecraftmedialibrary.pipeline;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A bounded lock-free ring buffer for one producer and any number of consumers. When the ring is
+ * full, offering a new element drops the oldest one instead of blocking the producer.
+ *
+ * @param <T> the element type
+ */
+public final class FrameRing<T> {
+
+  private final AtomicReferenceArray<T> slots;
+  private final AtomicLong head;
+  private final AtomicLong tail;
+  private final int capacity;
+  private final int mask;
+
+  public FrameRing(final int capacity) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be greater than 0!");
+    final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.head = new AtomicLong();
+    this.tail = new AtomicLong();
+    this.capacity = capacity;
+    this.mask = size - 1;
+  }
+
+  /**
+   * Adds the element, must only be called from the producer thread.
+   *
+   * @param element the element
+   * @return the oldest element if it was dropped to make room, otherwise null
+   */
+  @Nullable
+  public T offer(@NotNull final T element) {
+    final long position = this.tail.get();
+    T dropped = null;
+    if (position - this.head.get() >= this.capacity) {
+      dropped = poll();
+    }
+    this.slots.set((int) (position & this.mask), element);
+    this.tail.set(position + 1);
+    return dropped;
+  }
+
+  /**
+   * Takes the oldest element.
+   *
+   * @return the oldest element, or null if the ring is empty
+   */
+  @Nullable
+  public T poll() {
+    while (true) {
+      final long position = this.head.get();
+      if (position >= this.tail.get()) {
+        return null;
+      }
+      final T element = this.slots.get((int) (position & this.mask));
+      if (this.head.compareAndSet(position, position + 1)) {
+        return element;
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return this.head.get() >= this.tail.get();
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+}
@@ -0,0 +1,15 @@
+package io.github.pulsebeat02.minecraftmedialibrary.pipeline;
+
+import org.jetbrains.annotations.NotNull;
+
+@FunctionalInterface
+public interface FrameStage {
+
+  /**
+   * Processes the frame.
+   *
+   * @param frame the frame
+   * @return true to pass the frame on to the next stage, false to drop it
+   */
+  boolean process(@NotNull final VideoFrame frame);
+}
@@ -0,0 +1,147 @@
+package io.github.pulsebeat02.minecraftmedialibrary.pipeline;
+
+import io.github.pulsebeat02.minecraftmedialibrary.nms.MapTile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A frame passed between the stages of a {@link FramePipeline}. Frames are pooled, a stage owns
+ * the frame while processing it and must not keep references to its buffers afterwards.
+ *
+ * <p>A frame submitted as a buffer with a release callback, such as a pooled read buffer of a
+ * decoder, is not copied. The buffer is only valid while the first stage processes the frame and is
+ * released to its owner right after.
+ */
+public final class VideoFrame {
+
+  private int[] pixels;
+  private IntBuffer source;
+  private Runnable release;
+  private boolean copied;
+  private ByteBuffer data;
+  private MapTile[] tiles;
+  private int width;
+  private long deadline;
+
+  VideoFrame() {}
+
+  void set(final int[] source, final int width, final long deadline) {
+    if (this.pixels == null || this.pixels.length != source.length) {
+      this.pixels = new int[source.length];
+    }
+    System.arraycopy(source, 0, this.pixels, 0, source.length);
+    this.source = null;
+    this.release = null;
+    this.width = width;
+    this.deadline = deadline;
+  }
+
+  void set(final IntBuffer source, final int width, final long deadline) {
+    final int length = source.remaining();
+    if (this.pixels == null || this.pixels.length != length) {
+      this.pixels = new int[length];
+    }
+    source.duplicate().get(this.pixels);
+    this.source = null;
+    this.release = null;
+    this.width = width;
+    this.deadline = deadline;
+  }
+
+  void set(
+      final IntBuffer source, final int width, final long deadline, final Runnable release) {
+    this.source = source;
+    this.release = release;
+    this.copied = false;
+    this.width = width;
+    this.deadline = deadline;
+  }
+
+  /**
+   * Gets the pixels of the frame. Frames submitted as a buffer are copied out of the buffer the
+   * first time this is called, stages which can read a buffer should use {@link #getSource()}.
+   *
+   * @return the pixels
+   */
+  public int @NotNull [] getPixels() {
+    if (this.source != null && !this.copied) {
+      final int length = this.source.remaining();
+      if (this.pixels == null || this.pixels.length != length) {
+        this.pixels = new int[length];
+      }
+      this.source.duplicate().get(this.pixels);
+      this.copied = true;
+    }
+    return this.pixels;
+  }
+
+  /**
+   * Gets the buffer the frame was submitted as, which is only valid in the first stage.
+   *
+   * @return the buffer, or null if the frame was submitted as an array or the buffer was released
+   */
+  @Nullable
+  public IntBuffer getSource() {
+    return this.source;
+  }
+
+  /** Hands the buffer the frame was submitted as back to its owner, if it was not already. */
+  void release() {
+    final Runnable release = this.release;
+    this.source = null;
+    this.release = null;
+    if (release != null) {
+      release.run();
+    }
+  }
+
+  /**
+   * Gets the output buffer of the frame, which stages use to hand palette bytes to the next stage.
+   * The buffer is only reallocated when the capacity changes.
+   *
+   * @param capacity the capacity
+   * @return the cleared buffer
+   */
+  @NotNull
+  public ByteBuffer getData(final int capacity) {
+    if (this.data == null || this.data.capacity() != capacity) {
+      this.data = ByteBuffer.allocateDirect(capacity);
+    }
+    this.data.clear();
+    return this.data;
+  }
+
+  @NotNull
+  public ByteBuffer getData() {
+    return this.data;
+  }
+
+  /**
+   * Sets the map tiles of the frame, for stages which render frames into tiles instead of the data
+   * buffer. Tiles are handed off with their data, so they are not pooled with the frame.
+   *
+   * @param tiles the tiles
+   */
+  public void setTiles(final MapTile @NotNull [] tiles) {
+    this.tiles = tiles;
+  }
+
+  public MapTile @NotNull [] getTiles() {
+    return this.tiles;
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the time in {@link System#nanoTime()} after which the frame is too late to present.
+   *
+   * @return the deadline
+   */
+  public long getDeadline() {
+    return this.deadline;
+  }
+}
@@ -0,0 +1,160 @@
+package io.github.pulsebeat02.minecraftmedialibrary.player;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
+import io.github.pulsebeat02.minecraftmedialibrary.callback.MapCallback;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherBufferPool;
+import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
+import io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Plays a map video file, such as one from a {@link
+ * io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoCache}, onto the maps of a {@link
+ * MapCallback}. Frames were dithered when the video was written, so they are sent as they are
+ * stored, without VLC and without dithering. Starting at a given time seeks through the index of
+ * the file instead of decoding every frame before it.
+ */
+public class DitheredVideoPlayer extends MediaPlayer {
+
+  private static final int BUFFER_POOL_SIZE = 2;
+
+  private final MapCallback callback;
+  private final DitheredVideoReader reader;
+  private final DitherBufferPool buffers;
+  private final ScheduledExecutorService executor;
+  private ScheduledFuture<?> task;
+  private boolean released;
+
+  public DitheredVideoPlayer(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final MapCallback callback,
+      @NotNull final DitheredVideoReader reader,
+      @NotNull final String url,
+      final boolean repeat) {
+    super(
+        core,
+        callback,
+        new ImmutableDimension(reader.getWidth(), reader.getHeight()),
+        url,
+        Math.round(reader.getFrameRate()),
+        repeat);
+    Preconditions.checkArgument(
+        reader.getWidth() == callback.getBlockWidth(),
+        "Video must be as wide as the block width of the callback!");
+    Preconditions.checkArgument(
+        reader.getMapWidth() == callback.getDimensions().getWidth()
+            && reader.getMapHeight() == callback.getDimensions().getHeight(),
+        "Video must be made for the maps of the callback!");
+    this.callback = callback;
+    this.reader = reader;
+    this.buffers = new DitherBufferPool(BUFFER_POOL_SIZE, true);
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "Dithered Video Player");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  // the executor is shut down once released, so later state changes are ignored
+  @Override
+  public synchronized void setPlayerState(@NotNull final PlayerControls controls) {
+    if (this.released) {
+      return;
+    }
+    super.setPlayerState(controls);
+    switch (controls) {
+      case START:
+      case RESUME:
+        start();
+        break;
+      case PAUSE:
+        stop();
+        break;
+      case RELEASE:
+        this.released = true;
+        stop();
+        // runs after a frame still being displayed
+        this.executor.execute(this.reader::close);
+        this.executor.shutdown();
+        break;
+    }
+  }
+
+  @Override
+  public synchronized void initializePlayer(final long seconds) {
+    if (this.released) {
+      return;
+    }
+    final DitheredVideoReader reader = this.reader;
+    final long frame = (long) (seconds * reader.getFrameRate());
+    // the reader is only used on the player thread
+    this.executor.execute(
+        () -> {
+          try {
+            reader.seek((int) Math.min(reader.getFrameCount() - 1, frame));
+          } catch (final IOException e) {
+            e.printStackTrace();
+          }
+        });
+  }
+
+  private synchronized void start() {
+    if (this.task == null) {
+      this.task =
+          this.executor.scheduleAtFixedRate(
+              this::displayNextFrame, 0L, this.reader.getFrameInterval(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private synchronized void stop() {
+    if (this.task != null) {
+      this.task.cancel(false);
+      this.task = null;
+    }
+  }
+
+  private void displayNextFrame() {
+    final DitheredVideoReader reader = this.reader;
+    final ByteBuffer buffer = this.buffers.next(reader.getWidth() * reader.getHeight());
+    try {
+      if (!reader.read(buffer)) {
+        if (!isRepeated()) {
+          stop();
+          return;
+        }
+        reader.rewind();
+        reader.read(buffer);
+      }
+    } catch (final IOException e) {
+      Logger.warn(String.format("Stopped playing %s: %s", reader.getFile(), e.getMessage()));
+      stop();
+      return;
+    }
+    final MapCallback callback = this.callback;
+    final ImmutableDimension dimension = callback.getDimensions();
+    callback
+        .getPacketHandler()
+        .displayMaps(
+            callback.getViewers(),
+            (int) callback.getMapId(),
+            dimension.getWidth(),
+            dimension.getHeight(),
+            buffer,
+            reader.getWidth());
+  }
+
+  @NotNull
+  public DitheredVideoReader getReader() {
+    return this.reader;
+  }
+}
@@ -0,0 +1,230 @@
+package io.github.pulsebeat02.minecraftmedialibrary.player;
+
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
+import io.github.pulsebeat02.minecraftmedialibrary.callback.FrameCallback;
+import io.github.pulsebeat02.minecraftmedialibrary.ffmpeg.FFmpegFrameExtractor;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.FramePipeline;
+import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Plays media by reading raw frames from an FFmpeg process, so no libvlc installation is needed.
+ * Frames are read into a few reusable direct buffers which are handed to the pipeline without
+ * copying, at the pace of the frame rate. FFmpeg blocks on the pipe while the player waits for the
+ * next frame, so it decodes no faster than the media plays. Frames are dropped while every buffer
+ * is still being read by the callback.
+ */
+public class FFmpegMediaPlayer extends MediaPlayer {
+
+  private static final int PIPELINE_CAPACITY = 2;
+  private static final long PIPELINE_LATENCY_MS = 250;
+  private static final int BUFFER_COUNT = PIPELINE_CAPACITY + 2;
+  private static final int DEFAULT_FRAME_RATE = 30;
+
+  private final FramePipeline pipeline;
+  private final BlockingQueue<FrameBuffer> buffers;
+  private final FrameBuffer discard;
+  private final float rate;
+  private final long interval;
+  private final Object lock;
+
+  private volatile boolean paused;
+  private volatile boolean released;
+  private long startMillis;
+  private Thread thread;
+
+  public FFmpegMediaPlayer(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final FrameCallback callback,
+      @NotNull final ImmutableDimension dimensions,
+      @NotNull final String url,
+      final int frameRate,
+      final boolean repeat) {
+    super(core, callback, dimensions, url, frameRate, repeat);
+    this.pipeline =
+        new FramePipeline(
+            "FFmpeg Frame", callback.getStages(), PIPELINE_CAPACITY, PIPELINE_LATENCY_MS);
+    this.rate = frameRate > 0 ? frameRate : DEFAULT_FRAME_RATE;
+    this.interval = Math.round(1_000_000_000.0 / this.rate);
+    this.buffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    final FFmpegFrameExtractor extractor = createExtractor(0L);
+    for (int i = 0; i < BUFFER_COUNT; i++) {
+      this.buffers.add(new FrameBuffer(extractor.allocateFrame()));
+    }
+    this.discard = new FrameBuffer(extractor.allocateFrame());
+    this.lock = new Object();
+  }
+
+  @Override
+  public void setPlayerState(@NotNull final PlayerControls controls) {
+    super.setPlayerState(controls);
+    switch (controls) {
+      case START:
+        this.paused = false;
+        synchronized (this.lock) {
+          // the thread of media which played to its end without repeat is no longer alive
+          if (this.thread == null || !this.thread.isAlive()) {
+            initializePlayer(getStartTime());
+          }
+        }
+        break;
+      case PAUSE:
+        this.paused = true;
+        break;
+      case RESUME:
+        this.paused = false;
+        synchronized (this.lock) {
+          if (this.thread != null && this.thread.isAlive()) {
+            LockSupport.unpark(this.thread);
+          }
+        }
+        break;
+      case RELEASE:
+        this.released = true;
+        stop();
+        this.pipeline.shutdown();
+        break;
+    }
+  }
+
+  /**
+   * Starts reading frames from the given time, stopping the FFmpeg process playing before.
+   *
+   * @param seconds the time in the media to start at
+   */
+  @Override
+  public void initializePlayer(final long seconds) {
+    synchronized (this.lock) {
+      stop();
+      if (this.released) {
+        return;
+      }
+      this.startMillis = seconds * 1000L;
+      this.thread = new Thread(this::play, "FFmpeg Media Player");
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+  }
+
+  private void stop() {
+    final Thread thread;
+    synchronized (this.lock) {
+      thread = this.thread;
+      this.thread = null;
+    }
+    if (thread != null) {
+      thread.interrupt();
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(1));
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void play() {
+    long start = this.startMillis;
+    while (!this.released && !Thread.currentThread().isInterrupted()) {
+      if (!playFrom(start) || !isRepeated()) {
+        break;
+      }
+      start = 0L;
+    }
+  }
+
+  // returns whether the media was played to its end
+  private boolean playFrom(final long start) {
+    final FFmpegFrameExtractor extractor = createExtractor(start);
+    final Process process;
+    try {
+      process = extractor.start(null);
+    } catch (final IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    final Thread current = Thread.currentThread();
+    final int width = getDimensions().getWidth();
+    try (final ReadableByteChannel channel = extractor.getChannel(process)) {
+      long next = System.nanoTime();
+      while (!current.isInterrupted()) {
+        if (this.paused) {
+          while (this.paused && !current.isInterrupted()) {
+            LockSupport.park(this);
+          }
+          next = System.nanoTime();
+        }
+
+        // frames are read even when they are dropped, so the media keeps its pace
+        final FrameBuffer buffer = this.buffers.poll();
+        final FrameBuffer target = buffer != null ? buffer : this.discard;
+        if (!extractor.readFrame(channel, target.bytes)) {
+          if (buffer != null) {
+            this.buffers.offer(buffer);
+          }
+          return true;
+        }
+        long delay;
+        while ((delay = next - System.nanoTime()) > 0 && !current.isInterrupted()) {
+          LockSupport.parkNanos(this, delay);
+        }
+        if (current.isInterrupted()) {
+          if (buffer != null) {
+            this.buffers.offer(buffer);
+          }
+          break;
+        }
+        if (buffer != null) {
+          buffer.pixels.clear();
+          this.pipeline.submit(buffer.pixels, width, () -> this.buffers.offer(buffer));
+        }
+
+        // a player which fell behind, for example after a stall, does not catch up in a burst
+        next = Math.max(next + this.interval, System.nanoTime() - this.interval);
+      }
+    } catch (final IOException e) {
+      if (!current.isInterrupted()) {
+        Logger.warn(String.format("Stopped playing %s: %s", getUrl(), e.getMessage()));
+      }
+    } finally {
+      process.destroy();
+    }
+    return false;
+  }
+
+  @NotNull
+  private FFmpegFrameExtractor createExtractor(final long start) {
+    final ImmutableDimension dimension = getDimensions();
+    return new FFmpegFrameExtractor(
+        getCore(),
+        getUrl(),
+        dimension.getWidth(),
+        dimension.getHeight(),
+        this.rate,
+        start,
+        frame -> {});
+  }
+
+  public FramePipeline getPipeline() {
+    return this.pipeline;
+  }
+
+  private static final class FrameBuffer {
+
+    private final ByteBuffer bytes;
+    private final IntBuffer pixels;
+
+    FrameBuffer(@NotNull final ByteBuffer bytes) {
+      this.bytes = bytes;
+      this.pixels = bytes.asIntBuffer();
+    }
+  }
+}
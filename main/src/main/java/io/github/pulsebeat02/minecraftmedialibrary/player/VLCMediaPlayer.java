@@ -2,9 +2,10 @@ package io.github.pulsebeat02.minecraftmedialibrary.player;
 
 import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
 import io.github.pulsebeat02.minecraftmedialibrary.callback.FrameCallback;
+import io.github.pulsebeat02.minecraftmedialibrary.pipeline.FramePipeline;
 import io.github.pulsebeat02.minecraftmedialibrary.utility.ImmutableDimension;
 import java.nio.ByteBuffer;
-import java.util.function.Consumer;
+import java.nio.IntBuffer;
 import org.jcodec.codecs.mjpeg.tools.AssertionException;
 import org.jetbrains.annotations.NotNull;
 import uk.co.caprica.vlcj.factory.MediaPlayerFactory;
@@ -16,12 +17,16 @@ import uk.co.caprica.vlcj.player.embedded.videosurface.VideoSurfaceAdapter;
 import uk.co.caprica.vlcj.player.embedded.videosurface.WindowsVideoSurfaceAdapter;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormat;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.BufferFormatCallback;
-import uk.co.caprica.vlcj.player.embedded.videosurface.callback.RenderCallbackAdapter;
+import uk.co.caprica.vlcj.player.embedded.videosurface.callback.RenderCallback;
 import uk.co.caprica.vlcj.player.embedded.videosurface.callback.format.RV32BufferFormat;
 
 public class VLCMediaPlayer extends MediaPlayer {
 
+  private static final int PIPELINE_CAPACITY = 2;
+  private static final long PIPELINE_LATENCY_MS = 250;
+
   private final VideoSurfaceAdapter adapter;
+  private final FramePipeline pipeline;
   private final MinecraftVideoRenderCallback callback;
   private EmbeddedMediaPlayer player;
 
@@ -34,7 +39,10 @@ public class VLCMediaPlayer extends MediaPlayer {
       final boolean repeat) {
     super(core, callback, dimensions, url, frameRate, repeat);
     this.adapter = getAdapter();
-    this.callback = new MinecraftVideoRenderCallback(this);
+    this.pipeline =
+        new FramePipeline(
+            "VLC Frame", callback.getStages(), PIPELINE_CAPACITY, PIPELINE_LATENCY_MS);
+    this.callback = new MinecraftVideoRenderCallback(this, callback.isReadingSource());
     initializePlayer(0L);
   }
 
@@ -54,7 +62,9 @@ public class VLCMediaPlayer extends MediaPlayer {
   public void setPlayerState(@NotNull final PlayerControls controls) {
     super.setPlayerState(controls);
     switch (controls) {
-
+      case RELEASE:
+        this.pipeline.shutdown();
+        break;
     }
   }
 
@@ -93,27 +103,59 @@ public class VLCMediaPlayer extends MediaPlayer {
       }
 
       @Override
-      public void allocatedBuffers(final ByteBuffer[] buffers) {}
+      public void allocatedBuffers(final ByteBuffer[] buffers) {
+        final ImmutableDimension dimension = getDimensions();
+        final IntBuffer pixels = buffers[0].asIntBuffer();
+        pixels.limit(dimension.getWidth() * dimension.getHeight());
+        VLCMediaPlayer.this.callback.setPixels(pixels);
+      }
     };
   }
 
-  private static class MinecraftVideoRenderCallback extends RenderCallbackAdapter {
-
-    private final Consumer<int[]> callback;
+  /**
+   * Hands the frames libvlc writes into its native frame buffer to the pipeline. libvlc writes the
+   * next frame into the same buffer as soon as the display callback returns. Callbacks whose first
+   * stage reads the buffer, such as the fused map tile renderer, run that stage right here on the
+   * native buffer, so frames are never copied. Every other frame is copied straight from the buffer
+   * into a pooled pipeline frame, and the libvlc thread does not wait for any stage.
+   */
+  private static class MinecraftVideoRenderCallback implements RenderCallback {
+
+    private final FramePipeline pipeline;
+    private final boolean inline;
+    private final int width;
+    private volatile IntBuffer pixels;
+
+    public MinecraftVideoRenderCallback(
+        @NotNull final VLCMediaPlayer player, final boolean inline) {
+      this.pipeline = player.pipeline;
+      this.inline = inline;
+      this.width = player.getDimensions().getWidth();
+    }
 
-    public MinecraftVideoRenderCallback(@NotNull final VLCMediaPlayer player) {
-      super(new int[player.getDimensions().getWidth() * player.getDimensions().getHeight()]);
-      this.callback = player.getCallback()::process;
+    void setPixels(@NotNull final IntBuffer pixels) {
+      this.pixels = pixels;
     }
 
     @Override
-    protected void onDisplay(
-        final uk.co.caprica.vlcj.player.base.MediaPlayer mediaPlayer, final int[] buffer) {
-      this.callback.accept(buffer);
+    public void display(
+        final uk.co.caprica.vlcj.player.base.MediaPlayer mediaPlayer,
+        final ByteBuffer[] nativeBuffers,
+        final BufferFormat bufferFormat) {
+      IntBuffer pixels = this.pixels;
+      if (pixels == null) {
+        pixels = nativeBuffers[0].asIntBuffer();
+        pixels.limit(bufferFormat.getWidth() * bufferFormat.getHeight());
+      }
+      if (this.inline) {
+        this.pipeline.process(pixels, this.width);
+      } else {
+        this.pipeline.submit(pixels, this.width);
+      }
     }
 
-    public Consumer<int[]> getCallback() {
-      return this.callback;
+    public FramePipeline getPipeline() {
+      return this.pipeline;
     }
   }
 }
@@ -0,0 +1,118 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** A media queued in a {@link DitheredVideoBatch}, and how far its conversion got. */
+public final class ConversionJob {
+
+  private final String input;
+  private final Path output;
+  private final float frameRate;
+  private final CompletableFuture<ConversionJob> future;
+
+  private volatile State state;
+  private volatile long frames;
+  private volatile long start;
+  private volatile long end;
+
+  ConversionJob(@NotNull final String input, @Nullable final Path output, final float frameRate) {
+    this.input = input;
+    this.output = output;
+    this.frameRate = frameRate;
+    this.future = new CompletableFuture<>();
+    this.state = State.QUEUED;
+  }
+
+  void start() {
+    this.start = System.nanoTime();
+    this.state = State.RUNNING;
+  }
+
+  void setFrames(final long frames) {
+    this.frames = frames;
+  }
+
+  void complete() {
+    this.end = System.nanoTime();
+    this.state = State.COMPLETED;
+    this.future.complete(this);
+  }
+
+  void fail(@NotNull final Throwable cause) {
+    this.end = System.nanoTime();
+    this.state = State.FAILED;
+    this.future.completeExceptionally(cause);
+  }
+
+  @NotNull
+  public String getInput() {
+    return this.input;
+  }
+
+  /**
+   * Gets the map video file the media is converted into.
+   *
+   * @return the file, or null if the media is converted into a cache
+   */
+  @Nullable
+  public Path getOutput() {
+    return this.output;
+  }
+
+  @NotNull
+  public State getState() {
+    return this.state;
+  }
+
+  public long getFramesConverted() {
+    return this.frames;
+  }
+
+  /**
+   * Gets how long the job has been running, or ran for once it finished.
+   *
+   * @return the time in nanoseconds, 0 if the job has not started
+   */
+  public long getElapsedTime() {
+    final State state = this.state;
+    if (state == State.QUEUED) {
+      return 0L;
+    }
+    return (state == State.RUNNING ? System.nanoTime() : this.end) - this.start;
+  }
+
+  public double getFramesPerSecond() {
+    final long elapsed = getElapsedTime();
+    return elapsed == 0L ? 0.0 : this.frames * 1e9 / elapsed;
+  }
+
+  /**
+   * Gets how many times faster than real time the media is converted.
+   *
+   * @return the seconds of media converted per second
+   */
+  public double getSpeed() {
+    return getFramesPerSecond() / this.frameRate;
+  }
+
+  /**
+   * Gets a future completed with this job once the media is converted, or completed exceptionally
+   * with the cause if the conversion failed.
+   *
+   * @return the future
+   */
+  @NotNull
+  public CompletableFuture<ConversionJob> getFuture() {
+    return this.future;
+  }
+
+  public enum State {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+}
@@ -0,0 +1,23 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listens to the jobs of a {@link DitheredVideoBatch}. Methods are called on the worker threads
+ * converting the media, so they should return quickly.
+ */
+public interface ConversionListener {
+
+  default void onStart(@NotNull final ConversionJob job) {}
+
+  /**
+   * Called after every second of media is converted.
+   *
+   * @param job the job
+   */
+  default void onProgress(@NotNull final ConversionJob job) {}
+
+  default void onComplete(@NotNull final ConversionJob job) {}
+
+  default void onFailure(@NotNull final ConversionJob job, @NotNull final Throwable cause) {}
+}
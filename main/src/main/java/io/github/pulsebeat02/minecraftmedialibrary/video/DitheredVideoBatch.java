@@ -0,0 +1,263 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Converts a queue of media into map videos offline, several at a time. Every worker decodes its
+ * media with its own FFmpeg process and dithers the frames as they arrive, so a batch keeps as
+ * many cores busy as it has workers and converts far faster than the media plays. Media waits in
+ * the queue until a worker is free.
+ */
+public final class DitheredVideoBatch {
+
+  private final ThreadLocal<DitheredVideoConverter> converters;
+  private final ThreadPoolExecutor executor;
+  private final ConversionListener listener;
+  private final AtomicLong frames;
+  private final AtomicLong start;
+  private final float frameRate;
+  private final int progressInterval;
+
+  /**
+   * Creates a batch with a worker for every core.
+   *
+   * @param core the core
+   * @param algorithms creates the dither algorithm of each worker
+   * @param mapWidth the width of the wall in maps
+   * @param mapHeight the height of the wall in maps
+   * @param frameRate the frame rate of the videos in frames per second
+   * @param listener the listener, or null
+   */
+  public DitheredVideoBatch(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final Supplier<DitherAlgorithm> algorithms,
+      final int mapWidth,
+      final int mapHeight,
+      final float frameRate,
+      @Nullable final ConversionListener listener) {
+    this(
+        core,
+        algorithms,
+        mapWidth,
+        mapHeight,
+        frameRate,
+        Runtime.getRuntime().availableProcessors(),
+        listener);
+  }
+
+  /**
+   * Creates a batch. Algorithms are created once per worker, so algorithms which keep state
+   * between frames are never shared by two media.
+   *
+   * @param core the core
+   * @param algorithms creates the dither algorithm of each worker
+   * @param mapWidth the width of the wall in maps
+   * @param mapHeight the height of the wall in maps
+   * @param frameRate the frame rate of the videos in frames per second
+   * @param parallelism how many media are converted at once
+   * @param listener the listener, or null
+   */
+  public DitheredVideoBatch(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final Supplier<DitherAlgorithm> algorithms,
+      final int mapWidth,
+      final int mapHeight,
+      final float frameRate,
+      final int parallelism,
+      @Nullable final ConversionListener listener) {
+    Preconditions.checkArgument(mapWidth > 0, "Map width must be greater than 0!");
+    Preconditions.checkArgument(mapHeight > 0, "Map height must be greater than 0!");
+    Preconditions.checkArgument(frameRate > 0, "Frame rate must be greater than 0!");
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be greater than 0!");
+    this.converters =
+        ThreadLocal.withInitial(
+            () ->
+                new DitheredVideoConverter(
+                    core, algorithms.get(), mapWidth, mapHeight, frameRate));
+    final AtomicInteger threads = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            parallelism,
+            parallelism,
+            30L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              final Thread thread =
+                  new Thread(
+                      runnable,
+                      String.format("Dithered Video Batch %d", threads.incrementAndGet()));
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.executor.allowCoreThreadTimeOut(true);
+    this.listener = listener == null ? new ConversionListener() {} : listener;
+    this.frames = new AtomicLong();
+    this.start = new AtomicLong();
+    this.frameRate = frameRate;
+    this.progressInterval = Math.max(1, Math.round(frameRate));
+  }
+
+  /**
+   * Queues media to be converted into a map video file.
+   *
+   * @param input the file or url of the media
+   * @param output the map video file
+   * @return the job
+   */
+  @NotNull
+  public ConversionJob submit(@NotNull final String input, @NotNull final Path output) {
+    return submit(input, output, null);
+  }
+
+  /**
+   * Queues media to be converted into a cache.
+   *
+   * @param input the file or url of the media
+   * @param cache the cache
+   * @return the job
+   */
+  @NotNull
+  public ConversionJob submit(
+      @NotNull final String input, @NotNull final DitheredVideoCache cache) {
+    return submit(input, null, cache);
+  }
+
+  /**
+   * Queues every media to be converted into a cache.
+   *
+   * @param inputs the files or urls of the media
+   * @param cache the cache
+   * @return the jobs, in the order of the media
+   */
+  @NotNull
+  public List<ConversionJob> submitAll(
+      @NotNull final Collection<String> inputs, @NotNull final DitheredVideoCache cache) {
+    final List<ConversionJob> jobs = new ArrayList<>(inputs.size());
+    for (final String input : inputs) {
+      jobs.add(submit(input, cache));
+    }
+    return jobs;
+  }
+
+  @NotNull
+  private ConversionJob submit(
+      @NotNull final String input,
+      @Nullable final Path output,
+      @Nullable final DitheredVideoCache cache) {
+    final ConversionJob job = new ConversionJob(input, output, this.frameRate);
+    this.executor.execute(() -> run(job, cache));
+    return job;
+  }
+
+  private void run(@NotNull final ConversionJob job, @Nullable final DitheredVideoCache cache) {
+    final String input = job.getInput();
+    this.start.compareAndSet(0L, System.nanoTime());
+    job.start();
+    this.listener.onStart(job);
+    try {
+      final DitheredVideoConverter converter = this.converters.get();
+      final Path output = job.getOutput();
+      final DitheredVideoWriter writer =
+          output != null ? converter.createWriter(output) : converter.createWriter(input, cache);
+      converter.convert(
+          input,
+          writer,
+          null,
+          count -> {
+            job.setFrames(count);
+            this.frames.incrementAndGet();
+            if (count % this.progressInterval == 0) {
+              this.listener.onProgress(job);
+            }
+          });
+      job.complete();
+      Logger.info(
+          String.format(
+              "Converted %s: %d frames in %.1f s (%.1f fps, %.1fx real time)",
+              input,
+              job.getFramesConverted(),
+              job.getElapsedTime() / 1e9,
+              job.getFramesPerSecond(),
+              job.getSpeed()));
+      this.listener.onComplete(job);
+    } catch (final IOException | RuntimeException e) {
+      job.fail(e);
+      Logger.warn(String.format("Failed to convert %s: %s", input, e.getMessage()));
+      this.listener.onFailure(job, e);
+    }
+  }
+
+  /** Stops taking media. Media already queued is still converted. */
+  public void shutdown() {
+    this.executor.shutdown();
+  }
+
+  /**
+   * Waits until all queued media is converted after a {@link #shutdown()}.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return whether all media was converted before the timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(final long timeout, @NotNull final TimeUnit unit)
+      throws InterruptedException {
+    return this.executor.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Gets how many media are waiting for a worker.
+   *
+   * @return the number of queued media
+   */
+  public int getQueuedJobs() {
+    return this.executor.getQueue().size();
+  }
+
+  public int getActiveJobs() {
+    return this.executor.getActiveCount();
+  }
+
+  public int getParallelism() {
+    return this.executor.getMaximumPoolSize();
+  }
+
+  /**
+   * Gets how many frames all jobs converted so far.
+   *
+   * @return the number of frames
+   */
+  public long getFramesConverted() {
+    return this.frames.get();
+  }
+
+  /**
+   * Gets the throughput of the whole batch since the first job started.
+   *
+   * @return the frames converted per second
+   */
+  public double getFramesPerSecond() {
+    final long start = this.start.get();
+    if (start == 0L) {
+      return 0.0;
+    }
+    return this.frames.get() * 1e9 / (System.nanoTime() - start);
+  }
+}
@@ -0,0 +1,187 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import io.github.pulsebeat02.minecraftmedialibrary.utility.HashingUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A directory of dithered videos, so media which is played over and over is only decoded and
+ * dithered once. Videos are keyed by a hash of the media, the size of the frames, the frame rate,
+ * the dither algorithm and the palette, and each is stored in its own map video file named after
+ * its key.
+ */
+public final class DitheredVideoCache {
+
+  private final Path directory;
+  private final boolean delta;
+  private final boolean compress;
+
+  /**
+   * Creates a cache which delta codes and deflates the frames it stores.
+   *
+   * @param directory the directory
+   */
+  public DitheredVideoCache(@NotNull final Path directory) {
+    this(directory, true, true);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param directory the directory
+   * @param delta whether frames are delta coded against the previous frame
+   * @param compress whether frames are deflated
+   */
+  public DitheredVideoCache(
+      @NotNull final Path directory, final boolean delta, final boolean compress) {
+    this.directory = directory;
+    this.delta = delta;
+    this.compress = compress;
+  }
+
+  /**
+   * Computes the key of a video. Local files are hashed by their contents, anything else such as
+   * urls by the String itself. Algorithms are told apart by their {@link
+   * DitherAlgorithm#getCacheKey()}, which includes their settings and lookup table.
+   *
+   * @param media the file or url of the media
+   * @param width the width of the frames in pixels
+   * @param height the height of the frames in pixels
+   * @param frameRate the frame rate in frames per second
+   * @param algorithm the dither algorithm
+   * @return the key
+   */
+  public static byte @NotNull [] getKey(
+      @NotNull final String media,
+      final int width,
+      final int height,
+      final float frameRate,
+      @NotNull final DitherAlgorithm algorithm) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(getMediaHash(media).getBytes(StandardCharsets.UTF_8));
+      final int[] palette = DitherLookupUtil.PALETTE;
+      final ByteBuffer values = ByteBuffer.allocate(16 + (palette.length << 2));
+      values
+          .putInt(width)
+          .putInt(height)
+          .putFloat(frameRate)
+          .putInt(DitheredVideoWriter.FORMAT_VERSION);
+      for (final int color : palette) {
+        values.putInt(color);
+      }
+      values.flip();
+      digest.update(values);
+      digest.update(algorithm.getCacheKey().getBytes(StandardCharsets.UTF_8));
+      return digest.digest();
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @NotNull
+  private static String getMediaHash(@NotNull final String media) {
+    try {
+      final Path file = Paths.get(media);
+      if (Files.isRegularFile(file)) {
+        return HashingUtils.getHash(file);
+      }
+    } catch (final InvalidPathException ignored) {
+    }
+    return media;
+  }
+
+  /**
+   * Opens the video stored under the key.
+   *
+   * @param key the key
+   * @return the reader, or null if no valid video is stored under the key
+   */
+  @Nullable
+  public DitheredVideoReader open(final byte @NotNull [] key) {
+    final Path file = getFile(key);
+    if (Files.notExists(file)) {
+      return null;
+    }
+    return DitheredVideoReader.open(file, key);
+  }
+
+  /**
+   * Creates a writer for the video stored under the key. The video replaces any existing one once
+   * the writer is closed.
+   *
+   * @param key the key
+   * @param width the width of the frames in pixels
+   * @param height the height of the frames in pixels
+   * @param mapWidth the width of the wall in maps
+   * @param mapHeight the height of the wall in maps
+   * @param frameRate the frame rate in frames per second
+   * @return the writer
+   * @throws IOException if the writer cannot be created
+   */
+  @NotNull
+  public DitheredVideoWriter createWriter(
+      final byte @NotNull [] key,
+      final int width,
+      final int height,
+      final int mapWidth,
+      final int mapHeight,
+      final float frameRate)
+      throws IOException {
+    return new DitheredVideoWriter(
+        getFile(key),
+        key,
+        width,
+        height,
+        mapWidth,
+        mapHeight,
+        frameRate,
+        this.delta,
+        this.compress);
+  }
+
+  public boolean contains(final byte @NotNull [] key) {
+    return Files.exists(getFile(key));
+  }
+
+  /**
+   * Removes the video stored under the key.
+   *
+   * @param key the key
+   * @return whether a video was removed
+   */
+  public boolean remove(final byte @NotNull [] key) {
+    try {
+      return Files.deleteIfExists(getFile(key));
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+    return false;
+  }
+
+  @NotNull
+  public Path getFile(final byte @NotNull [] key) {
+    return this.directory.resolve(
+        String.format(
+            "video-v%d-%s%s",
+            DitheredVideoWriter.FORMAT_VERSION,
+            HashingUtils.toHexString(key),
+            DitheredVideoWriter.EXTENSION));
+  }
+
+  @NotNull
+  public Path getDirectory() {
+    return this.directory;
+  }
+}
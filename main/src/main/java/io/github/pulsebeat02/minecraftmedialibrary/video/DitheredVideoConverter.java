@@ -0,0 +1,170 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.MediaLibraryCore;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherContext;
+import io.github.pulsebeat02.minecraftmedialibrary.ffmpeg.FFmpegFrameExtractor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Converts media into map video files ahead of time. Media is decoded by FFmpeg as fast as it
+ * decodes, scaled to cover the whole wall of maps and dithered frame by frame, so converting does
+ * not take as long as playing. Media played through VLC can be converted while it plays instead,
+ * with {@link io.github.pulsebeat02.minecraftmedialibrary.callback.MapCallback#setRecorder}, and
+ * many media at once with a {@link DitheredVideoBatch}.
+ */
+public final class DitheredVideoConverter {
+
+  private final MediaLibraryCore core;
+  private final DitherAlgorithm algorithm;
+  private final int mapWidth;
+  private final int mapHeight;
+  private final float frameRate;
+
+  /**
+   * Creates a converter.
+   *
+   * @param core the core
+   * @param algorithm the dither algorithm
+   * @param mapWidth the width of the wall in maps
+   * @param mapHeight the height of the wall in maps
+   * @param frameRate the frame rate of the videos in frames per second
+   */
+  public DitheredVideoConverter(
+      @NotNull final MediaLibraryCore core,
+      @NotNull final DitherAlgorithm algorithm,
+      final int mapWidth,
+      final int mapHeight,
+      final float frameRate) {
+    Preconditions.checkArgument(mapWidth > 0, "Map width must be greater than 0!");
+    Preconditions.checkArgument(mapHeight > 0, "Map height must be greater than 0!");
+    Preconditions.checkArgument(frameRate > 0, "Frame rate must be greater than 0!");
+    this.core = core;
+    this.algorithm = algorithm;
+    this.mapWidth = mapWidth;
+    this.mapHeight = mapHeight;
+    this.frameRate = frameRate;
+  }
+
+  /**
+   * Converts media into a map video file. Blocks until the whole media is converted.
+   *
+   * @param input the file or url of the media
+   * @param output the map video file
+   * @param logger the consumer of the output of FFmpeg, or null
+   * @return the number of frames converted
+   * @throws IOException if the media cannot be decoded or the file cannot be written
+   */
+  public long convert(
+      @NotNull final String input,
+      @NotNull final Path output,
+      @Nullable final Consumer<String> logger)
+      throws IOException {
+    return convert(input, createWriter(output), logger, null);
+  }
+
+  /**
+   * Converts media into a cache, so the media plays from the cache from now on.
+   *
+   * @param input the file or url of the media
+   * @param cache the cache
+   * @param logger the consumer of the output of FFmpeg, or null
+   * @return the number of frames converted
+   * @throws IOException if the media cannot be decoded or the file cannot be written
+   */
+  public long convert(
+      @NotNull final String input,
+      @NotNull final DitheredVideoCache cache,
+      @Nullable final Consumer<String> logger)
+      throws IOException {
+    return convert(input, createWriter(input, cache), logger, null);
+  }
+
+  long convert(
+      @NotNull final String input,
+      @NotNull final DitheredVideoWriter writer,
+      @Nullable final Consumer<String> logger,
+      @Nullable final LongConsumer progress)
+      throws IOException {
+    final int width = getWidth();
+    final DitherContext context = new DitherContext();
+    final ByteBuffer buffer = ByteBuffer.allocate(width * getHeight());
+    final FFmpegFrameExtractor extractor =
+        new FFmpegFrameExtractor(
+            this.core,
+            input,
+            width,
+            getHeight(),
+            this.frameRate,
+            pixels -> {
+              this.algorithm.ditherIntoMinecraft(pixels, width, buffer, context);
+              try {
+                writer.write(buffer);
+              } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+              }
+              if (progress != null) {
+                progress.accept(writer.getFrameCount());
+              }
+            });
+    try {
+      final long frames = extractor.extract(logger);
+      writer.close();
+      return frames;
+    } catch (final UncheckedIOException e) {
+      writer.abort();
+      throw e.getCause();
+    } catch (final IOException | RuntimeException e) {
+      writer.abort();
+      throw e;
+    }
+  }
+
+  @NotNull
+  DitheredVideoWriter createWriter(
+      @NotNull final String input, @NotNull final DitheredVideoCache cache) throws IOException {
+    final byte[] key =
+        DitheredVideoCache.getKey(input, getWidth(), getHeight(), this.frameRate, this.algorithm);
+    return cache.createWriter(
+        key, getWidth(), getHeight(), this.mapWidth, this.mapHeight, this.frameRate);
+  }
+
+  @NotNull
+  DitheredVideoWriter createWriter(@NotNull final Path output) throws IOException {
+    return new DitheredVideoWriter(
+        output,
+        null,
+        getWidth(),
+        getHeight(),
+        this.mapWidth,
+        this.mapHeight,
+        this.frameRate,
+        true,
+        true);
+  }
+
+  public int getWidth() {
+    return this.mapWidth << 7;
+  }
+
+  public int getHeight() {
+    return this.mapHeight << 7;
+  }
+
+  @NotNull
+  public DitherAlgorithm getAlgorithm() {
+    return this.algorithm;
+  }
+
+  public float getFrameRate() {
+    return this.frameRate;
+  }
+}
@@ -0,0 +1,363 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.DEFLATED;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.DELTA;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.FORMAT_VERSION;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.FRAME_HEADER_LENGTH;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.HEADER_LENGTH;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.INDEX_ENTRY_LENGTH;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.KEY_LENGTH;
+import static io.github.pulsebeat02.minecraftmedialibrary.video.DitheredVideoWriter.MAGIC;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.Logger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the frames of a map video file written by a {@link DitheredVideoWriter}. The file is memory
+ * mapped in windows of {@link #WINDOW_SIZE} bytes, so frames are decoded straight from the page
+ * cache, repeated plays of a video do not read it from disk again and videos may be larger than a
+ * single mapping allows. Frames are read in order, and {@link #seek(int)} jumps to any frame
+ * through the index of the file, decoding at most a keyframe interval of frames.
+ */
+public final class DitheredVideoReader implements Closeable {
+
+  /** The number of bytes of the file mapped at once, unless a single frame is larger. */
+  public static final int WINDOW_SIZE = 64 << 20;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final long size;
+  private final Inflater inflater;
+  private final int width;
+  private final int height;
+  private final int length;
+  private final int mapWidth;
+  private final int mapHeight;
+  private final float frameRate;
+  private final int frames;
+  private final long index;
+
+  private final byte[] frame;
+  private final byte[] decoded;
+  private byte[] compressed;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+  private int next;
+
+  private DitheredVideoReader(
+      @NotNull final Path file,
+      @NotNull final FileChannel channel,
+      @NotNull final MappedByteBuffer window,
+      final int width,
+      final int height,
+      final int mapWidth,
+      final int mapHeight,
+      final float frameRate,
+      final int frames,
+      final long index) {
+    this.file = file;
+    this.channel = channel;
+    this.size = index + (long) frames * INDEX_ENTRY_LENGTH;
+    this.window = window;
+    this.position = HEADER_LENGTH;
+    this.inflater = new Inflater();
+    this.width = width;
+    this.height = height;
+    this.length = width * height;
+    this.mapWidth = mapWidth;
+    this.mapHeight = mapHeight;
+    this.frameRate = frameRate;
+    this.frames = frames;
+    this.index = index;
+    this.frame = new byte[this.length];
+    this.decoded = new byte[this.length];
+    this.compressed = new byte[0];
+  }
+
+  /**
+   * Opens a video if the file holds a valid one.
+   *
+   * @param file the file
+   * @param key the key the video must have been written with, or null to accept any key
+   * @return the reader, or null if the file is not a valid video
+   */
+  @Nullable
+  public static DitheredVideoReader open(@NotNull final Path file, final byte @Nullable [] key) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+      final long size = channel.size();
+      if (size < HEADER_LENGTH) {
+        Logger.warn(String.format("Dithered video %s has an invalid size", file));
+        return null;
+      }
+      final MappedByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, WINDOW_SIZE));
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        Logger.warn(String.format("Dithered video %s has an invalid header", file));
+        return null;
+      }
+      if (buffer.getInt() != DitheredVideoWriter.getPaletteVersion()) {
+        Logger.warn(String.format("Dithered video %s was dithered into another palette", file));
+        return null;
+      }
+      final int width = buffer.getInt();
+      final int height = buffer.getInt();
+      final int mapWidth = buffer.getInt();
+      final int mapHeight = buffer.getInt();
+      final float frameRate = buffer.getFloat();
+      final int frames = buffer.getInt();
+      final long index = buffer.getLong();
+      if (width <= 0
+          || height <= 0
+          || width > mapWidth << 7
+          || height > mapHeight << 7
+          || !(frameRate > 0)
+          || frames <= 0
+          || index < HEADER_LENGTH
+          || index + (long) frames * INDEX_ENTRY_LENGTH != size) {
+        Logger.warn(String.format("Dithered video %s has an invalid header", file));
+        return null;
+      }
+      final byte[] stored = new byte[KEY_LENGTH];
+      buffer.get(stored);
+      if (key != null && !MessageDigest.isEqual(key, stored)) {
+        Logger.warn(String.format("Dithered video %s has a mismatched key", file));
+        return null;
+      }
+      final DitheredVideoReader reader =
+          new DitheredVideoReader(
+              file, channel, buffer, width, height, mapWidth, mapHeight, frameRate, frames, index);
+      channel = null;
+      return reader;
+    } catch (final IOException e) {
+      e.printStackTrace();
+    } finally {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (final IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decodes the next frame into the buffer, absolutely from index 0, so the position of the buffer
+   * does not change.
+   *
+   * @param data the buffer, at least width times height in capacity
+   * @return whether a frame was read, false at the end of the video
+   * @throws IOException if the frame is corrupt
+   */
+  public boolean read(@NotNull final ByteBuffer data) throws IOException {
+    Preconditions.checkArgument(data.capacity() >= this.length, "Buffer is too small!");
+    if (!next()) {
+      return false;
+    }
+    final ByteBuffer target = data.duplicate();
+    target.clear();
+    target.put(this.frame, 0, this.length);
+    return true;
+  }
+
+  /**
+   * Skips frames. Delta coded frames depend on the frames before them, so skipped frames are still
+   * decoded.
+   *
+   * @param count the number of frames to skip
+   * @return the number of frames skipped, less than the count at the end of the video
+   * @throws IOException if a frame is corrupt
+   */
+  public int skip(final int count) throws IOException {
+    int skipped = 0;
+    while (skipped < count && next()) {
+      skipped++;
+    }
+    return skipped;
+  }
+
+  /** Goes back to the first frame. */
+  public void rewind() {
+    this.position = HEADER_LENGTH;
+    this.next = 0;
+  }
+
+  /**
+   * Seeks to a frame, so it is the next frame read. Delta coded frames are decoded from the
+   * keyframe they depend on, unless the frame is a little ahead of the current one.
+   *
+   * @param frame the index of the frame
+   * @throws IOException if a frame is corrupt
+   */
+  public void seek(final int frame) throws IOException {
+    Preconditions.checkElementIndex(frame, this.frames, "Frame");
+    final long entry = this.index + (long) frame * INDEX_ENTRY_LENGTH;
+    final int keyframe = map(entry + 8, 4).getInt();
+    if (keyframe < 0 || keyframe > frame) {
+      throw new IOException(String.format("Dithered video %s has a corrupt index", this.file));
+    }
+    if (frame < this.next || keyframe > this.next) {
+      final long offset = map(this.index + (long) keyframe * INDEX_ENTRY_LENGTH, 8).getLong();
+      if (offset < HEADER_LENGTH || offset >= this.index) {
+        throw new IOException(String.format("Dithered video %s has a corrupt index", this.file));
+      }
+      this.position = offset;
+      this.next = keyframe;
+    }
+    skip(frame - this.next);
+  }
+
+  private boolean next() throws IOException {
+    if (this.next == this.frames) {
+      return false;
+    }
+    if (this.index - this.position < FRAME_HEADER_LENGTH) {
+      throw new IOException(String.format("Dithered video %s is truncated", this.file));
+    }
+    final ByteBuffer header = map(this.position, FRAME_HEADER_LENGTH);
+    final int flags = header.get();
+    final int size = header.getInt();
+    this.position += FRAME_HEADER_LENGTH;
+    if (size < 0
+        || size > this.index - this.position
+        || (flags & DEFLATED) == 0 && size != this.length) {
+      throw new IOException(String.format("Dithered video %s has a corrupt frame", this.file));
+    }
+    final ByteBuffer buffer = map(this.position, size);
+    this.position += size;
+    byte[] data = this.decoded;
+    if ((flags & DEFLATED) != 0) {
+      inflate(buffer, size);
+    } else if ((flags & DELTA) != 0) {
+      buffer.get(data, 0, size);
+    } else {
+      // whole frames are read straight into the frame
+      data = this.frame;
+      buffer.get(data, 0, size);
+    }
+    if ((flags & DELTA) != 0) {
+      final byte[] frame = this.frame;
+      for (int i = 0; i < frame.length; i++) {
+        frame[i] ^= data[i];
+      }
+    } else if (data != this.frame) {
+      System.arraycopy(data, 0, this.frame, 0, this.length);
+    }
+    this.next++;
+    return true;
+  }
+
+  /*
+   * Positions the mapped window at the passed offset of the file, mapping a new window from there
+   * if the bytes up to offset plus length are outside the current one.
+   */
+  @NotNull
+  private ByteBuffer map(final long offset, final int length) throws IOException {
+    if (offset < this.windowStart
+        || offset + length > this.windowStart + this.window.capacity()) {
+      final long size = Math.min(Math.max(WINDOW_SIZE, length), this.size - offset);
+      this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+      this.windowStart = offset;
+    }
+    this.window.position((int) (offset - this.windowStart));
+    return this.window;
+  }
+
+  private void inflate(@NotNull final ByteBuffer buffer, final int size) throws IOException {
+    if (this.compressed.length < size) {
+      this.compressed = new byte[size];
+    }
+    buffer.get(this.compressed, 0, size);
+    final Inflater inflater = this.inflater;
+    inflater.reset();
+    inflater.setInput(this.compressed, 0, size);
+    try {
+      int read = 0;
+      while (read < this.length && !inflater.finished()) {
+        final int inflated = inflater.inflate(this.decoded, read, this.length - read);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        read += inflated;
+      }
+      if (read != this.length) {
+        throw new IOException(String.format("Dithered video %s has a corrupt frame", this.file));
+      }
+    } catch (final DataFormatException e) {
+      throw new IOException(String.format("Dithered video %s has a corrupt frame", this.file), e);
+    }
+  }
+
+  @Override
+  public void close() {
+    this.inflater.end();
+    try {
+      this.channel.close();
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @NotNull
+  public Path getFile() {
+    return this.file;
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  public int getMapWidth() {
+    return this.mapWidth;
+  }
+
+  public int getMapHeight() {
+    return this.mapHeight;
+  }
+
+  public float getFrameRate() {
+    return this.frameRate;
+  }
+
+  /**
+   * Gets the time between frames.
+   *
+   * @return the time between frames in nanoseconds
+   */
+  public long getFrameInterval() {
+    return Math.round(1_000_000_000.0 / this.frameRate);
+  }
+
+  public int getFrameCount() {
+    return this.frames;
+  }
+
+  /**
+   * Gets the index of the next frame to be read.
+   *
+   * @return the index of the next frame
+   */
+  public int getFrameIndex() {
+    return this.next;
+  }
+}
@@ -0,0 +1,378 @@
+package io.github.pulsebeat02.minecraftmedialibrary.video;
+
+import com.google.common.base.Preconditions;
+import io.github.pulsebeat02.minecraftmedialibrary.dither.DitherLookupUtil;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes dithered frames, the palette colors a {@link
+ * io.github.pulsebeat02.minecraftmedialibrary.dither.DitherAlgorithm} produces, into a map video
+ * file ({@code .mmlv}) which a {@link DitheredVideoReader} plays back without decoding or
+ * dithering the media again.
+ *
+ * <p>File layout: magic, format version, palette version, width and height of the frames in
+ * pixels, width and height of the wall in maps, frame rate, frame count, offset of the index, the
+ * 20 byte key and then the frames. Every frame starts with a flags byte and the length of its
+ * data. Frames other than every {@link #KEYFRAME_INTERVAL}th are delta coded, the bytes are xor'd
+ * with the previous frame so unchanged pixels turn into runs of zeros, and the data is deflated
+ * when that makes it smaller. The index after the frames holds the offset of every frame and of
+ * the keyframe it depends on, so readers seek to any frame directly.
+ *
+ * <p>Frames are written to a temporary file which replaces the target atomically once the writer
+ * is closed, so readers never see a partial video. Writers may be closed from another thread than
+ * the one writing frames.
+ */
+public final class DitheredVideoWriter implements Closeable {
+
+  /** The extension of map video files. */
+  public static final String EXTENSION = ".mmlv";
+
+  static final int MAGIC = 0x4D4D4C56; // "MMLV"
+  static final int FORMAT_VERSION = 2;
+  static final int KEY_LENGTH = 20;
+  static final int HEADER_LENGTH = 44 + KEY_LENGTH;
+  static final int FRAME_HEADER_LENGTH = 5;
+  static final int INDEX_ENTRY_LENGTH = 12;
+  static final int FRAME_COUNT_OFFSET = 32;
+
+  static final int DELTA = 1;
+  static final int DEFLATED = 2;
+
+  /** How many frames apart frames are stored whole instead of delta coded. */
+  public static final int KEYFRAME_INTERVAL = 64;
+
+  /**
+   * The longest gap in nanoseconds between two timed frames which is filled by repeating frames.
+   * Longer gaps are taken as paused playback and the recording resumes right after its last frame.
+   */
+  public static final long MAXIMUM_GAP = 1_000_000_000L;
+
+  private final Path file;
+  private final Path temp;
+  private final FileChannel channel;
+  private final ByteBuffer frameHeader;
+  private final Deflater deflater;
+  private final int width;
+  private final int height;
+  private final int length;
+  private final float frameRate;
+  private final boolean delta;
+  private final boolean compress;
+
+  private byte[] previous;
+  private byte[] current;
+  private byte[] output;
+  private byte[] compressed;
+  private long[] offsets;
+  private int[] keyframes;
+  private long position;
+  private int keyframe;
+  private int frames;
+  private long start;
+  private long last;
+  private boolean closed;
+
+  /**
+   * Creates a writer. The file is only created once the writer is closed.
+   *
+   * @param file the file to write
+   * @param key the key identifying the media, 20 bytes in length, or null for files which are not
+   *     part of a {@link DitheredVideoCache}
+   * @param width the width of the frames in pixels
+   * @param height the height of the frames in pixels
+   * @param mapWidth the width of the wall in maps
+   * @param mapHeight the height of the wall in maps
+   * @param frameRate the frame rate in frames per second
+   * @param delta whether frames are delta coded against the previous frame
+   * @param compress whether frames are deflated
+   * @throws IOException if the temporary file cannot be created
+   */
+  public DitheredVideoWriter(
+      @NotNull final Path file,
+      final byte @Nullable [] key,
+      final int width,
+      final int height,
+      final int mapWidth,
+      final int mapHeight,
+      final float frameRate,
+      final boolean delta,
+      final boolean compress)
+      throws IOException {
+    Preconditions.checkArgument(
+        key == null || key.length == KEY_LENGTH, "Key must be 20 bytes in length!");
+    Preconditions.checkArgument(width > 0, "Width must be greater than 0!");
+    Preconditions.checkArgument(height > 0, "Height must be greater than 0!");
+    Preconditions.checkArgument(
+        width <= mapWidth << 7 && height <= mapHeight << 7, "Frames must fit on the maps!");
+    Preconditions.checkArgument(frameRate > 0, "Frame rate must be greater than 0!");
+    final Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    this.file = file;
+    this.temp = Files.createTempFile(directory, "video", ".tmp");
+    this.channel = FileChannel.open(this.temp, StandardOpenOption.WRITE);
+    this.frameHeader = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+    this.deflater = new Deflater(Deflater.BEST_SPEED);
+    this.width = width;
+    this.height = height;
+    this.length = width * height;
+    this.frameRate = frameRate;
+    this.delta = delta;
+    this.compress = compress;
+    this.previous = new byte[this.length];
+    this.current = new byte[this.length];
+    this.output = new byte[this.length];
+    this.compressed = new byte[this.length];
+    this.offsets = new long[KEYFRAME_INTERVAL];
+    this.keyframes = new int[KEYFRAME_INTERVAL];
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    header
+        .putInt(MAGIC)
+        .putInt(FORMAT_VERSION)
+        .putInt(getPaletteVersion())
+        .putInt(width)
+        .putInt(height)
+        .putInt(mapWidth)
+        .putInt(mapHeight)
+        .putFloat(frameRate)
+        .putInt(0)
+        .putLong(0L)
+        .put(key == null ? new byte[KEY_LENGTH] : key)
+        .flip();
+    writeFully(header);
+  }
+
+  /**
+   * Gets the version of the palette frames are dithered into, so videos dithered into another
+   * palette are not played.
+   *
+   * @return the palette version
+   */
+  public static int getPaletteVersion() {
+    return Arrays.hashCode(DitherLookupUtil.PALETTE);
+  }
+
+  /**
+   * Appends a frame. Only the first width times height bytes of the buffer are read, absolutely
+   * from index 0, so the position of the buffer does not change.
+   *
+   * @param data the palette colors of the frame
+   * @throws IOException if the frame cannot be written
+   */
+  public synchronized void write(@NotNull final ByteBuffer data) throws IOException {
+    Preconditions.checkArgument(data.capacity() >= this.length, "Frame is too small!");
+    Preconditions.checkState(!this.closed, "Writer is already closed!");
+    final ByteBuffer source = data.duplicate();
+    source.clear();
+    source.get(this.current, 0, this.length);
+    writeCurrent();
+  }
+
+  /**
+   * Appends a frame shown at the passed time, so recordings of live playback keep their timing
+   * when frames were dropped before reaching the maps. The first frame starts the video, the
+   * previous frame is repeated for every frame the video has fallen behind the time, and a frame
+   * arriving before its slot in the video is due is skipped. A gap longer than {@link #MAXIMUM_GAP}
+   * since the previous frame is taken as a pause and is not filled, the frame directly follows the
+   * previous one instead. Only the first width times height bytes of the buffer are read,
+   * absolutely from index 0.
+   *
+   * @param data the palette colors of the frame
+   * @param time the time the frame was shown in nanoseconds, as returned by {@link
+   *     System#nanoTime()}
+   * @return whether the frame was written
+   * @throws IOException if the frame cannot be written
+   */
+  public synchronized boolean write(@NotNull final ByteBuffer data, final long time)
+      throws IOException {
+    Preconditions.checkArgument(data.capacity() >= this.length, "Frame is too small!");
+    Preconditions.checkState(!this.closed, "Writer is already closed!");
+    final long slot;
+    if (this.frames == 0 || time - this.last > MAXIMUM_GAP) {
+      // move the start so the frame lands in the next slot, later frames keep their timing
+      this.start = time - (long) (this.frames * 1_000_000_000.0 / this.frameRate);
+      slot = this.frames;
+    } else {
+      slot = (long) ((time - this.start) * (double) this.frameRate / 1_000_000_000L);
+    }
+    this.last = time;
+    if (slot < this.frames) {
+      return false;
+    }
+    while (this.frames < slot) {
+      // delta coded repeats are all zeros, they deflate to almost nothing
+      System.arraycopy(this.previous, 0, this.current, 0, this.length);
+      writeCurrent();
+    }
+    final ByteBuffer source = data.duplicate();
+    source.clear();
+    source.get(this.current, 0, this.length);
+    writeCurrent();
+    return true;
+  }
+
+  /**
+   * Appends a frame.
+   *
+   * @param data the palette colors of the frame, at least width times height in length
+   * @throws IOException if the frame cannot be written
+   */
+  public synchronized void write(final byte @NotNull [] data) throws IOException {
+    Preconditions.checkArgument(data.length >= this.length, "Frame is too small!");
+    Preconditions.checkState(!this.closed, "Writer is already closed!");
+    System.arraycopy(data, 0, this.current, 0, this.length);
+    writeCurrent();
+  }
+
+  private void writeCurrent() throws IOException {
+    int flags = 0;
+    byte[] data = this.current;
+    if (this.delta && this.frames % KEYFRAME_INTERVAL != 0) {
+      final byte[] current = this.current;
+      final byte[] previous = this.previous;
+      final byte[] output = this.output;
+      for (int i = 0; i < output.length; i++) {
+        output[i] = (byte) (current[i] ^ previous[i]);
+      }
+      data = output;
+      flags |= DELTA;
+    }
+    int size = this.length;
+    if (this.compress) {
+      final int deflated = deflate(data);
+      if (deflated < size) {
+        data = this.compressed;
+        size = deflated;
+        flags |= DEFLATED;
+      }
+    }
+    if ((flags & DELTA) == 0) {
+      this.keyframe = this.frames;
+    }
+    if (this.frames == this.offsets.length) {
+      this.offsets = Arrays.copyOf(this.offsets, this.frames << 1);
+      this.keyframes = Arrays.copyOf(this.keyframes, this.frames << 1);
+    }
+    this.offsets[this.frames] = this.position;
+    this.keyframes[this.frames] = this.keyframe;
+
+    this.frameHeader.clear();
+    this.frameHeader.put((byte) flags).putInt(size).flip();
+    writeFully(this.frameHeader);
+    writeFully(ByteBuffer.wrap(data, 0, size));
+
+    final byte[] swap = this.previous;
+    this.previous = this.current;
+    this.current = swap;
+    this.frames++;
+  }
+
+  private int deflate(final byte @NotNull [] data) {
+    final Deflater deflater = this.deflater;
+    deflater.reset();
+    deflater.setInput(data, 0, this.length);
+    deflater.finish();
+    int size = 0;
+    while (!deflater.finished()) {
+      if (size == this.compressed.length) {
+        // incompressible frames are stored as they are, there is no need to deflate them fully
+        return Integer.MAX_VALUE;
+      }
+      size += deflater.deflate(this.compressed, size, this.compressed.length - size);
+    }
+    return size;
+  }
+
+  private void writeFully(@NotNull final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      this.position += this.channel.write(buffer);
+    }
+  }
+
+  /**
+   * Finishes the video and moves it to its file, replacing any existing file atomically. Videos
+   * without frames are discarded.
+   *
+   * @throws IOException if the video cannot be finished
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    this.deflater.end();
+    try {
+      if (this.frames == 0) {
+        this.channel.close();
+        Files.deleteIfExists(this.temp);
+        return;
+      }
+      final long index = this.position;
+      final ByteBuffer entries = ByteBuffer.allocate(this.frames * INDEX_ENTRY_LENGTH);
+      for (int i = 0; i < this.frames; i++) {
+        entries.putLong(this.offsets[i]).putInt(this.keyframes[i]);
+      }
+      entries.flip();
+      writeFully(entries);
+      final ByteBuffer count = ByteBuffer.allocate(12);
+      count.putInt(this.frames).putLong(index).flip();
+      while (count.hasRemaining()) {
+        this.channel.write(count, FRAME_COUNT_OFFSET + count.position());
+      }
+      this.channel.force(true);
+      this.channel.close();
+      Files.move(
+          this.temp,
+          this.file,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      abort();
+      throw e;
+    }
+  }
+
+  /** Discards the video, for example when playback stopped before the end of the media. */
+  public synchronized void abort() {
+    this.closed = true;
+    this.deflater.end();
+    try {
+      this.channel.close();
+      Files.deleteIfExists(this.temp);
+    } catch (final IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  @NotNull
+  public Path getFile() {
+    return this.file;
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  public int getFrameCount() {
+    return this.frames;
+  }
+
+  public boolean isClosed() {
+    return this.closed;
+  }
+}
@@ -4,9 +4,11 @@ include("api")
 include("v1_16_R3")
 include("main")
 include("lib")
+include("benchmarks")
 
 findProject("api")?.name = "minecraftmedialibrary-api"
 findProject("main")?.name = "minecraftmedialibrary"
 findProject("lib")?.name = "minecraftmedialibrary-lib"
+findProject("benchmarks")?.name = "minecraftmedialibrary-benchmarks"
 
 
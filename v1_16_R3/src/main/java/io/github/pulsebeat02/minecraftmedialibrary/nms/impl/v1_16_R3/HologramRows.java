@@ -0,0 +1,157 @@
+package io.github.pulsebeat02.minecraftmedialibrary.nms.impl.v1_16_R3;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.server.v1_16_R3.ChatComponentText;
+import net.minecraft.server.v1_16_R3.ChatHexColor;
+import net.minecraft.server.v1_16_R3.ChatModifier;
+import net.minecraft.server.v1_16_R3.IChatBaseComponent;
+
+/**
+ * Turns rows of pixels into the custom names of hologram entities. A row is one text component
+ * holding a child for every run of equal colors, and components are cached by the hash of their
+ * row, so rows which come back in later frames are not built again. Rows which did not change
+ * since they were last sent to an entity are skipped, except that every row is sent again now and
+ * then for viewers who came in range of the entities and were sent their real names instead.
+ * Sent rows are tracked for each group of viewers, like the tiles of maps, so a viewer of one
+ * group is never skipped because another group was sent the row.
+ */
+final class HologramRows {
+
+  private static final char PIXEL = '█';
+  private static final int MAX_CACHED_ROWS = 1024;
+  private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+
+  private final Map<Long, IChatBaseComponent> components =
+      Collections.synchronizedMap(
+          new LinkedHashMap<Long, IChatBaseComponent>(64, 0.75f, true) {
+            private static final long serialVersionUID = 4317245931584683870L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, IChatBaseComponent> eldest) {
+              return size() > MAX_CACHED_ROWS;
+            }
+          });
+
+  // hash of the row last sent to each entity id, and when it was sent, for each group of viewers.
+  // Least recently used groups are dropped, they simply receive every row again if they come back
+  private final Map<Set<UUID>, Map<Integer, SentRow>> sentRows =
+      Collections.synchronizedMap(
+          new LinkedHashMap<Set<UUID>, Map<Integer, SentRow>>(16, 0.75f, true) {
+            private static final long serialVersionUID = -6053297437102843245L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Set<UUID>, Map<Integer, SentRow>> eldest) {
+              return size() > NMSMapPacketIntercepter.MAX_DELTA_GROUPS;
+            }
+          });
+
+  private volatile long lastPruned;
+
+  /**
+   * Gets the component of a row, if the entity has to be sent it.
+   *
+   * @param group the viewers the row is sent to
+   * @param entityId the id of the entity showing the row
+   * @param data the pixels of the frame
+   * @param offset the index of the first pixel of the row
+   * @param width the width of the row
+   * @param now the current time in nanoseconds
+   * @return the component, or null if the entity already shows the row
+   */
+  IChatBaseComponent getChangedRow(
+      final Set<UUID> group,
+      final int entityId,
+      final int[] data,
+      final int offset,
+      final int width,
+      final long now) {
+    final long hash = hash(data, offset, width);
+    final Map<Integer, SentRow> sentRows =
+        this.sentRows.computeIfAbsent(group, key -> new ConcurrentHashMap<>());
+    final SentRow sent = sentRows.get(entityId);
+    if (sent != null && sent.hash == hash && now - sent.time < REFRESH_INTERVAL) {
+      return null;
+    }
+    sentRows.put(entityId, new SentRow(hash, now));
+    IChatBaseComponent component = this.components.get(hash);
+    if (component == null) {
+      component = createRow(data, offset, width);
+      this.components.put(hash, component);
+    }
+    return component;
+  }
+
+  /**
+   * Forgets rows sent longer than the refresh interval ago, such as the rows of removed entities.
+   * They would be sent again anyway, so this only frees them. Runs at most once per interval.
+   *
+   * @param now the current time in nanoseconds
+   */
+  void prune(final long now) {
+    if (now - this.lastPruned < REFRESH_INTERVAL) {
+      return;
+    }
+    this.lastPruned = now;
+    synchronized (this.sentRows) {
+      this.sentRows
+          .values()
+          .removeIf(
+              sentRows -> {
+                sentRows.values().removeIf(sent -> now - sent.time >= REFRESH_INTERVAL);
+                return sentRows.isEmpty();
+              });
+    }
+  }
+
+  /** Forgets which rows were sent, so every entity is sent its row with the next frame. */
+  void reset() {
+    this.sentRows.clear();
+  }
+
+  private IChatBaseComponent createRow(final int[] data, final int offset, final int width) {
+    final char[] pixels = new char[width];
+    Arrays.fill(pixels, PIXEL);
+    final ChatComponentText row = new ChatComponentText("");
+    int start = offset;
+    final int end = offset + width;
+    while (start < end) {
+      final int color = data[start] & 0xFFFFFF;
+      int run = start + 1;
+      while (run < end && (data[run] & 0xFFFFFF) == color) {
+        run++;
+      }
+      final ChatComponentText text = new ChatComponentText(new String(pixels, 0, run - start));
+      text.setChatModifier(ChatModifier.a.setColor(ChatHexColor.a(color)));
+      row.addSibling(text);
+      start = run;
+    }
+    return row;
+  }
+
+  private static long hash(final int[] data, final int offset, final int width) {
+    long hash = 0xCBF29CE484222325L ^ width;
+    for (int i = offset; i < offset + width; i++) {
+      hash = (hash ^ (data[i] & 0xFFFFFF)) * 0x100000001B3L;
+    }
+    return hash;
+  }
+
+  private static final class SentRow {
+
+    private final long hash;
+    private final long time;
+
+    SentRow(final long hash, final long time) {
+      this.hash = hash;
+      this.time = time;
+    }
+  }
+}
@@ -1,26 +1,37 @@
 package io.github.pulsebeat02.minecraftmedialibrary.nms.impl.v1_16_R3;
 
+import io.github.pulsebeat02.minecraftmedialibrary.nms.MapTile;
 import io.github.pulsebeat02.minecraftmedialibrary.nms.PacketHandler;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import net.minecraft.server.v1_16_R3.ChatComponentText;
-import net.minecraft.server.v1_16_R3.ChatHexColor;
+import net.minecraft.server.v1_16_R3.ChatMessageType;
 import net.minecraft.server.v1_16_R3.DataWatcher;
 import net.minecraft.server.v1_16_R3.DataWatcherObject;
 import net.minecraft.server.v1_16_R3.DataWatcherRegistry;
 import net.minecraft.server.v1_16_R3.IChatBaseComponent;
 import net.minecraft.server.v1_16_R3.MapIcon;
 import net.minecraft.server.v1_16_R3.MinecraftKey;
+import net.minecraft.server.v1_16_R3.Packet;
 import net.minecraft.server.v1_16_R3.PacketDataSerializer;
+import net.minecraft.server.v1_16_R3.PacketPlayOutChat;
 import net.minecraft.server.v1_16_R3.PacketPlayOutCustomPayload;
 import net.minecraft.server.v1_16_R3.PacketPlayOutEntityMetadata;
 import net.minecraft.server.v1_16_R3.PacketPlayOutMap;
@@ -29,44 +40,82 @@ import org.bukkit.craftbukkit.v1_16_R3.entity.CraftEntity;
 import org.bukkit.craftbukkit.v1_16_R3.entity.CraftPlayer;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
 
 public class NMSMapPacketIntercepter implements PacketHandler {
 
   public static final int PACKET_THRESHOLD_MS = 0;
+  public static final int MAX_DELTA_GROUPS = 16;
 
-  private static final Field[] MAP_FIELDS = new Field[10];
-  private static Field METADATA_ID;
-  private static Field METADATA_ITEMS;
+  // packet id, map id, flags, icon count, bounds and data length of a map packet at most
+  private static final int MAP_PACKET_OVERHEAD = 16;
 
-  static {
-    try {
-      MAP_FIELDS[0] = PacketPlayOutMap.class.getDeclaredField("a");
-      MAP_FIELDS[1] = PacketPlayOutMap.class.getDeclaredField("b");
-      MAP_FIELDS[2] = PacketPlayOutMap.class.getDeclaredField("c");
-      MAP_FIELDS[3] = PacketPlayOutMap.class.getDeclaredField("d");
-      MAP_FIELDS[4] = PacketPlayOutMap.class.getDeclaredField("e");
-      MAP_FIELDS[5] = PacketPlayOutMap.class.getDeclaredField("f");
-      MAP_FIELDS[6] = PacketPlayOutMap.class.getDeclaredField("g");
-      MAP_FIELDS[7] = PacketPlayOutMap.class.getDeclaredField("h");
-      MAP_FIELDS[8] = PacketPlayOutMap.class.getDeclaredField("i");
-      MAP_FIELDS[9] = PacketPlayOutMap.class.getDeclaredField("j");
-      for (final Field field : MAP_FIELDS) {
-        field.setAccessible(true);
-      }
-      METADATA_ID = PacketPlayOutEntityMetadata.class.getDeclaredField("a");
-      METADATA_ID.setAccessible(true);
-      METADATA_ITEMS = PacketPlayOutEntityMetadata.class.getDeclaredField("b");
-      METADATA_ITEMS.setAccessible(true);
-    } catch (final Exception exception) {
-      exception.printStackTrace();
-    }
-  }
+  // setters of the packet fields, a new packet already holds the default scale and flags
+  private static final MethodHandle MAP_ID = getSetter(PacketPlayOutMap.class, "a");
+  private static final MethodHandle MAP_ICONS = getSetter(PacketPlayOutMap.class, "e");
+  private static final MethodHandle MAP_X = getSetter(PacketPlayOutMap.class, "f");
+  private static final MethodHandle MAP_Y = getSetter(PacketPlayOutMap.class, "g");
+  private static final MethodHandle MAP_WIDTH = getSetter(PacketPlayOutMap.class, "h");
+  private static final MethodHandle MAP_HEIGHT = getSetter(PacketPlayOutMap.class, "i");
+  private static final MethodHandle MAP_DATA = getSetter(PacketPlayOutMap.class, "j");
+  private static final MethodHandle MAP_DATA_GETTER = getGetter(PacketPlayOutMap.class, "j");
+  private static final MethodHandle METADATA_ID =
+      getSetter(PacketPlayOutEntityMetadata.class, "a");
+  private static final MethodHandle METADATA_ITEMS =
+      getSetter(PacketPlayOutEntityMetadata.class, "b");
+  private static final MapIcon[] EMPTY_ICONS = new MapIcon[0];
+  private static final DataWatcherObject<Optional<IChatBaseComponent>> CUSTOM_NAME =
+      new DataWatcherObject<>(2, DataWatcherRegistry.f);
+  private static final int DEBUG_MARKER_SIZE = 16;
+  private static final UUID SYSTEM_SENDER = new UUID(0L, 0L);
+  private static final int MAX_CACHED_CHAT_ROWS = 1024;
 
   private final Map<UUID, PlayerConnection> playerConnections = new ConcurrentHashMap<>();
-  private final Map<UUID, Long> lastUpdated = new ConcurrentHashMap<>();
+  // only paces debug markers. Map frames are paced by the ViewerPacer, so a marker sent in the
+  // same millisecond never keeps a viewer from a delta encoded frame
+  private final Map<UUID, Long> lastMarkerUpdates = new ConcurrentHashMap<>();
   private final Set<Integer> maps = new TreeSet<>();
   private final MinecraftKey debugMarker = new MinecraftKey("debug/game_test_add_marker");
 
+  // last sent 128x128 tile per map id, for each group of viewers. Least recently used groups are
+  // dropped, they simply receive full tiles again if they come back
+  private final Map<Set<UUID>, Map<Integer, byte[]>> sentMaps =
+      Collections.synchronizedMap(
+          new LinkedHashMap<Set<UUID>, Map<Integer, byte[]>>(16, 0.75f, true) {
+            private static final long serialVersionUID = -2725379587627716853L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<Set<UUID>, Map<Integer, byte[]>> eldest) {
+              return size() > MAX_DELTA_GROUPS;
+            }
+          });
+
+  private final PacketBroadcaster broadcaster = new PacketBroadcaster();
+  private final Map<UUID, ViewerPacer> pacers = new ConcurrentHashMap<>();
+  private final Map<UUID, Long> bandwidthBudgets = new ConcurrentHashMap<>();
+  private final HologramRows hologramRows = new HologramRows();
+
+  // chat packets of the rows sent lately, by their json. Packets are not changed once created, so
+  // a row which comes back is sent without parsing it again
+  private final Map<String, PacketPlayOutChat> chatRows =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, PacketPlayOutChat>(64, 0.75f, true) {
+            private static final long serialVersionUID = 6311843052717465823L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, PacketPlayOutChat> eldest) {
+              return size() > MAX_CACHED_CHAT_ROWS;
+            }
+          });
+
+  // sidebars by the id of their scoreboard, with the viewers which were sent each of them
+  private final Map<Integer, SidebarRows> sidebars = new ConcurrentHashMap<>();
+
+  private volatile long bandwidthBudget;
+
+  private volatile boolean deltaEncoding;
+
   @Override
   public void displayMaps(
       final UUID[] viewers,
@@ -91,39 +140,51 @@ public class NMSMapPacketIntercepter implements PacketHandler {
       final int z,
       final int color,
       final int time) {
-    final ByteBuf buf = Unpooled.buffer();
-    buf.writeLong(((long) x & 67108863L) << 38 | (long) y & 4095L | ((long) z & 67108863L) << 12);
-    buf.writeInt(color);
-    buf.writeInt(time);
-    final PacketPlayOutCustomPayload packet =
-        new PacketPlayOutCustomPayload(this.debugMarker, new PacketDataSerializer(buf));
-    if (viewers == null) {
-      for (final UUID uuid : this.playerConnections.keySet()) {
-        final long val = this.lastUpdated.getOrDefault(uuid, 0L);
-        if (System.currentTimeMillis() - val > PACKET_THRESHOLD_MS) {
-          this.lastUpdated.put(uuid, System.currentTimeMillis());
-          final PlayerConnection connection = this.playerConnections.get(uuid);
-          if (connection != null) {
-            connection.sendPacket(packet);
-          }
-        }
-      }
-    } else {
-      for (final UUID uuid : viewers) {
-        final long val = this.lastUpdated.getOrDefault(uuid, 0L);
-        if (System.currentTimeMillis() - val > PACKET_THRESHOLD_MS) {
-          this.lastUpdated.put(uuid, System.currentTimeMillis());
-          final PlayerConnection connection = this.playerConnections.get(uuid);
-          if (connection != null) {
-            connection.sendPacket(packet);
-          }
-        }
-      }
+    displayDebugMarkers(viewers, new int[] {x, y, z}, new int[] {color}, time);
+  }
+
+  @Override
+  public boolean displayDebugMarkers(
+      final UUID[] viewers,
+      final int @NotNull [] positions,
+      final int @NotNull [] colors,
+      final int time) {
+    final int count = colors.length;
+    if (count == 0) {
+      return true;
     }
 
-    for (final UUID uuid : viewers) {
-      this.playerConnections.get(uuid).sendPacket(packet);
+    // every payload is a slice of one buffer. The buffer is not pooled, as packets which are not
+    // broadcast are encoded later on the event loop of each connection
+    final ByteBuf payloads = Unpooled.buffer(count * DEBUG_MARKER_SIZE);
+    final PacketPlayOutCustomPayload[] packets = new PacketPlayOutCustomPayload[count];
+    for (int i = 0; i < count; i++) {
+      final int start = payloads.writerIndex();
+      final long x = positions[i * 3];
+      final long y = positions[i * 3 + 1];
+      final long z = positions[i * 3 + 2];
+      payloads.writeLong((x & 67108863L) << 38 | y & 4095L | (z & 67108863L) << 12);
+      payloads.writeInt(colors[i]);
+      payloads.writeInt(time);
+      packets[i] =
+          new PacketPlayOutCustomPayload(
+              this.debugMarker,
+              new PacketDataSerializer(payloads.slice(start, DEBUG_MARKER_SIZE)));
     }
+
+    final long now = System.currentTimeMillis();
+    final List<UUID> targets = new ArrayList<>();
+    boolean all = true;
+    for (final UUID uuid : getTargets(viewers)) {
+      if (now - this.lastMarkerUpdates.getOrDefault(uuid, 0L) > PACKET_THRESHOLD_MS) {
+        this.lastMarkerUpdates.put(uuid, now);
+        targets.add(uuid);
+      } else {
+        all = false;
+      }
+    }
+    sendPackets(targets, packets);
+    return all;
   }
 
   @Override
@@ -143,9 +204,8 @@ public class NMSMapPacketIntercepter implements PacketHandler {
     final int yLoopMin = Math.max(0, yOff / 128);
     final int xLoopMax = Math.min(width, (int) Math.ceil(negXOff / 128.0));
     final int yLoopMax = Math.min(height, (int) Math.ceil(negYOff / 128.0));
-    final PacketPlayOutMap[] packetArray =
-        new PacketPlayOutMap[(xLoopMax - xLoopMin) * (yLoopMax - yLoopMin)];
-    int arrIndex = 0;
+    final MapTile[] tiles = new MapTile[(xLoopMax - xLoopMin) * (yLoopMax - yLoopMin)];
+    int tileIndex = 0;
     for (int y = yLoopMin; y < yLoopMax; y++) {
       final int relY = y << 7;
       final int topY = Math.max(0, yOff - relY);
@@ -165,99 +225,366 @@ public class NMSMapPacketIntercepter implements PacketHandler {
             mapData[val] = rgb.get(indexY + relX + ix - xOff);
           }
         }
-        final int mapId = map + width * y + x;
-        final PacketPlayOutMap packet = new PacketPlayOutMap();
-        try {
-          MAP_FIELDS[0].set(packet, mapId);
-          MAP_FIELDS[1].set(packet, (byte) 0);
-          MAP_FIELDS[2].set(packet, false);
-          MAP_FIELDS[3].set(packet, false);
-          MAP_FIELDS[4].set(packet, new MapIcon[0]);
-          MAP_FIELDS[5].set(packet, topX);
-          MAP_FIELDS[6].set(packet, topY);
-          MAP_FIELDS[7].set(packet, xDiff);
-          MAP_FIELDS[8].set(packet, yDiff);
-          MAP_FIELDS[9].set(packet, mapData);
-        } catch (final Exception exception) {
-          exception.printStackTrace();
-        }
+        tiles[tileIndex++] = new MapTile(x, y, topX, topY, xDiff, yDiff, mapData);
+      }
+    }
+    displayMapTiles(viewers, map, width, tiles);
+  }
+
+  @Override
+  public void displayMapTiles(
+      final UUID[] viewers, final int map, final int mapWidth, final MapTile @NotNull [] tiles) {
+    final Set<UUID> group = this.deltaEncoding ? getGroup(viewers) : null;
+    final Map<Integer, byte[]> sent = group != null ? getSentMaps(group) : null;
+    final PacketPlayOutMap[] packetArray = new PacketPlayOutMap[tiles.length];
+    final int[] mapIds = new int[tiles.length];
+    int arrIndex = 0;
+    long bytes = 0;
+    long fullBytes = 0;
+    for (int i = 0; i < tiles.length; i++) {
+      final MapTile tile = tiles[i];
+      final int mapId = map + mapWidth * tile.getRow() + tile.getColumn();
+      mapIds[i] = mapId;
+      final int topX = tile.getX();
+      final int topY = tile.getY();
+      final int xDiff = tile.getWidth();
+      final int yDiff = tile.getHeight();
+      final byte[] mapData = tile.getData();
+      final PacketPlayOutMap packet =
+          sent == null
+              ? createMapPacket(mapId, topX, topY, xDiff, yDiff, mapData)
+              : createDeltaMapPacket(sent, mapId, topX, topY, xDiff, yDiff, mapData);
+      if (packet != null) {
         packetArray[arrIndex++] = packet;
+        bytes += getPacketSize(packet);
       }
+      fullBytes += xDiff * yDiff + MAP_PACKET_OVERHEAD;
     }
-    if (viewers == null) {
-      for (final UUID uuid : this.playerConnections.keySet()) {
-        final long val = this.lastUpdated.getOrDefault(uuid, 0L);
-        if (System.currentTimeMillis() - val > PACKET_THRESHOLD_MS) {
-          this.lastUpdated.put(uuid, System.currentTimeMillis());
-          final PlayerConnection connection = this.playerConnections.get(uuid);
-          for (final PacketPlayOutMap packet : packetArray) {
-            connection.sendPacket(packet);
-          }
+
+    // viewers which skipped a delta encoded frame of these maps are missing changes, so they get
+    // whole tiles again
+    final List<ViewerPacer> deltaViewers = new ArrayList<>();
+    final List<ViewerPacer> fullViewers = new ArrayList<>();
+    final Collection<UUID> targets =
+        viewers == null ? this.pacers.keySet() : Arrays.asList(viewers);
+    for (final UUID uuid : targets) {
+      final ViewerPacer pacer = this.pacers.get(uuid);
+      if (pacer == null) {
+        continue;
+      }
+      final boolean resync = sent != null && pacer.isResync(group, mapIds);
+      if (!resync && arrIndex == 0) {
+        continue;
+      }
+      final long budget = this.bandwidthBudgets.getOrDefault(uuid, this.bandwidthBudget);
+      if (!pacer.tryAcquire(resync ? fullBytes : bytes, budget)) {
+        if (sent != null) {
+          pacer.setResync(group, mapIds, true);
         }
+        continue;
       }
-    } else {
-      for (final UUID uuid : viewers) {
-        final long val = this.lastUpdated.getOrDefault(uuid, 0L);
-        if (System.currentTimeMillis() - val > PACKET_THRESHOLD_MS) {
-          this.lastUpdated.put(uuid, System.currentTimeMillis());
-          final PlayerConnection connection = this.playerConnections.get(uuid);
-          if (connection != null) {
-            for (final PacketPlayOutMap packet : packetArray) {
-              connection.sendPacket(packet);
-            }
-          }
+      if (resync) {
+        pacer.setResync(group, mapIds, false);
+        fullViewers.add(pacer);
+      } else {
+        deltaViewers.add(pacer);
+      }
+    }
+    if (!deltaViewers.isEmpty()) {
+      sendMapPackets(deltaViewers, Arrays.copyOf(packetArray, arrIndex));
+    }
+    if (!fullViewers.isEmpty()) {
+      // whole tiles are only built in the rare frames where a viewer needs a resync
+      final PacketPlayOutMap[] fullPackets = new PacketPlayOutMap[tiles.length];
+      for (int i = 0; i < tiles.length; i++) {
+        final MapTile tile = tiles[i];
+        fullPackets[i] =
+            createMapPacket(
+                mapIds[i],
+                tile.getX(),
+                tile.getY(),
+                tile.getWidth(),
+                tile.getHeight(),
+                tile.getData());
+      }
+      sendMapPackets(fullViewers, fullPackets);
+    }
+  }
+
+  private void sendMapPackets(final List<ViewerPacer> viewers, final PacketPlayOutMap[] packets) {
+    final List<Channel> channels = new ArrayList<>(viewers.size());
+    for (final ViewerPacer viewer : viewers) {
+      channels.add(viewer.getChannel());
+    }
+    // every tile is encoded once for all viewers, fall back to sending the packets one by one
+    if (!this.broadcaster.broadcast(channels, packets)) {
+      for (final ViewerPacer viewer : viewers) {
+        final PlayerConnection connection = viewer.getConnection();
+        for (final PacketPlayOutMap packet : packets) {
+          connection.sendPacket(packet);
         }
       }
     }
   }
 
+  private long getPacketSize(final PacketPlayOutMap packet) {
+    try {
+      return ((byte[]) MAP_DATA_GETTER.invokeExact(packet)).length + MAP_PACKET_OVERHEAD;
+    } catch (final Throwable throwable) {
+      throwable.printStackTrace();
+      return MAP_PACKET_OVERHEAD;
+    }
+  }
+
+  @Override
+  public void setBandwidthBudget(final long bytesPerSecond) {
+    this.bandwidthBudget = bytesPerSecond;
+  }
+
+  @Override
+  public void setBandwidthBudget(@NotNull final UUID viewer, final long bytesPerSecond) {
+    this.bandwidthBudgets.put(viewer, bytesPerSecond);
+  }
+
+  @Override
+  public long getBandwidthBudget(@NotNull final UUID viewer) {
+    return this.bandwidthBudgets.getOrDefault(viewer, this.bandwidthBudget);
+  }
+
+  private Set<UUID> getGroup(final UUID[] viewers) {
+    return viewers == null
+        ? new HashSet<>(this.playerConnections.keySet())
+        : new HashSet<>(Arrays.asList(viewers));
+  }
+
+  private Map<Integer, byte[]> getSentMaps(final Set<UUID> group) {
+    return this.sentMaps.computeIfAbsent(group, key -> new ConcurrentHashMap<>());
+  }
+
+  private void clearSentMaps() {
+    this.sentMaps.clear();
+    for (final ViewerPacer pacer : this.pacers.values()) {
+      pacer.clearResync();
+    }
+  }
+
+  // the sent tile is updated before the viewers are paced, every viewer of the group which then
+  // does not receive the packet is marked for a resync of the map
+  private PacketPlayOutMap createDeltaMapPacket(
+      final Map<Integer, byte[]> sent,
+      final int mapId,
+      final int topX,
+      final int topY,
+      final int xDiff,
+      final int yDiff,
+      final byte[] mapData) {
+    byte[] previous = sent.get(mapId);
+    if (previous == null) {
+      previous = new byte[128 * 128];
+      for (int iy = 0; iy < yDiff; iy++) {
+        System.arraycopy(mapData, iy * xDiff, previous, (topY + iy) << 7 | topX, xDiff);
+      }
+      sent.put(mapId, previous);
+      return createMapPacket(mapId, topX, topY, xDiff, yDiff, mapData);
+    }
+
+    // find the bounding rectangle of the changed pixels, updating the sent tile along the way
+    int minX = xDiff;
+    int minY = yDiff;
+    int maxX = -1;
+    int maxY = -1;
+    for (int iy = 0; iy < yDiff; iy++) {
+      final int row = (topY + iy) << 7 | topX;
+      final int dataRow = iy * xDiff;
+      for (int ix = 0; ix < xDiff; ix++) {
+        final byte color = mapData[dataRow + ix];
+        if (previous[row + ix] != color) {
+          previous[row + ix] = color;
+          minX = Math.min(minX, ix);
+          maxX = Math.max(maxX, ix);
+          minY = Math.min(minY, iy);
+          maxY = iy;
+        }
+      }
+    }
+    if (maxX < 0) {
+      return null;
+    }
+
+    final int dirtyWidth = maxX - minX + 1;
+    final int dirtyHeight = maxY - minY + 1;
+    if (dirtyWidth == xDiff && dirtyHeight == yDiff) {
+      return createMapPacket(mapId, topX, topY, xDiff, yDiff, mapData);
+    }
+    final byte[] dirty = new byte[dirtyWidth * dirtyHeight];
+    for (int iy = 0; iy < dirtyHeight; iy++) {
+      System.arraycopy(
+          previous,
+          (topY + minY + iy) << 7 | topX + minX,
+          dirty,
+          iy * dirtyWidth,
+          dirtyWidth);
+    }
+    return createMapPacket(mapId, topX + minX, topY + minY, dirtyWidth, dirtyHeight, dirty);
+  }
+
+  private PacketPlayOutMap createMapPacket(
+      final int mapId,
+      final int topX,
+      final int topY,
+      final int xDiff,
+      final int yDiff,
+      final byte[] mapData) {
+    final PacketPlayOutMap packet = new PacketPlayOutMap();
+    try {
+      MAP_ID.invokeExact(packet, mapId);
+      MAP_ICONS.invokeExact(packet, EMPTY_ICONS);
+      MAP_X.invokeExact(packet, topX);
+      MAP_Y.invokeExact(packet, topY);
+      MAP_WIDTH.invokeExact(packet, xDiff);
+      MAP_HEIGHT.invokeExact(packet, yDiff);
+      MAP_DATA.invokeExact(packet, mapData);
+    } catch (final Throwable throwable) {
+      throwable.printStackTrace();
+    }
+    return packet;
+  }
+
+  @Override
+  public void setMapDeltaEncoding(final boolean delta) {
+    this.deltaEncoding = delta;
+    clearSentMaps();
+  }
+
+  @Override
+  public boolean isMapDeltaEncoding() {
+    return this.deltaEncoding;
+  }
+
   @Override
   public void displayEntities(
       final UUID[] viewers, final Entity[] entities, final int[] data, final int width) {
-    final int height = data.length / width;
-    final int maxHeight = Math.min(height, entities.length);
-    final PacketPlayOutEntityMetadata[] packets = new PacketPlayOutEntityMetadata[maxHeight];
-    int index = 0;
-    for (int i = 0; i < maxHeight; i++) {
+    final int height = Math.min(data.length / width, entities.length);
+    final long now = System.nanoTime();
+    final Set<UUID> group = getGroup(viewers);
+    this.hologramRows.prune(now);
+    final List<PacketPlayOutEntityMetadata> packets = new ArrayList<>(height);
+    for (int i = 0; i < height; i++) {
       final int id = ((CraftEntity) entities[i]).getHandle().getId();
-      final ChatComponentText component = new ChatComponentText("");
-      for (int x = 0; x < width; x++) {
-        final int c = data[index++];
-        final ChatComponentText p = new ChatComponentText("█");
-        p.setChatModifier(p.getChatModifier().setColor(ChatHexColor.a(c & 0xFFFFFF)));
-        component.addSibling(p);
+      final IChatBaseComponent row =
+          this.hologramRows.getChangedRow(group, id, data, i * width, width, now);
+      if (row != null) {
+        packets.add(createMetadataPacket(id, row));
       }
-      final DataWatcher.Item<Optional<IChatBaseComponent>> item =
-          new DataWatcher.Item<>(
-              new DataWatcherObject<>(2, DataWatcherRegistry.f), Optional.of(component));
-      final PacketPlayOutEntityMetadata packet = new PacketPlayOutEntityMetadata();
-      try {
-        METADATA_ID.set(packet, id);
-        METADATA_ITEMS.set(packet, Collections.singletonList(item));
-      } catch (final IllegalArgumentException | IllegalAccessException e) {
-        e.printStackTrace();
-      }
-      packets[i] = packet;
     }
-    if (viewers == null) {
-      for (final UUID uuid : this.playerConnections.keySet()) {
-        final PlayerConnection connection = this.playerConnections.get(uuid);
-        for (final PacketPlayOutEntityMetadata packet : packets) {
-          connection.sendPacket(packet);
+    if (packets.isEmpty()) {
+      return;
+    }
+    sendPackets(getTargets(viewers), packets.toArray(new PacketPlayOutEntityMetadata[0]));
+  }
+
+  @Override
+  public void displayChat(final UUID[] viewers, final String @NotNull [] rows) {
+    final PacketPlayOutChat[] packets = new PacketPlayOutChat[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      packets[i] = this.chatRows.computeIfAbsent(rows[i], this::createChatPacket);
+    }
+    sendPackets(getTargets(viewers), packets);
+  }
+
+  @Override
+  public void displayScoreboard(
+      final UUID[] viewers, final int id, final String title, final String @NotNull [] rows) {
+    final SidebarRows sidebar =
+        this.sidebars.computeIfAbsent(id, key -> new SidebarRows(key, title));
+    final List<UUID> created = new ArrayList<>();
+    final List<UUID> updated = new ArrayList<>();
+    synchronized (sidebar) {
+      final Packet<?>[] changes = sidebar.update(rows);
+      for (final UUID uuid : getTargets(viewers)) {
+        if (!this.pacers.containsKey(uuid)) {
+          continue;
+        }
+        if (sidebar.addViewer(uuid)) {
+          created.add(uuid);
+        } else {
+          updated.add(uuid);
         }
       }
-    } else {
-      for (final UUID uuid : viewers) {
-        final PlayerConnection connection = this.playerConnections.get(uuid);
-        if (connection != null) {
-          for (final PacketPlayOutEntityMetadata packet : packets) {
-            connection.sendPacket(packet);
-          }
+      if (!created.isEmpty()) {
+        sendPackets(created, sidebar.getCreatePackets());
+      }
+      if (!updated.isEmpty() && changes.length > 0) {
+        sendPackets(updated, changes);
+      }
+    }
+  }
+
+  private PacketPlayOutChat createChatPacket(final String json) {
+    return new PacketPlayOutChat(
+        IChatBaseComponent.ChatSerializer.a(json), ChatMessageType.SYSTEM, SYSTEM_SENDER);
+  }
+
+  private Collection<UUID> getTargets(final UUID[] viewers) {
+    return viewers == null ? this.pacers.keySet() : Arrays.asList(viewers);
+  }
+
+  // writes the packets to every viewer at once, each packet is encoded a single time
+  private void sendPackets(final Collection<UUID> viewers, final Packet<?>[] packets) {
+    final List<Channel> channels = new ArrayList<>();
+    final List<PlayerConnection> connections = new ArrayList<>();
+    for (final UUID uuid : viewers) {
+      final ViewerPacer pacer = this.pacers.get(uuid);
+      if (pacer != null) {
+        channels.add(pacer.getChannel());
+        connections.add(pacer.getConnection());
+      }
+    }
+    if (!this.broadcaster.broadcast(channels, packets)) {
+      for (final PlayerConnection connection : connections) {
+        for (final Packet<?> packet : packets) {
+          connection.sendPacket(packet);
         }
       }
     }
   }
 
+  private PacketPlayOutEntityMetadata createMetadataPacket(
+      final int id, final IChatBaseComponent name) {
+    final DataWatcher.Item<Optional<IChatBaseComponent>> item =
+        new DataWatcher.Item<>(CUSTOM_NAME, Optional.of(name));
+    final PacketPlayOutEntityMetadata packet = new PacketPlayOutEntityMetadata();
+    try {
+      METADATA_ID.invokeExact(packet, id);
+      METADATA_ITEMS.invokeExact(packet, Collections.<DataWatcher.Item<?>>singletonList(item));
+    } catch (final Throwable throwable) {
+      throwable.printStackTrace();
+    }
+    return packet;
+  }
+
+  private static MethodHandle getSetter(final Class<?> clazz, final String name) {
+    try {
+      final Field field = clazz.getDeclaredField(name);
+      field.setAccessible(true);
+      return MethodHandles.lookup().unreflectSetter(field);
+    } catch (final NoSuchFieldException | IllegalAccessException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private static MethodHandle getGetter(final Class<?> clazz, final String name) {
+    try {
+      final Field field = clazz.getDeclaredField(name);
+      field.setAccessible(true);
+      return MethodHandles.lookup().unreflectGetter(field);
+    } catch (final NoSuchFieldException | IllegalAccessException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
   @Override
   public Object onPacketInterceptOut(final Player viewer, final Object packet) {
     if (packet instanceof PacketPlayOutMinimap) {
@@ -273,13 +600,31 @@ public class NMSMapPacketIntercepter implements PacketHandler {
 
   @Override
   public void registerPlayer(final Player player) {
-    this.playerConnections.put(
-        player.getUniqueId(), ((CraftPlayer) player).getHandle().playerConnection);
+    final PlayerConnection connection = ((CraftPlayer) player).getHandle().playerConnection;
+    this.playerConnections.put(player.getUniqueId(), connection);
+    this.pacers.put(player.getUniqueId(), new ViewerPacer(connection));
+    // a rejoining client has lost its maps and holograms, and groups of all players have changed
+    clearSentMaps();
+    this.hologramRows.reset();
+    removeSidebarViewer(player.getUniqueId());
   }
 
   @Override
   public void unregisterPlayer(final Player player) {
     this.playerConnections.remove(player.getUniqueId());
+    this.pacers.remove(player.getUniqueId());
+    this.bandwidthBudgets.remove(player.getUniqueId());
+    this.lastMarkerUpdates.remove(player.getUniqueId());
+    clearSentMaps();
+    removeSidebarViewer(player.getUniqueId());
+  }
+
+  private void removeSidebarViewer(final UUID viewer) {
+    for (final SidebarRows sidebar : this.sidebars.values()) {
+      synchronized (sidebar) {
+        sidebar.removeViewer(viewer);
+      }
+    }
   }
 
   @Override
@@ -0,0 +1,173 @@
+package io.github.pulsebeat02.minecraftmedialibrary.nms.impl.v1_16_R3;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import net.minecraft.server.v1_16_R3.EnumProtocol;
+import net.minecraft.server.v1_16_R3.EnumProtocolDirection;
+import net.minecraft.server.v1_16_R3.Packet;
+import net.minecraft.server.v1_16_R3.PacketCompressor;
+import net.minecraft.server.v1_16_R3.PacketDataSerializer;
+
+/**
+ * Encodes packets once and writes the encoded buffers to many channels. The buffers enter each
+ * pipeline after the packet encoder, or after the compressor when compression is enabled, so
+ * netty only prepends the length (and encrypts) per player.
+ *
+ * <p>Channels are not flushed on every write. One flush runs on the event loop of the channel after
+ * the writes of every screen queued until then, so pending bytes in the channel reflect what the
+ * network has not taken yet rather than what waits for a flush.
+ */
+final class PacketBroadcaster {
+
+  private static final Field COMPRESSION_THRESHOLD;
+
+  static {
+    Field threshold = null;
+    for (final Field field : PacketCompressor.class.getDeclaredFields()) {
+      if (field.getType() == int.class && !Modifier.isStatic(field.getModifiers())) {
+        field.setAccessible(true);
+        threshold = field;
+        break;
+      }
+    }
+    COMPRESSION_THRESHOLD = threshold;
+  }
+
+  private final Set<Channel> pendingFlushes = ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(Deflater::new);
+  private final ThreadLocal<byte[]> deflateBuffers = ThreadLocal.withInitial(() -> new byte[8192]);
+
+  /**
+   * Writes the packets to every channel.
+   *
+   * @param channels the channels
+   * @param packets the packets
+   * @return false if the packets could not be encoded or compressed, in which case nothing was
+   *     written
+   */
+  boolean broadcast(final Collection<Channel> channels, final Packet<?>[] packets) {
+    final ByteBuf[] encoded = new ByteBuf[packets.length];
+    ByteBuf[] compressed = null;
+    try {
+      for (int i = 0; i < packets.length; i++) {
+        encoded[i] = encode(packets[i]);
+      }
+
+      // everything which may fail happens before the first write, so a failure never leaves some
+      // channels with the packets when the caller falls back to sending them one by one
+      final Channel[] targets = channels.toArray(new Channel[0]);
+      final ChannelHandlerContext[] contexts = new ChannelHandlerContext[targets.length];
+      final boolean[] compressing = new boolean[targets.length];
+      for (int i = 0; i < targets.length; i++) {
+        final ChannelPipeline pipeline = targets[i].pipeline();
+        final ChannelHandler compressor = pipeline.get("compress");
+        contexts[i] = pipeline.context(compressor != null ? "compress" : "encoder");
+        if (contexts[i] != null && compressor != null) {
+          compressing[i] = true;
+          // the threshold is server wide, so one compressed copy serves every player
+          if (compressed == null) {
+            compressed = compress(encoded, getThreshold(compressor));
+          }
+        }
+      }
+
+      for (int i = 0; i < targets.length; i++) {
+        final ChannelHandlerContext context = contexts[i];
+        if (context == null) {
+          continue;
+        }
+        for (final ByteBuf buffer : compressing[i] ? compressed : encoded) {
+          context.write(buffer.retainedDuplicate(), context.voidPromise());
+        }
+        scheduleFlush(targets[i]);
+      }
+      return true;
+    } catch (final IOException | IllegalAccessException e) {
+      e.printStackTrace();
+      return false;
+    } finally {
+      release(encoded);
+      if (compressed != null) {
+        release(compressed);
+      }
+    }
+  }
+
+  private ByteBuf encode(final Packet<?> packet) throws IOException {
+    final Integer id = EnumProtocol.PLAY.a(EnumProtocolDirection.CLIENTBOUND, packet);
+    if (id == null) {
+      throw new IOException("Packet " + packet.getClass().getName() + " is not a play packet!");
+    }
+    final ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+    final PacketDataSerializer serializer = new PacketDataSerializer(buffer);
+    serializer.d(id);
+    packet.b(serializer);
+    return buffer;
+  }
+
+  private ByteBuf[] compress(final ByteBuf[] encoded, final int threshold) {
+    final Deflater deflater = this.deflaters.get();
+    final byte[] chunk = this.deflateBuffers.get();
+    final ByteBuf[] compressed = new ByteBuf[encoded.length];
+    for (int i = 0; i < encoded.length; i++) {
+      final ByteBuf source = encoded[i];
+      final int length = source.readableBytes();
+      final ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+      final PacketDataSerializer serializer = new PacketDataSerializer(buffer);
+
+      // same framing as the PacketCompressor, data length of 0 marks an uncompressed packet
+      if (length < threshold) {
+        serializer.d(0);
+        serializer.writeBytes(source, source.readerIndex(), length);
+      } else {
+        final byte[] data = new byte[length];
+        source.getBytes(source.readerIndex(), data);
+        serializer.d(length);
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        while (!deflater.finished()) {
+          final int written = deflater.deflate(chunk);
+          serializer.writeBytes(chunk, 0, written);
+        }
+        deflater.reset();
+      }
+      compressed[i] = buffer;
+    }
+    return compressed;
+  }
+
+  private int getThreshold(final ChannelHandler compressor) throws IllegalAccessException {
+    return COMPRESSION_THRESHOLD == null ? 0 : COMPRESSION_THRESHOLD.getInt(compressor);
+  }
+
+  private void scheduleFlush(final Channel channel) {
+    if (this.pendingFlushes.add(channel)) {
+      channel
+          .eventLoop()
+          .execute(
+              () -> {
+                this.pendingFlushes.remove(channel);
+                channel.flush();
+              });
+    }
+  }
+
+  private void release(final ByteBuf[] buffers) {
+    for (final ByteBuf buffer : buffers) {
+      if (buffer != null) {
+        buffer.release();
+      }
+    }
+  }
+}
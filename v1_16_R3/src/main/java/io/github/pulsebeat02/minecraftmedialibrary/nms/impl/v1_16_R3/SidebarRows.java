@@ -0,0 +1,130 @@
+package io.github.pulsebeat02.minecraftmedialibrary.nms.impl.v1_16_R3;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import net.minecraft.server.v1_16_R3.ChatComponentText;
+import net.minecraft.server.v1_16_R3.IChatBaseComponent;
+import net.minecraft.server.v1_16_R3.IScoreboardCriteria;
+import net.minecraft.server.v1_16_R3.Packet;
+import net.minecraft.server.v1_16_R3.PacketPlayOutScoreboardDisplayObjective;
+import net.minecraft.server.v1_16_R3.PacketPlayOutScoreboardObjective;
+import net.minecraft.server.v1_16_R3.PacketPlayOutScoreboardScore;
+import net.minecraft.server.v1_16_R3.PacketPlayOutScoreboardTeam;
+import net.minecraft.server.v1_16_R3.Scoreboard;
+import net.minecraft.server.v1_16_R3.ScoreboardObjective;
+import net.minecraft.server.v1_16_R3.ScoreboardServer;
+import net.minecraft.server.v1_16_R3.ScoreboardTeam;
+
+/**
+ * A sidebar showing a video, one row of pixels in the suffix of a team per line. The sidebar only
+ * exists on the clients, it is created once for every viewer and from then on only the teams of
+ * rows which changed since the previous frame are updated. Teams are only created for rows which
+ * have been shown, a row shown for the first time is created for viewers who already have the
+ * sidebar. Not thread-safe, callers synchronize on the sidebar.
+ */
+final class SidebarRows {
+
+  private static final int MAX_ROWS = 15;
+  private static final int SIDEBAR_SLOT = 1;
+  private static final int TEAM_CREATE = 0;
+  private static final int TEAM_UPDATE = 2;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final ScoreboardObjective objective;
+  private final ScoreboardTeam[] teams;
+  private final String[] entries;
+  private final String[] rows;
+  private final Set<UUID> viewers;
+
+  SidebarRows(final int id, final String title) {
+    final Scoreboard scoreboard = new Scoreboard();
+    final String name = "mml-" + id;
+    this.objective =
+        new ScoreboardObjective(
+            scoreboard,
+            name,
+            IScoreboardCriteria.DUMMY,
+            new ChatComponentText(title),
+            IScoreboardCriteria.EnumScoreboardHealthDisplay.INTEGER);
+    this.teams = new ScoreboardTeam[MAX_ROWS];
+    this.entries = new String[MAX_ROWS];
+    for (int i = 0; i < MAX_ROWS; i++) {
+      // invisible and unique names, a color code followed by a reset
+      this.entries[i] = new String(new char[] {'§', HEX[i], '§', 'r'});
+      this.teams[i] = new ScoreboardTeam(scoreboard, name + "-" + i);
+      this.teams[i].getPlayerNameSet().add(this.entries[i]);
+    }
+    this.rows = new String[MAX_ROWS];
+    this.viewers = new HashSet<>();
+  }
+
+  /**
+   * Takes the rows of a frame.
+   *
+   * @param rows the rows as JSON text components
+   * @return the team updates of the rows which changed, and the teams and lines of rows shown for
+   *     the first time
+   */
+  Packet<?>[] update(final String[] rows) {
+    final List<Packet<?>> packets = new ArrayList<>();
+    for (int i = 0; i < Math.min(rows.length, MAX_ROWS); i++) {
+      if (rows[i].equals(this.rows[i])) {
+        continue;
+      }
+      final boolean created = this.rows[i] == null;
+      this.rows[i] = rows[i];
+      this.teams[i].setSuffix(IChatBaseComponent.ChatSerializer.a(rows[i]));
+      if (created) {
+        // viewers only know the teams of rows earlier frames had
+        addRow(packets, i);
+      } else {
+        packets.add(new PacketPlayOutScoreboardTeam(this.teams[i], TEAM_UPDATE));
+      }
+    }
+    return packets.toArray(new Packet<?>[0]);
+  }
+
+  /**
+   * Gets the packets which create the sidebar with the rows of the latest frame.
+   *
+   * @return the packets
+   */
+  Packet<?>[] getCreatePackets() {
+    final List<Packet<?>> packets = new ArrayList<>();
+    packets.add(new PacketPlayOutScoreboardObjective(this.objective, 0));
+    packets.add(new PacketPlayOutScoreboardDisplayObjective(SIDEBAR_SLOT, this.objective));
+    for (int i = 0; i < MAX_ROWS; i++) {
+      if (this.rows[i] != null) {
+        addRow(packets, i);
+      }
+    }
+    return packets.toArray(new Packet<?>[0]);
+  }
+
+  private void addRow(final List<Packet<?>> packets, final int row) {
+    packets.add(new PacketPlayOutScoreboardTeam(this.teams[row], TEAM_CREATE));
+    packets.add(
+        new PacketPlayOutScoreboardScore(
+            ScoreboardServer.Action.CHANGE,
+            this.objective.getName(),
+            this.entries[row],
+            MAX_ROWS - row));
+  }
+
+  /**
+   * Marks a viewer as having the sidebar.
+   *
+   * @param viewer the viewer
+   * @return false if the viewer already had the sidebar
+   */
+  boolean addViewer(final UUID viewer) {
+    return this.viewers.add(viewer);
+  }
+
+  void removeViewer(final UUID viewer) {
+    this.viewers.remove(viewer);
+  }
+}
@@ -0,0 +1,122 @@
+package io.github.pulsebeat02.minecraftmedialibrary.nms.impl.v1_16_R3;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import net.minecraft.server.v1_16_R3.PlayerConnection;
+
+/**
+ * Decides per viewer whether a map frame is sent or skipped. A frame is skipped while the
+ * connection still has the previous frames queued, or when it would exceed the byte budget of the
+ * viewer, so slow clients fall behind on their own instead of holding up everyone else.
+ */
+final class ViewerPacer {
+
+  private static final long MAX_PENDING_BYTES = 1 << 17;
+
+  private final PlayerConnection connection;
+  private final Channel channel;
+  private final Map<Set<UUID>, Set<Integer>> resync;
+
+  private double tokens;
+  private long lastRefill;
+
+  ViewerPacer(final PlayerConnection connection) {
+    this.connection = connection;
+    this.channel = connection.networkManager.channel;
+    this.resync = new HashMap<>();
+    this.lastRefill = System.nanoTime();
+  }
+
+  /**
+   * Tries to take the bytes of a frame from the budget.
+   *
+   * @param bytes the size of the frame
+   * @param budget the budget in bytes per second, or 0 for no limit
+   * @return whether the frame should be sent
+   */
+  synchronized boolean tryAcquire(final long bytes, final long budget) {
+    if (!this.channel.isActive() || isCongested()) {
+      return false;
+    }
+    if (budget <= 0) {
+      return true;
+    }
+
+    // token bucket holding at most one second of budget. It may go into debt so frames larger
+    // than the budget still go out, followed by a longer pause
+    final long now = System.nanoTime();
+    this.tokens = Math.min(budget, this.tokens + (now - this.lastRefill) * budget / 1.0E9);
+    this.lastRefill = now;
+    if (this.tokens < 0) {
+      return false;
+    }
+    this.tokens -= bytes;
+    return true;
+  }
+
+  private boolean isCongested() {
+    if (!this.channel.isWritable()) {
+      return true;
+    }
+    final ChannelOutboundBuffer buffer = this.channel.unsafe().outboundBuffer();
+    return buffer != null && buffer.totalPendingWriteBytes() > MAX_PENDING_BYTES;
+  }
+
+  /**
+   * Gets whether the viewer skipped a delta encoded frame of one of the maps, as shown to a group of
+   * viewers, and so needs whole tiles of the maps again.
+   *
+   * @param group the viewers the maps are shown to
+   * @param maps the ids of the maps
+   * @return whether the viewer needs whole tiles
+   */
+  synchronized boolean isResync(final Set<UUID> group, final int[] maps) {
+    final Set<Integer> stale = this.resync.get(group);
+    if (stale == null) {
+      return false;
+    }
+    for (final int map : maps) {
+      if (stale.contains(map)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  synchronized void setResync(final Set<UUID> group, final int[] maps, final boolean resync) {
+    if (resync) {
+      final Set<Integer> stale = this.resync.computeIfAbsent(group, key -> new HashSet<>());
+      for (final int map : maps) {
+        stale.add(map);
+      }
+      return;
+    }
+    final Set<Integer> stale = this.resync.get(group);
+    if (stale != null) {
+      for (final int map : maps) {
+        stale.remove(map);
+      }
+      if (stale.isEmpty()) {
+        this.resync.remove(group);
+      }
+    }
+  }
+
+  /** Forgets all skipped frames, for when the delta state of every group was reset. */
+  synchronized void clearResync() {
+    this.resync.clear();
+  }
+
+  PlayerConnection getConnection() {
+    return this.connection;
+  }
+
+  Channel getChannel() {
+    return this.channel;
+  }
+}